@@ -0,0 +1,135 @@
+package anz.vwap.bench;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.engine.VWAPEngine;
+import anz.vwap.service.query.VWAPQueryServer;
+import anz.vwap.service.query.VWAPSnapshotIndex;
+import anz.vwap.tools.SyntheticTickGenerator;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the embedded query server against a synthetic live feed.
+ * A feed thread pushes random ticks into a {@link VWAPEngine} that publishes to a {@link VWAPSnapshotIndex},
+ * first alone and then while HTTP clients query random currency pairs as fast as they can. It reports the
+ * ingestion rate of both phases, which should be about the same since queries never block the feed, and
+ * the query rate and latency percentiles.
+ * Usage: QueryServerLoadTest [clients] [seconds-per-phase] [pair-count] [ticks-per-window]
+ */
+public class QueryServerLoadTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    public static void main(String[] args) throws Exception {
+
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int pairCount = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int ticksPerWindow = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPSnapshotIndex index = new VWAPSnapshotIndex(currencyPairs);
+        VWAPEngine engine = new VWAPEngine(MINUTE, currencyPairs, index);
+        int[] pairIds = new int[pairCount];
+        for (int i = 0; i < pairCount; i++) {
+            pairIds[i] = currencyPairs.intern(SyntheticTickGenerator.getCurrencyPair(i));
+        }
+        AtomicLong ticks = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread feed = new Thread(() -> {
+            Random random = new Random(1);
+            long tick = 0;
+            while (running.get()) {
+                engine.onTick(pairIds[random.nextInt(pairCount)], tick / ticksPerWindow * MINUTE,
+                              1 + random.nextDouble(), 1 + random.nextInt(1_000_000));
+                if (++tick % 1024 == 0) {
+                    ticks.lazySet(tick);
+                }
+            }
+        }, "vwap-feed");
+        feed.setDaemon(true);
+
+        try (VWAPQueryServer server = new VWAPQueryServer(index, 0)) {
+            feed.start();
+            long feedOnlyTicks = measureTicks(ticks, seconds);
+            System.out.printf("Ingestion without queries: %,d ticks/s%n", feedOnlyTicks / seconds);
+
+            String baseUri = "http://localhost:" + server.getPort() + "/vwap/";
+            AtomicBoolean querying = new AtomicBoolean(true);
+            long[][] latencies = new long[clients][];
+            long ticksUnderLoad;
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+                 HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build()) {
+                Future<?>[] futures = new Future<?>[clients];
+                for (int c = 0; c < clients; c++) {
+                    int clientIndex = c;
+                    futures[c] = executor.submit(() -> {
+                        latencies[clientIndex] = query(client, baseUri, pairCount, clientIndex, querying);
+                        return null;
+                    });
+                }
+                ticksUnderLoad = measureTicks(ticks, seconds);
+                querying.set(false);
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            running.set(false);
+            feed.join();
+
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            System.out.printf("Ingestion with %d clients: %,d ticks/s, %,d windows published%n", clients, ticksUnderLoad / seconds,
+                              index.getSnapshot().getVersion());
+            System.out.printf("Queries: %,d/s, latency p50 %d us, p99 %d us, max %d us%n", all.length / seconds,
+                              percentile(all, 0.50), percentile(all, 0.99), all.length == 0 ? 0 : all[all.length - 1]);
+        }
+    }
+
+    private static long measureTicks(AtomicLong ticks, int seconds) throws InterruptedException {
+
+        long start = ticks.get();
+        TimeUnit.SECONDS.sleep(seconds);
+        return ticks.get() - start;
+    }
+
+    /**
+     * Queries random pairs until stopped.
+     * @return The latency of each successful query in microseconds.
+     */
+    private static long[] query(HttpClient client, String baseUri, int pairCount, int seed, AtomicBoolean querying)
+            throws Exception {
+
+        Random random = new Random(seed);
+        long[] latencies = new long[1024];
+        int count = 0;
+        while (querying.get()) {
+            String pair = SyntheticTickGenerator.getCurrencyPair(random.nextInt(pairCount));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + pair + "?recent=5")).build();
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            long micros = (System.nanoTime() - start) / 1000;
+            if (response.statusCode() == 200) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = micros;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * fraction))];
+    }
+}
@@ -0,0 +1,104 @@
+package anz.vwap.bench;
+
+import anz.vwap.service.csv.model.VWAPRecord;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Plain VWAP calculation that load test results are checked against. It shares no parsing or aggregation
+ * code with the service: rows are read with commons-csv, timestamps with java.time and volumes split by
+ * their thousands separators are joined back as text, the way the original implementation did.
+ * A window starts at the first tick that does not fall into the previous one, and the pairs of a window
+ * are kept in a map in the order in which they first traded.
+ */
+final class ReferenceVWAPCalculator {
+
+    private static final int MAX_FIELD_LEN = 4;
+    private static final int SPLIT_VOLUME_FIELD = 3;
+    private static final DateTimeFormatter TIME_FORMAT = new DateTimeFormatterBuilder().parseCaseInsensitive()
+                                                                                       .appendPattern("h:mm a")
+                                                                                       .toFormatter(Locale.ENGLISH);
+
+    private final long timeWindowMilliseconds;
+    private final LocalDate sessionDate;
+    private long rowCount;
+
+    /**
+     * @param timeWindowMilliseconds Length of the windows.
+     * @param sessionDate Date that the timestamps of the file are on.
+     */
+    ReferenceVWAPCalculator(long timeWindowMilliseconds, LocalDate sessionDate) {
+        this.timeWindowMilliseconds = timeWindowMilliseconds;
+        this.sessionDate = sessionDate;
+    }
+
+    List<VWAPRecord> calculate(Path csvFile) throws IOException {
+
+        List<VWAPRecord> vwapRecords = new ArrayList<>();
+        Map<String, VWAPRecord> window = new LinkedHashMap<>();
+        long startTime = 0;
+        long endTime = 0;
+        rowCount = 0;
+        try (CSVParser csvParser = new CSVParser(Files.newBufferedReader(csvFile), CSVFormat.DEFAULT.withFirstRecordAsHeader()
+                                                                                                    .withIgnoreHeaderCase()
+                                                                                                    .withTrim())) {
+            for (CSVRecord csvRecord : csvParser) {
+                long timestamp = sessionDate.atTime(LocalTime.parse(csvRecord.get("TIMESTAMP"), TIME_FORMAT))
+                                            .atZone(ZoneId.systemDefault())
+                                            .toInstant()
+                                            .toEpochMilli();
+                if (rowCount++ == 0 || timestamp >= endTime) {
+                    vwapRecords.addAll(window.values());
+                    window.clear();
+                    startTime = timestamp;
+                    endTime = timestamp + timeWindowMilliseconds;
+                }
+                String currencyPair = csvRecord.get("CURRENCY-PAIR");
+                long volume = getVolume(csvRecord);
+                double priceVolume = Double.parseDouble(csvRecord.get("PRICE")) * volume;
+                VWAPRecord vwapRecord = window.get(currencyPair.toUpperCase(Locale.ROOT));
+                if (vwapRecord == null) {
+                    window.put(currencyPair.toUpperCase(Locale.ROOT), new VWAPRecord(startTime, endTime, currencyPair, priceVolume, volume));
+                } else {
+                    vwapRecord.addPriceVolume(priceVolume).addVolume(volume);
+                }
+            }
+        }
+        vwapRecords.addAll(window.values());
+        return vwapRecords;
+    }
+
+    /**
+     * @return The number of tick rows read by the last calculation.
+     */
+    long getRowCount() {
+        return rowCount;
+    }
+
+    private static long getVolume(CSVRecord csvRecord) {
+
+        if (csvRecord.size() <= MAX_FIELD_LEN) {
+            return Long.parseLong(csvRecord.get("VOLUME"));
+        }
+        StringBuilder volume = new StringBuilder();
+        for (int i = SPLIT_VOLUME_FIELD; i < csvRecord.size(); i++) {
+            volume.append(csvRecord.get(i));
+        }
+        return Long.parseLong(volume.toString());
+    }
+}
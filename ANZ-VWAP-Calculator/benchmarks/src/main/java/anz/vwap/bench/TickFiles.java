@@ -0,0 +1,25 @@
+package anz.vwap.bench;
+
+import anz.vwap.tools.SyntheticTickGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Creates temporary tick files for the benchmarks.
+ */
+final class TickFiles {
+
+    static final long SEED = 42;
+
+    private TickFiles() {
+    }
+
+    static Path create(int pairCount, int ticksPerMinute, int fileSizeMb) throws IOException {
+        Path csvFile = Files.createTempFile("vwap-bench-", ".csv");
+        csvFile.toFile().deleteOnExit();
+        new SyntheticTickGenerator(pairCount, ticksPerMinute, SEED).writeCsv(csvFile, fileSizeMb * 1024L * 1024);
+        return csvFile;
+    }
+}
@@ -0,0 +1,105 @@
+package anz.vwap.bench;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.csv.TickParser;
+import anz.vwap.service.engine.VWAPEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and aggregation of an in-memory tick file, without disk I/O.
+ * Throughput is reported per file; divide by the tick count printed at setup for ticks per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TickParserBenchmark {
+
+    @Param({"10", "500"})
+    public int pairCount;
+
+    @Param({"1000"})
+    public int ticksPerMinute;
+
+    @Param({"8"})
+    public int fileSizeMb;
+
+    private byte[] csv;
+    private long[] timestamps;
+    private int[] pairIds;
+    private double[] prices;
+    private long[] volumes;
+    private CurrencyPairDictionary currencyPairs;
+
+    @Setup
+    public void setUp() throws Exception {
+        Path csvFile = TickFiles.create(pairCount, ticksPerMinute, fileSizeMb);
+        csv = Files.readAllBytes(csvFile);
+
+        // Decode the ticks once for the aggregation benchmark
+        currencyPairs = new CurrencyPairDictionary();
+        int tickCount = 0;
+        try (TickParser tickParser = newParser(currencyPairs)) {
+            while (tickParser.next()) {
+                tickCount++;
+            }
+        }
+        timestamps = new long[tickCount];
+        pairIds = new int[tickCount];
+        prices = new double[tickCount];
+        volumes = new long[tickCount];
+        try (TickParser tickParser = newParser(currencyPairs)) {
+            for (int i = 0; tickParser.next(); i++) {
+                timestamps[i] = tickParser.getTimestamp();
+                pairIds[i] = tickParser.getPairId();
+                prices[i] = tickParser.getPrice();
+                volumes[i] = tickParser.getVolume();
+            }
+        }
+        System.out.println("\nTicks per file: " + tickCount);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws Exception {
+        try (TickParser tickParser = newParser(new CurrencyPairDictionary())) {
+            while (tickParser.next()) {
+                blackhole.consume(tickParser.getTimestamp());
+                blackhole.consume(tickParser.getPairId());
+                blackhole.consume(tickParser.getPrice());
+                blackhole.consume(tickParser.getVolume());
+            }
+        }
+    }
+
+    @Benchmark
+    public void aggregate(Blackhole blackhole) {
+        VWAPEngine engine = new VWAPEngine(60 * 60 * 1000, currencyPairs, blackhole::consume);
+        for (int i = 0; i < timestamps.length; i++) {
+            engine.onTick(pairIds[i], timestamps[i], prices[i], volumes[i]);
+        }
+        engine.flush();
+    }
+
+    private TickParser newParser(CurrencyPairDictionary currencyPairs) throws Exception {
+        return new TickParser(Channels.newChannel(new ByteArrayInputStream(csv)), currencyPairs);
+    }
+}
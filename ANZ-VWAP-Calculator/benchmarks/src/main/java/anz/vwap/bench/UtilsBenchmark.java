@@ -0,0 +1,62 @@
+package anz.vwap.bench;
+
+import anz.vwap.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timestamp conversion, rounding and decimal formatting, called once per tick or record.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UtilsBenchmark {
+
+    private static final int VALUE_COUNT = 1024; // Power of two
+
+    private final String[] timestamps = new String[VALUE_COUNT];
+    private final double[] values = new double[VALUE_COUNT];
+    private final StringBuilder decimal = new StringBuilder(32);
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(TickFiles.SEED);
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            int minuteOfDay = random.nextInt(24 * 60);
+            int hour = minuteOfDay / 60 % 12;
+            timestamps[i] = (hour == 0 ? 12 : hour) + ":" + String.format("%02d", minuteOfDay % 60) + (minuteOfDay < 720 ? " AM" : " PM");
+            values[i] = random.nextDouble() * 200;
+        }
+    }
+
+    @Benchmark
+    public long convertTimestampToLong() throws Exception {
+        return Utils.convertTimestampToLong(timestamps[index++ & (VALUE_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public double roundToDecimalPlaces() {
+        return Utils.roundToDecimalPlaces(values[index++ & (VALUE_COUNT - 1)], 4);
+    }
+
+    @Benchmark
+    public StringBuilder appendDecimal() {
+        decimal.setLength(0);
+        return Utils.appendDecimal(decimal, values[index++ & (VALUE_COUNT - 1)], 4);
+    }
+}
@@ -0,0 +1,195 @@
+package anz.vwap.bench;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.tools.SyntheticTickGenerator;
+import anz.vwap.util.Utils;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test of {@link VWAPServiceImpl#calculateVWAP(long, String)} on a large synthetic tick file.
+ * The file is written by {@link SyntheticTickGenerator} with the given size, pair count and mix of skew,
+ * late ticks, malformed rows and split volumes, unless an existing file is given. The file is calculated
+ * several times, and each run reports rows per second, peak heap and GC pauses. The records of the last run
+ * are then checked against {@link ReferenceVWAPCalculator}, and the exit code is 1 if they differ.
+ * Peak heap is the sum of the peaks of the heap memory pools, so it can be a little above the true peak.
+ * GC pauses are taken from the notifications of the collectors, leaving out the concurrent cycles of ZGC
+ * and Shenandoah.
+ * Usage: VWAPLoadTest [--rows=N] [--pairs=N] [--skew=exponent] [--out-of-order=rate] [--malformed=rate]
+ * [--split-volume=rate] [--seed=N] [--window=minutes] [--runs=N] [--file=ticks.csv]
+ */
+public class VWAPLoadTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long NOTIFICATION_DELAY_MILLISECONDS = 200;
+
+    private static final List<Long> gcPauses = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+
+        long rows = 10_000_000;
+        int pairCount = 5000;
+        double skew = 1;
+        double outOfOrderRate = 0.001;
+        double malformedRowRate = 0.001;
+        double splitVolumeRate = 0.5;
+        long seed = 42;
+        long timeWindow = 60 * MINUTE;
+        int runs = 3;
+        Path csvFile = null;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--rows=")) {
+                rows = Long.parseLong(value);
+            } else if (arg.startsWith("--pairs=")) {
+                pairCount = Integer.parseInt(value);
+            } else if (arg.startsWith("--skew=")) {
+                skew = Double.parseDouble(value);
+            } else if (arg.startsWith("--out-of-order=")) {
+                outOfOrderRate = Double.parseDouble(value);
+            } else if (arg.startsWith("--malformed=")) {
+                malformedRowRate = Double.parseDouble(value);
+            } else if (arg.startsWith("--split-volume=")) {
+                splitVolumeRate = Double.parseDouble(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--window=")) {
+                timeWindow = Long.parseLong(value) * MINUTE;
+            } else if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(value);
+            } else if (arg.startsWith("--file=")) {
+                csvFile = Paths.get(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (runs <= 0) {
+            throw new IllegalArgumentException("At least one run is required");
+        }
+
+        if (csvFile == null) {
+            csvFile = Files.createTempFile("vwap-load-", ".csv");
+            csvFile.toFile().deleteOnExit();
+            // Spread the rows over the whole day, as the generator stops advancing the clock at 11:59 PM
+            int ticksPerMinute = (int) Math.max(1, (rows + MINUTES_PER_DAY - 1) / MINUTES_PER_DAY);
+            SyntheticTickGenerator generator = new SyntheticTickGenerator(pairCount, ticksPerMinute, seed);
+            generator.setSkew(skew);
+            generator.setOutOfOrderRate(outOfOrderRate);
+            generator.setMalformedRowRate(malformedRowRate);
+            generator.setSplitVolumeRate(splitVolumeRate);
+            long start = System.nanoTime();
+            generator.writeTicks(csvFile, rows);
+            System.out.printf("Generated %,d rows of %,d pairs (skew %.2f, out of order %.4f, malformed %.4f, split volume %.2f) "
+                              + "in %,d ms: %,d MB%n", rows, pairCount, skew, outOfOrderRate, malformedRowRate, splitVolumeRate,
+                              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Files.size(csvFile) / (1024 * 1024));
+        } else {
+            System.out.printf("Reading %s: %,d MB%n", csvFile, Files.size(csvFile) / (1024 * 1024));
+        }
+        listenForGcPauses();
+
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+        List<VWAPRecord> vwapRecords = null;
+        long[] runNanos = new long[runs];
+        long[] peakHeaps = new long[runs];
+        List<List<Long>> runPauses = new ArrayList<>();
+        for (int run = 0; run < runs; run++) {
+            vwapRecords = null;
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(NOTIFICATION_DELAY_MILLISECONDS);
+            synchronized (gcPauses) {
+                gcPauses.clear();
+            }
+            List<MemoryPoolMXBean> heapPools = getHeapPools();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+            long start = System.nanoTime();
+            vwapRecords = vwapService.calculateVWAP(timeWindow, csvFile.toString());
+            runNanos[run] = System.nanoTime() - start;
+
+            peakHeaps[run] = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            TimeUnit.MILLISECONDS.sleep(NOTIFICATION_DELAY_MILLISECONDS);
+            synchronized (gcPauses) {
+                runPauses.add(new ArrayList<>(gcPauses));
+            }
+        }
+
+        ReferenceVWAPCalculator reference = new ReferenceVWAPCalculator(timeWindow, Utils.getTimestampConverter().getSessionDate());
+        long start = System.nanoTime();
+        List<VWAPRecord> expected = reference.calculate(csvFile);
+        long referenceNanos = System.nanoTime() - start;
+        long rowCount = reference.getRowCount();
+
+        for (int run = 0; run < runs; run++) {
+            List<Long> pauses = runPauses.get(run);
+            System.out.printf("Run %d: %,d rows/s, %,d ms, peak heap %,d MB, %d GC pauses, total %,d ms, max %,d ms%n", run + 1,
+                              (long) (rowCount / (runNanos[run] / 1e9)), TimeUnit.NANOSECONDS.toMillis(runNanos[run]),
+                              peakHeaps[run] / (1024 * 1024), pauses.size(), pauses.stream().mapToLong(Long::longValue).sum(),
+                              pauses.stream().mapToLong(Long::longValue).max().orElse(0));
+        }
+        System.out.printf("Reference: %,d rows/s%n", (long) (rowCount / (referenceNanos / 1e9)));
+        int mismatches = compare(expected, vwapRecords);
+        System.out.printf("%,d VWAP records, %,d differ from the reference%n", vwapRecords.size(), mismatches);
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+
+    /**
+     * Compares the records in order. The name of a pair may differ in case, as the service keeps the first
+     * spelling in the file and the reference the first spelling in the window.
+     * @return The number of records that differ.
+     */
+    private static int compare(List<VWAPRecord> expected, List<VWAPRecord> vwapRecords) {
+
+        int mismatches = Math.abs(expected.size() - vwapRecords.size());
+        for (int i = 0; i < Math.min(expected.size(), vwapRecords.size()); i++) {
+            VWAPRecord expectedRecord = expected.get(i);
+            VWAPRecord vwapRecord = vwapRecords.get(i);
+            if (expectedRecord.getStartTime() != vwapRecord.getStartTime()
+                || !expectedRecord.getCurrencyPair().equalsIgnoreCase(vwapRecord.getCurrencyPair())
+                || expectedRecord.getCumulativeVolume() != vwapRecord.getCumulativeVolume()
+                || expectedRecord.getVwap() != vwapRecord.getVwap()) {
+                if (mismatches++ < 10) {
+                    System.out.printf("Record %d: expected %s %s volume %d VWAP %s, got %s %s volume %d VWAP %s%n", i,
+                                      expectedRecord.getTimeWindow(), expectedRecord.getCurrencyPair(),
+                                      expectedRecord.getCumulativeVolume(), expectedRecord.getVwap(), vwapRecord.getTimeWindow(),
+                                      vwapRecord.getCurrencyPair(), vwapRecord.getCumulativeVolume(), vwapRecord.getVwap());
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static void listenForGcPauses() {
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector.getName().contains("Cycles")) {
+                continue; // Concurrent cycles of ZGC and Shenandoah, whose pauses are reported separately
+            }
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    synchronized (gcPauses) {
+                        gcPauses.add(info.getGcInfo().getDuration());
+                    }
+                }
+            }, null, null);
+        }
+    }
+
+    private static List<MemoryPoolMXBean> getHeapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+    }
+}
@@ -0,0 +1,128 @@
+package anz.vwap.bench;
+
+import anz.vwap.service.VWAPService;
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.aggregate.WindowMetric;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.csv.model.VWAPRecordTable;
+import anz.vwap.service.output.CsvVWAPRecordSink;
+import anz.vwap.service.query.VWAPQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end calculation from a tick file on disk, and writing of the results.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VWAPServiceBenchmark {
+
+    private static final long TIME_WINDOW = 60 * 60 * 1000;
+    private static final int SHARD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    @Param({"10", "500"})
+    public int pairCount;
+
+    @Param({"100", "10000"})
+    public int ticksPerMinute;
+
+    @Param({"32"})
+    public int fileSizeMb;
+
+    private final VWAPService vwapService = new VWAPServiceImpl();
+    private Path csvFile;
+    private Path vwapFile;
+    private List<VWAPRecord> vwapRecords;
+    private VWAPRecordTable vwapRecordTable;
+    private VWAPQuery pairQuery;
+
+    @Setup
+    public void setUp() throws Exception {
+        csvFile = TickFiles.create(pairCount, ticksPerMinute, fileSizeMb);
+        vwapFile = Files.createTempFile("vwap-bench-", "-vwap.csv");
+        vwapRecords = vwapService.calculateVWAP(TIME_WINDOW, csvFile.toString());
+        vwapRecordTable = vwapService.calculateVWAPTable(TIME_WINDOW, csvFile.toString());
+        pairQuery = VWAPQuery.all().withCurrencyPairs(vwapRecords.get(0).getCurrencyPair(), vwapRecords.get(1).getCurrencyPair());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(vwapFile);
+    }
+
+    @Benchmark
+    public List<VWAPRecord> calculateVWAP() throws Exception {
+        return vwapService.calculateVWAP(TIME_WINDOW, csvFile.toString());
+    }
+
+    @Benchmark
+    public List<VWAPRecord> calculateVWAPWithAnalytics() throws Exception {
+        return vwapService.calculateVWAP(TIME_WINDOW, csvFile.toString(), EnumSet.allOf(WindowMetric.class));
+    }
+
+    @Benchmark
+    public List<VWAPRecord> calculateVWAPForTwoPairs() throws Exception {
+        return vwapService.calculateVWAP(TIME_WINDOW, csvFile.toString(), pairQuery);
+    }
+
+    @Benchmark
+    public List<VWAPRecord> calculateVWAPTopFiveByVolume() throws Exception {
+        return vwapService.calculateVWAP(TIME_WINDOW, csvFile.toString(), VWAPQuery.all().withTopByVolume(5));
+    }
+
+    @Benchmark
+    public List<VWAPRecord> calculateExactVWAP() throws Exception {
+        return vwapService.calculateExactVWAP(TIME_WINDOW, csvFile.toString());
+    }
+
+    @Benchmark
+    public VWAPRecordTable calculateVWAPTable() throws Exception {
+        return vwapService.calculateVWAPTable(TIME_WINDOW, csvFile.toString());
+    }
+
+    @Benchmark
+    public List<VWAPRecord> calculateVWAPOnShards() throws Exception {
+        return vwapService.calculateVWAPOnShards(TIME_WINDOW, csvFile.toString(), SHARD_COUNT);
+    }
+
+    @Benchmark
+    public List<VWAPRecord> calculateVWAPInParallel() throws Exception {
+        return vwapService.calculateVWAPInParallel(TIME_WINDOW, csvFile.toString());
+    }
+
+    @Benchmark
+    public void writeVWAPRecords() throws Exception {
+        vwapService.writeVWAPRecords(vwapFile.toString(), vwapRecords);
+    }
+
+    @Benchmark
+    public void writeVWAPRecordTable() throws Exception {
+        vwapService.writeVWAPRecords(vwapFile.toString(), vwapRecordTable);
+    }
+
+    @Benchmark
+    public void streamVWAP() throws Exception {
+        vwapService.streamVWAP(TIME_WINDOW, csvFile.toString(), new CsvVWAPRecordSink(vwapFile));
+    }
+}
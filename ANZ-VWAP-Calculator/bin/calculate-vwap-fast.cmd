@@ -0,0 +1,3 @@
+@echo off
+
+java -XX:SharedArchiveFile=vwap-calculator.jsa -Xshare:auto -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -jar vwap-calculator-lite.jar %*
@@ -0,0 +1,262 @@
+package anz.vwap;
+
+import anz.vwap.service.VWAPService;
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.MinuteBarCache;
+import anz.vwap.service.aggregate.WindowMetric;
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.batch.BatchVWAPCalculator;
+import anz.vwap.service.batch.DailyTickFile;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.csv.model.VWAPRecordTable;
+import anz.vwap.service.engine.VWAPEngine;
+import anz.vwap.service.follow.TickFileFollower;
+import anz.vwap.service.metrics.VWAPMetrics;
+import anz.vwap.service.output.CsvVWAPRecordSink;
+import anz.vwap.service.query.VWAPQueryServer;
+import anz.vwap.service.query.VWAPSnapshotIndex;
+import anz.vwap.util.TimestampConverter;
+import anz.vwap.util.Utils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static java.lang.System.exit;
+
+/**
+ * Lightweight command line entry point for batch runs.
+ * Unlike {@link VWAPCalculator} it does not start a Spring context; the service is created directly,
+ * which keeps start-up to a few tens of milliseconds, in particular with the class data sharing
+ * archive built next to the jar (see calculate-vwap-fast.cmd).
+ */
+public class VWAPLauncher {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long DEFAULT_WINDOW_MINUTES = 60;
+    private static final long SHUTDOWN_TIMEOUT_MILLISECONDS = 5000;
+    private static final String WINDOW_OPTION = "--window=";
+    private static final String OUTPUT_DIR_OPTION = "--output-dir=";
+    private static final String STREAM_OPTION = "--stream";
+    private static final String BATCH_OPTION = "--batch";
+    private static final String SESSION_DATE_OPTION = "--session-date=";
+    private static final String SERVE_OPTION = "--serve=";
+    private static final String FOLLOW_OPTION = "--follow";
+    private static final String CHECKPOINT_OPTION = "--checkpoint=";
+    private static final String METRICS_OPTION = "--metrics=";
+    private static final String PRINT_METERS_OPTION = "--print-meters";
+
+    public static void main(String[] args) {
+
+        long timeWindow = DEFAULT_WINDOW_MINUTES * MINUTE;
+        String outputDirectory = ".";
+        boolean stream = false;
+        boolean batch = false;
+        LocalDate sessionDate = null;
+        int servePort = -1;
+        boolean follow = false;
+        String checkpointFile = null;
+        Set<WindowMetric> windowMetrics = Set.of();
+        boolean printMeters = false;
+        List<String> csvFiles = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(WINDOW_OPTION)) {
+                timeWindow = Long.parseLong(arg.substring(WINDOW_OPTION.length())) * MINUTE;
+            } else if (arg.startsWith(OUTPUT_DIR_OPTION)) {
+                outputDirectory = arg.substring(OUTPUT_DIR_OPTION.length());
+            } else if (arg.equals(STREAM_OPTION)) {
+                stream = true;
+            } else if (arg.equals(BATCH_OPTION)) {
+                batch = true;
+            } else if (arg.startsWith(SESSION_DATE_OPTION)) {
+                sessionDate = LocalDate.parse(arg.substring(SESSION_DATE_OPTION.length()));
+            } else if (arg.startsWith(SERVE_OPTION)) {
+                servePort = Integer.parseInt(arg.substring(SERVE_OPTION.length()));
+            } else if (arg.equals(FOLLOW_OPTION)) {
+                follow = true;
+            } else if (arg.startsWith(CHECKPOINT_OPTION)) {
+                checkpointFile = arg.substring(CHECKPOINT_OPTION.length());
+            } else if (arg.startsWith(METRICS_OPTION)) {
+                windowMetrics = WindowMetric.parse(arg.substring(METRICS_OPTION.length()));
+            } else if (arg.equals(PRINT_METERS_OPTION)) {
+                printMeters = true;
+            } else {
+                csvFiles.add(arg);
+            }
+        }
+        if (csvFiles.isEmpty()) {
+            System.out.println("Error: Please provide at least one input CSV file");
+            System.out.println("Usage: calculate-vwap-fast.cmd [--window=<minutes>] [--output-dir=<directory>] [--stream] "
+                               + "[--metrics=twap,ohlc,tick-count,volume-range] [--print-meters] <input-file.csv>...");
+            System.out.println("       calculate-vwap-fast.cmd --batch [--window=<minutes>] [--output-dir=<directory>] "
+                               + "[--session-date=<yyyy-MM-dd>] [--print-meters] <file, directory or glob>...");
+            System.out.println("       calculate-vwap-fast.cmd --serve=<port> [--window=<minutes>] <input-file.csv>...");
+            System.out.println("       calculate-vwap-fast.cmd --follow [--window=<minutes>] [--output-dir=<directory>] "
+                               + "[--checkpoint=<file>] [--session-date=<yyyy-MM-dd>] <input-file.csv>\n");
+            exit(1);
+        }
+
+        // The meters of parsing, windows and output are kept in memory and printed on request
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VWAPService vwapService = new VWAPServiceImpl(new MinuteBarCache(), new VWAPMetrics(meterRegistry));
+        if (batch) {
+            boolean succeeded = runBatch(vwapService, timeWindow, outputDirectory, sessionDate, csvFiles);
+            if (printMeters) {
+                System.out.println(meterRegistry.getMetersAsString());
+            }
+            exit(succeeded ? 0 : 1);
+        }
+        if (follow) {
+            // Runs until the process is stopped; the shutdown hook ends following, so exit must not be called
+            if (!runFollow(timeWindow, outputDirectory, checkpointFile, sessionDate, csvFiles.get(0))) {
+                exit(1);
+            }
+            return;
+        }
+        if (servePort >= 0) {
+            exit(runServer(vwapService, timeWindow, servePort, csvFiles) ? 0 : 1);
+        }
+        boolean failed = false;
+        for (String csvFile : csvFiles) {
+            try {
+                String inputName = Paths.get(csvFile).getFileName().toString().replaceFirst("\\.csv$", "");
+                String vwapFile = Paths.get(outputDirectory, "vwap-" + inputName + "-" + new Date().getTime() + ".csv").toString();
+                if (stream) {
+                    // Records go straight to the output file as their windows close
+                    System.out.println("VWAP Records of " + csvFile + " are written to output file " + vwapFile + "\n");
+                    vwapService.streamVWAP(timeWindow, csvFile, new CsvVWAPRecordSink(Paths.get(vwapFile)));
+                } else if (!windowMetrics.isEmpty()) {
+                    // Analytics are columns of the output file next to the VWAP
+                    List<VWAPRecord> vwapRecords = vwapService.calculateVWAP(timeWindow, csvFile, windowMetrics);
+                    System.out.println("VWAP Records of " + csvFile + " are written to output file " + vwapFile + "\n");
+                    vwapService.writeVWAPRecords(vwapFile, vwapRecords, windowMetrics);
+                } else {
+                    VWAPRecordTable vwapRecords = vwapService.calculateVWAPTable(timeWindow, csvFile);
+                    for (int row = 0; row < vwapRecords.size(); row++) {
+                        System.out.println(vwapRecords.getTimeWindow(row) + " -> VWAP for " + vwapRecords.getCurrencyPair(row) + ": "
+                                           + Utils.roundToDecimalPlaces(vwapRecords.getVwap(row), 4));
+                    }
+
+                    System.out.println("VWAP Records of " + csvFile + " are written to output file " + vwapFile + "\n");
+                    vwapService.writeVWAPRecords(vwapFile, vwapRecords);
+                }
+            } catch (Exception e) {
+                System.out.println("Error: Cannot calculate VWAP for " + csvFile + ": " + e.getMessage() + "\n");
+                failed = true;
+            }
+        }
+        if (printMeters) {
+            System.out.println(meterRegistry.getMetersAsString());
+        }
+        exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Calculates all daily tick files at once and writes one date-qualified output file.
+     * @return true on success.
+     */
+    private static boolean runBatch(VWAPService vwapService, long timeWindow, String outputDirectory, LocalDate sessionDate,
+                                    List<String> locations) {
+
+        try {
+            List<DailyTickFile> dailyTickFiles = new ArrayList<>();
+            for (String location : locations) {
+                dailyTickFiles.addAll(DailyTickFile.find(location, sessionDate));
+            }
+            BatchVWAPCalculator batchCalculator = new BatchVWAPCalculator(vwapService);
+            List<BatchVWAPCalculator.DailyVWAP> dailyVWAPs = batchCalculator.calculate(timeWindow, dailyTickFiles);
+            String vwapFile = Paths.get(outputDirectory, "vwap-batch-" + new Date().getTime() + ".csv").toString();
+            batchCalculator.writeVWAPRecords(vwapFile, dailyVWAPs);
+            System.out.println("VWAP Records of " + dailyTickFiles.size() + " files are written to output file " + vwapFile + "\n");
+            return true;
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage() + "\n");
+            return false;
+        }
+    }
+
+    /**
+     * Follows an input file that is still being written and appends the VWAP records of each closed window
+     * to the output file, until the process is stopped. The position is saved to a checkpoint file, so a
+     * restarted follower continues where the previous one stopped.
+     * @return false if following fails.
+     */
+    private static boolean runFollow(long timeWindow, String outputDirectory, String checkpointFile, LocalDate sessionDate,
+                                     String csvFile) {
+
+        String inputName = Paths.get(csvFile).getFileName().toString().replaceFirst("\\.csv$", "");
+        String vwapFile = Paths.get(outputDirectory, "vwap-" + inputName + "-" + new Date().getTime() + ".csv").toString();
+        Path checkpointPath = checkpointFile != null ? Paths.get(checkpointFile) : Paths.get(outputDirectory, inputName + ".checkpoint");
+        Thread followThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            followThread.interrupt();
+            try {
+                followThread.join(SHUTDOWN_TIMEOUT_MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try (CsvVWAPRecordSink sink = new CsvVWAPRecordSink(Paths.get(vwapFile))) {
+            VWAPEngine engine = new VWAPEngine(timeWindow, vwapRecord -> {
+                try {
+                    sink.write(List.of(vwapRecord));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            TimestampConverter timestampConverter = sessionDate != null ? new TimestampConverter(sessionDate)
+                                                                        : Utils.getTimestampConverter();
+            try (TickFileFollower follower = new TickFileFollower(Paths.get(csvFile), engine, timestampConverter, checkpointPath)) {
+                follower.setOutput(sink::flush);
+                if (sessionDate == null) {
+                    follower.setClock(System::currentTimeMillis, MINUTE);
+                }
+                System.out.println("VWAP Records of " + csvFile + " are written to output file " + vwapFile + " as it grows\n");
+                follower.follow();
+            } finally {
+                Thread.interrupted(); // let the output be written and closed
+            }
+            return true;
+        } catch (Exception e) {
+            System.out.println("Error: Cannot follow " + csvFile + ": " + e.getMessage() + "\n");
+            return false;
+        }
+    }
+
+    /**
+     * Feeds the input files into a live index and answers VWAP queries over HTTP until the process is stopped.
+     * @return false if the server cannot start; otherwise it does not return.
+     */
+    private static boolean runServer(VWAPService vwapService, long timeWindow, int port, List<String> csvFiles) {
+
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPSnapshotIndex index = new VWAPSnapshotIndex(currencyPairs);
+        try (VWAPQueryServer server = new VWAPQueryServer(index, port)) {
+            System.out.println("VWAP queries are answered at http://localhost:" + server.getPort() + "/vwap/<currency-pair>\n");
+            for (String csvFile : csvFiles) {
+                try {
+                    vwapService.calculateVWAP(timeWindow, csvFile, currencyPairs, index);
+                    System.out.println("VWAP Records of " + csvFile + " are available for queries");
+                } catch (Exception e) {
+                    System.out.println("Error: Cannot calculate VWAP for " + csvFile + ": " + e.getMessage());
+                }
+            }
+            new CountDownLatch(1).await();
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error: Cannot start the query server: " + e.getMessage() + "\n");
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+}
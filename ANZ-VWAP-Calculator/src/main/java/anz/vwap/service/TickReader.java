@@ -0,0 +1,41 @@
+package anz.vwap.service;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.FixedPoint;
+
+import java.io.Closeable;
+
+/**
+ * Reads ticks one at a time from an input file into primitives.
+ * The values of the current tick are available from the getters until {@link #next()} is called again.
+ */
+public interface TickReader extends Closeable {
+
+    /**
+     * Moves to the next tick.
+     * @return true when a tick was read, false at the end of the input.
+     * @throws Exception When the tick is not valid or cannot be read.
+     */
+    boolean next() throws Exception;
+
+    long getTimestamp();
+
+    int getPairId();
+
+    double getPrice();
+
+    /**
+     * @return The price in {@link FixedPoint} units of 1e-8, rounded from {@link #getPrice()} unless the
+     * reader can convert the original text exactly.
+     */
+    default long getPriceUnits() {
+        return FixedPoint.toPriceUnits(getPrice());
+    }
+
+    long getVolume();
+
+    /**
+     * @return The dictionary that the pair ids of the ticks belong to.
+     */
+    CurrencyPairDictionary getCurrencyPairs();
+}
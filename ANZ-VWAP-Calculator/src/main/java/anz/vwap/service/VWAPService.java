@@ -1,12 +1,38 @@
 package anz.vwap.service;
 
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.WindowMetric;
 import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.csv.model.VWAPRecordTable;
+import anz.vwap.service.engine.VWAPRecordListener;
+import anz.vwap.service.engine.WindowListener;
+import anz.vwap.service.output.VWAPRecordSink;
+import anz.vwap.service.query.VWAPQuery;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 public interface VWAPService {
 
     List<VWAPRecord> calculateVWAP(long timeWindowMilliseconds, String csvFile) throws Exception;
+    void calculateVWAP(long timeWindowMilliseconds, String csvFile, VWAPRecordListener listener) throws Exception;
+    List<VWAPRecord> calculateVWAP(long timeWindowMilliseconds, String csvFile, Set<WindowMetric> windowMetrics) throws Exception;
+    List<VWAPRecord> calculateVWAP(long timeWindowMilliseconds, String csvFile, VWAPQuery query) throws Exception;
+    void calculateVWAP(long timeWindowMilliseconds, String csvFile, CurrencyPairDictionary currencyPairs, WindowListener listener)
+            throws Exception;
+    List<VWAPRecord> calculateExactVWAP(long timeWindowMilliseconds, String csvFile) throws Exception;
+    void streamVWAP(long timeWindowMilliseconds, String csvFile, VWAPRecordSink sink) throws Exception;
+    VWAPRecordTable calculateVWAPTable(long timeWindowMilliseconds, String csvFile) throws Exception;
+    VWAPRecordTable calculateVWAPTable(long timeWindowMilliseconds, String csvFile, LocalDate sessionDate) throws Exception;
+    List<VWAPRecord> calculateCachedVWAP(long timeWindowMilliseconds, String csvFile) throws Exception;
+    List<VWAPRecord> calculateVWAPInParallel(long timeWindowMilliseconds, String csvFile) throws Exception;
+    List<VWAPRecord> calculateVWAPOnShards(long timeWindowMilliseconds, String csvFile, int shardCount) throws Exception;
+    List<VWAPRecord> calculateEventTimeVWAP(long timeWindowMilliseconds, long allowedLatenessMilliseconds, String csvFile)
+            throws Exception;
+    List<VWAPRecord> calculateRollingVWAP(long windowMilliseconds, String csvFile) throws Exception;
     void writeVWAPRecords(String csvFilePath, List<VWAPRecord> vwapRecords) throws IOException;
+    void writeVWAPRecords(String csvFilePath, List<VWAPRecord> vwapRecords, Set<WindowMetric> windowMetrics) throws IOException;
+    void writeVWAPRecords(String csvFilePath, VWAPRecordTable vwapRecordTable) throws IOException;
 }
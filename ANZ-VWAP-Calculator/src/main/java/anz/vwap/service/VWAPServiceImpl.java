@@ -1,31 +1,85 @@
 package anz.vwap.service;
 
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.FixedPoint;
+import anz.vwap.service.aggregate.MinuteBarCache;
+import anz.vwap.service.aggregate.TickSegments;
+import anz.vwap.service.aggregate.WindowMetric;
+import anz.vwap.service.binary.BinaryTickFormat;
+import anz.vwap.service.binary.BinaryTickReader;
+import anz.vwap.service.csv.MappedTickFileReader;
+import anz.vwap.service.csv.TickParser;
 import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.csv.model.VWAPRecordTable;
+import anz.vwap.service.csv.model.WindowAnalytics;
+import anz.vwap.service.engine.EventTimeVWAPEngine;
+import anz.vwap.service.engine.RollingVWAPEngine;
+import anz.vwap.service.engine.ShardedVWAPEngine;
+import anz.vwap.service.engine.VWAPEngine;
+import anz.vwap.service.engine.VWAPRecordListener;
+import anz.vwap.service.engine.WindowListener;
+import anz.vwap.service.metrics.VWAPMetrics;
+import anz.vwap.service.output.AsyncVWAPRecordWriter;
+import anz.vwap.service.output.VWAPRecordSink;
+import anz.vwap.service.query.TopVolumeFilter;
+import anz.vwap.service.query.VWAPQuery;
+import anz.vwap.util.TimestampConverter;
 import anz.vwap.util.Utils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
-import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.BitSet;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service("vwapService")
 public class VWAPServiceImpl implements VWAPService {
 
-    private final String TIMESTAMP = "TIMESTAMP";
-    private final String CURRENCY_PAIR = "CURRENCY-PAIR";
-    private final String PRICE = "PRICE";
-    private final String VOLUME = "VOLUME";
-    private final int MAX_FIELD_LEN = 4;
+    private final MinuteBarCache minuteBarCache;
+    private final VWAPMetrics metrics;
+
+    public VWAPServiceImpl() {
+        this(new MinuteBarCache());
+    }
+
+    /**
+     * Used by Spring. The meters are created in the application's registry, e.g. the one of Spring Boot Actuator,
+     * or in a {@link SimpleMeterRegistry} when there is none.
+     * @param meterRegistry Registry bean of the application, if any.
+     */
+    @Autowired
+    public VWAPServiceImpl(ObjectProvider<MeterRegistry> meterRegistry) {
+        this(new MinuteBarCache(), new VWAPMetrics(meterRegistry.getIfAvailable(SimpleMeterRegistry::new)));
+    }
+
+    /**
+     * @param minuteBarCache Cache of pre-aggregated input files used by {@link #calculateCachedVWAP(long, String)}.
+     */
+    public VWAPServiceImpl(MinuteBarCache minuteBarCache) {
+        this(minuteBarCache, new VWAPMetrics());
+    }
+
+    /**
+     * @param minuteBarCache Cache of pre-aggregated input files used by {@link #calculateCachedVWAP(long, String)}.
+     * @param metrics Meters that reading, calculating and writing are recorded in.
+     */
+    public VWAPServiceImpl(MinuteBarCache minuteBarCache, VWAPMetrics metrics) {
+        this.minuteBarCache = minuteBarCache;
+        this.metrics = metrics;
+    }
 
     /**
      * Returns records from a CSV input file within a specified time frame.
@@ -37,44 +91,419 @@ public class VWAPServiceImpl implements VWAPService {
      */
     public List<VWAPRecord> calculateVWAP(long timeWindowMilliseconds, String csvFilePath) throws Exception {
 
+        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
+        calculateVWAP(timeWindowMilliseconds, csvFilePath, returnVwapRecords::add);
+        return returnVwapRecords;
+    }
+
+    /**
+     * Feeds the ticks of a CSV input file into a {@link VWAPEngine} and passes each VWAP record to a listener
+     * as soon as its time window closes. A binary tick file (see {@link BinaryTickFormat}) is accepted as well
+     * and read without any text parsing, as are the inputs of the other calculations.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @param listener Receives the VWAP records.
+     * @throws Exception
+     */
+    public void calculateVWAP(long timeWindowMilliseconds, String csvFilePath, VWAPRecordListener listener) throws Exception {
+        calculateVWAP(timeWindowMilliseconds, csvFilePath, EnumSet.noneOf(WindowMetric.class), listener);
+    }
+
+    /**
+     * Returns the same records as {@link #calculateVWAP(long, String)} with the selected analytics of each time
+     * window and currency pair attached (see {@link VWAPRecord#getAnalytics()}). They are accumulated in the same
+     * pass over the input file; metrics that are not selected are not calculated at all.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @param windowMetrics Analytics to calculate besides the VWAP.
+     * @return A list of VWAP records.
+     * @throws Exception
+     */
+    public List<VWAPRecord> calculateVWAP(long timeWindowMilliseconds, String csvFilePath, Set<WindowMetric> windowMetrics) throws Exception {
+
+        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
+        calculateVWAP(timeWindowMilliseconds, csvFilePath, windowMetrics, returnVwapRecords::add);
+        return returnVwapRecords;
+    }
+
+    private void calculateVWAP(long timeWindowMilliseconds, String csvFilePath, Set<WindowMetric> windowMetrics, VWAPRecordListener listener)
+            throws Exception {
+
         if (timeWindowMilliseconds == 0) {
             throw new Exception("Time window is missing");
         }
-        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
-        List<VWAPRecord> tmpVwapRecords = new ArrayList<>();
-
-        try (CSVParser csvParser = new CSVParser(Files.newBufferedReader(Paths.get(csvFilePath)), CSVFormat.DEFAULT.withFirstRecordAsHeader()
-                                                                                                                   .withIgnoreHeaderCase()
-                                                                                                                   .withTrim())) {
-            long endTime = 0;
-            long startTime = 0;
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(currencyPairs);
+        VWAPEngine engine = new VWAPEngine(timeWindowMilliseconds, currencyPairs, windowMetrics, (VWAPRecordListener) vwapRecord -> {
+            metricsRecorder.onRecord(vwapRecord.getStartTime());
+            listener.onVWAPRecord(vwapRecord);
+        });
+        readTicks(csvFilePath, engine, metricsRecorder, null);
+        engine.flush();
+        metricsRecorder.publish();
+    }
 
-            for (CSVRecord csvRecord : csvParser) {
+    /**
+     * Returns the records of {@link #calculateVWAP(long, String)} that a query selects, filtering the ticks as
+     * they are read. Rows of other currency pairs or outside the time range are rejected after parsing their
+     * pair and timestamp, so their pairs are not interned and no sums are kept for them, and with a top-N limit only the
+     * selected records of each window are created. Rejected rows still start and end windows, so the records
+     * are the same as filtering the full result, apart from the order of a top-N window, which is by volume.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @param query Currency pairs, time range and top-N limit.
+     * @return A list of VWAP records.
+     * @throws Exception
+     */
+    public List<VWAPRecord> calculateVWAP(long timeWindowMilliseconds, String csvFilePath, VWAPQuery query) throws Exception {
 
-                long timestamp = Utils.convertTimestampToLong(csvRecord.get(TIMESTAMP));
-                if (startTime == 0) {
-                    startTime = timestamp;
-                }
-                if (endTime == 0) {
-                    endTime = timestamp + timeWindowMilliseconds;
+        if (timeWindowMilliseconds == 0) {
+            throw new Exception("Time window is missing");
+        }
+        CurrencyPairDictionary queryPairs = null;
+        if (!query.getCurrencyPairs().isEmpty()) {
+            queryPairs = new CurrencyPairDictionary();
+            for (String currencyPair : query.getCurrencyPairs()) {
+                queryPairs.intern(currencyPair);
+            }
+        }
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        BitSet queriedPairIds = new BitSet();
+        int checkedPairIds = 0;
+        long fromTime = query.getFromTime();
+        long toTime = query.getToTime();
+        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(currencyPairs);
+        VWAPRecordListener listener = vwapRecord -> {
+            metricsRecorder.onRecord(vwapRecord.getStartTime());
+            returnVwapRecords.add(vwapRecord);
+        };
+        VWAPEngine engine = query.getTopByVolume() > 0
+                            ? new VWAPEngine(timeWindowMilliseconds, currencyPairs,
+                                             new TopVolumeFilter(query.getTopByVolume(), currencyPairs, listener))
+                            : new VWAPEngine(timeWindowMilliseconds, currencyPairs, listener);
+        try (TickReader tickReader = openTicks(csvFilePath, currencyPairs, metricsRecorder, null)) {
+            if (tickReader instanceof TickParser tickParser) {
+                tickParser.setPairFilter(queryPairs);
+                tickParser.setTimeRange(fromTime, toTime);
+            }
+            while (tickReader.next()) {
+                // Binary ticks are not filtered by the reader, as they are read without parsing
+                int pairId = tickReader.getPairId();
+                long timestamp = tickReader.getTimestamp();
+                for (; checkedPairIds <= pairId; checkedPairIds++) {
+                    String currencyPair = currencyPairs.getName(checkedPairIds);
+                    queriedPairIds.set(checkedPairIds,
+                                       queryPairs == null || queryPairs.find(currencyPair) != CurrencyPairDictionary.NOT_FOUND);
                 }
-                if (timestamp < endTime) {
-                    // Calculate VWAP within the time frame
-                    updateVWAPRecordList(tmpVwapRecords, csvRecord, startTime, endTime);
+                if (pairId >= 0 && queriedPairIds.get(pairId) && timestamp >= fromTime && timestamp < toTime) {
+                    engine.onTick(pairId, timestamp, tickReader.getPrice(), tickReader.getVolume());
                 } else {
-                    returnVwapRecords.addAll(tmpVwapRecords);
-                    tmpVwapRecords.clear();
-                    startTime = timestamp;
-                    endTime = timestamp + timeWindowMilliseconds;
-                    tmpVwapRecords.add(buildVwapRecord(csvRecord, startTime, endTime));
+                    engine.onSkippedTick(timestamp);
                 }
             }
         }
-        if (!CollectionUtils.isEmpty(tmpVwapRecords)) {
-            returnVwapRecords.addAll(tmpVwapRecords);
+        engine.flush();
+        metricsRecorder.publish();
+        return returnVwapRecords;
+    }
+
+    /**
+     * Feeds the ticks of an input file into a {@link VWAPEngine} and passes the sums of each time window to a
+     * listener as soon as it closes, without a record per currency pair. Pair ids of the window are interned
+     * in the given dictionary, which may be shared by consecutive calls, e.g. to keep one live index of
+     * several files.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @param currencyPairs Dictionary of the pair ids.
+     * @param listener Receives the closed windows.
+     * @throws Exception
+     */
+    public void calculateVWAP(long timeWindowMilliseconds, String csvFilePath, CurrencyPairDictionary currencyPairs,
+                              WindowListener listener) throws Exception {
+
+        if (timeWindowMilliseconds == 0) {
+            throw new Exception("Time window is missing");
+        }
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(currencyPairs);
+        VWAPEngine engine = new VWAPEngine(timeWindowMilliseconds, currencyPairs, (WindowListener) (startTime, endTime, window) -> {
+            metricsRecorder.onWindow(window.size());
+            listener.onWindowClosed(startTime, endTime, window);
+        });
+        readTicks(csvFilePath, engine, metricsRecorder, null);
+        engine.flush();
+        metricsRecorder.publish();
+    }
+
+    /**
+     * Returns the same records as {@link #calculateVWAP(long, String)}, with price-volume summed exactly in
+     * fixed-point units of 1e-8 (see {@link FixedPoint}) instead of doubles. Prices are taken from the text of
+     * the input file without going through a double, so the VWAPs are exact and do not depend on tick order.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @return A list of VWAP records whose VWAP is rounded from the exact sums.
+     * @throws Exception
+     */
+    public List<VWAPRecord> calculateExactVWAP(long timeWindowMilliseconds, String csvFilePath) throws Exception {
+
+        if (timeWindowMilliseconds == 0) {
+            throw new Exception("Time window is missing");
+        }
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(currencyPairs);
+        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(timeWindowMilliseconds, currencyPairs, (VWAPRecordListener) vwapRecord -> {
+            metricsRecorder.onRecord(vwapRecord.getStartTime());
+            returnVwapRecords.add(vwapRecord);
+        });
+        try (TickReader tickReader = openTicks(csvFilePath, currencyPairs, metricsRecorder, null)) {
+            while (tickReader.next()) {
+                engine.onTickFixedPoint(tickReader.getPairId(), tickReader.getTimestamp(), tickReader.getPriceUnits(),
+                                        tickReader.getVolume());
+            }
+        }
+        engine.flush();
+        metricsRecorder.publish();
+        return returnVwapRecords;
+    }
+
+    /**
+     * Calculates VWAP like {@link #calculateVWAP(long, String, VWAPRecordListener)} and writes the records
+     * to a sink as their time windows close, on a writer thread so that parsing does not wait for the output.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @param sink Receives the VWAP records in batches. It is closed when all records have been written.
+     * @throws Exception
+     */
+    public void streamVWAP(long timeWindowMilliseconds, String csvFilePath, VWAPRecordSink sink) throws Exception {
+
+        try (AsyncVWAPRecordWriter writer = new AsyncVWAPRecordWriter(sink)) {
+            calculateVWAP(timeWindowMilliseconds, csvFilePath, writer);
+        }
+    }
+
+    /**
+     * Returns the same results as {@link #calculateVWAP(long, String)} as columns of primitives,
+     * which is far more compact than a list of records for large results.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @return The VWAP results, one row per time window and currency pair.
+     * @throws Exception
+     */
+    public VWAPRecordTable calculateVWAPTable(long timeWindowMilliseconds, String csvFilePath) throws Exception {
+        return calculateVWAPTable(timeWindowMilliseconds, csvFilePath, (TimestampConverter) null);
+    }
+
+    /**
+     * Returns the same results as {@link #calculateVWAPTable(long, String)} for a file of ticks traded on
+     * a given session date rather than today. Timestamps that fall more than 12 hours before the latest one
+     * are taken to be on the next day, so a session running past midnight stays in time order.
+     * Binary tick files hold dated timestamps already and are read as they are.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @param sessionDate Date on which the ticks of the file were traded.
+     * @return The VWAP results, one row per time window and currency pair.
+     * @throws Exception
+     */
+    public VWAPRecordTable calculateVWAPTable(long timeWindowMilliseconds, String csvFilePath, LocalDate sessionDate)
+            throws Exception {
+        return calculateVWAPTable(timeWindowMilliseconds, csvFilePath, new TimestampConverter(sessionDate));
+    }
+
+    private VWAPRecordTable calculateVWAPTable(long timeWindowMilliseconds, String csvFilePath, TimestampConverter sessionConverter)
+            throws Exception {
+
+        if (timeWindowMilliseconds == 0) {
+            throw new Exception("Time window is missing");
+        }
+        VWAPRecordTable vwapRecordTable = new VWAPRecordTable();
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(vwapRecordTable.getCurrencyPairs());
+        VWAPEngine engine = new VWAPEngine(timeWindowMilliseconds, vwapRecordTable.getCurrencyPairs(), (WindowListener) (startTime, endTime, window) -> {
+            metricsRecorder.onWindow(window.size());
+            vwapRecordTable.addWindow(startTime, endTime, window);
+        });
+        readTicks(csvFilePath, engine, metricsRecorder, sessionConverter);
+        engine.flush();
+        metricsRecorder.publish();
+        return vwapRecordTable;
+    }
+
+    /**
+     * Returns the same records as {@link #calculateVWAP(long, String)}, reading the input file as memory-mapped
+     * chunks that are parsed in parallel. Meant for large files.
+     * Sums of ticks that share a timestamp are added up first, so the cumulative price-volume may differ
+     * from {@link #calculateVWAP(long, String)} in the last bits of the double.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @return A list of VWAP records.
+     * @throws Exception
+     */
+    public List<VWAPRecord> calculateVWAPInParallel(long timeWindowMilliseconds, String csvFilePath) throws Exception {
+
+        if (timeWindowMilliseconds == 0) {
+            throw new Exception("Time window is missing");
+        }
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(currencyPairs);
+        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(timeWindowMilliseconds, currencyPairs, (VWAPRecordListener) vwapRecord -> {
+            metricsRecorder.onRecord(vwapRecord.getStartTime());
+            returnVwapRecords.add(vwapRecord);
+        });
+        if (BinaryTickFormat.isBinaryTickFile(Paths.get(csvFilePath))) {
+            // Binary ticks need no parsing, so there is nothing to gain from splitting the file
+            readTicks(csvFilePath, engine, metricsRecorder, null);
+        } else {
+            MappedTickFileReader mappedTickFileReader = new MappedTickFileReader();
+            mappedTickFileReader.setMetrics(metrics);
+            mappedTickFileReader.read(Paths.get(csvFilePath), engine);
+        }
+        engine.flush();
+        metricsRecorder.publish();
+        return returnVwapRecords;
+    }
+
+    /**
+     * Returns the same records as {@link #calculateVWAP(long, String)} from per-minute partial sums of the
+     * input file, which are built on the first call and cached. Later calls for the same unchanged file,
+     * with any time window, do not read the file again.
+     * Sums of ticks that share a timestamp are added up first, so the cumulative price-volume may differ
+     * from {@link #calculateVWAP(long, String)} in the last bits of the double.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @return A list of VWAP records.
+     * @throws Exception
+     */
+    public List<VWAPRecord> calculateCachedVWAP(long timeWindowMilliseconds, String csvFilePath) throws Exception {
+
+        if (timeWindowMilliseconds == 0) {
+            throw new Exception("Time window is missing");
+        }
+        TickSegments segments = minuteBarCache.get(Paths.get(csvFilePath), this::readMinuteBars);
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(currencyPairs);
+        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(timeWindowMilliseconds, currencyPairs, (VWAPRecordListener) vwapRecord -> {
+            metricsRecorder.onRecord(vwapRecord.getStartTime());
+            returnVwapRecords.add(vwapRecord);
+        });
+        segments.replay(engine);
+        engine.flush();
+        metricsRecorder.publish();
+        return returnVwapRecords;
+    }
+
+    public MinuteBarCache getMinuteBarCache() {
+        return minuteBarCache;
+    }
+
+    /**
+     * Returns the same records as {@link #calculateVWAP(long, String)}, with the sums of the currency pairs
+     * spread over worker threads while this thread parses the input file.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param csvFilePath Input file.
+     * @param shardCount Number of worker threads.
+     * @return A list of VWAP records.
+     * @throws Exception
+     */
+    public List<VWAPRecord> calculateVWAPOnShards(long timeWindowMilliseconds, String csvFilePath, int shardCount) throws Exception {
+
+        if (timeWindowMilliseconds == 0) {
+            throw new Exception("Time window is missing");
+        }
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(currencyPairs);
+        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
+        VWAPRecordListener listener = vwapRecord -> {
+            metricsRecorder.onRecord(vwapRecord.getStartTime());
+            returnVwapRecords.add(vwapRecord);
+        };
+        try (ShardedVWAPEngine engine = new ShardedVWAPEngine(timeWindowMilliseconds, shardCount, ShardedVWAPEngine.DEFAULT_RING_CAPACITY,
+                                                              currencyPairs, listener);
+             TickReader tickReader = openTicks(csvFilePath, currencyPairs, metricsRecorder, null)) {
+            while (tickReader.next()) {
+                engine.onTick(tickReader.getPairId(), tickReader.getTimestamp(), tickReader.getPrice(), tickReader.getVolume());
+            }
+            engine.flush();
+        }
+        metricsRecorder.publish();
+        return returnVwapRecords;
+    }
+
+    /**
+     * Returns VWAP records over event-time windows, for input whose ticks may be slightly out of order.
+     * Each tick is counted in the window its timestamp falls into, on a grid anchored at the first tick,
+     * unless it arrives more than the allowed lateness after a later tick has closed that window.
+     *
+     * @param timeWindowMilliseconds The time window in milliseconds for which CSV records is read.
+     * @param allowedLatenessMilliseconds How far behind the latest timestamp a tick may arrive and still be counted.
+     * @param csvFilePath Input file.
+     * @return A list of VWAP records, in window order.
+     * @throws Exception
+     */
+    public List<VWAPRecord> calculateEventTimeVWAP(long timeWindowMilliseconds, long allowedLatenessMilliseconds, String csvFilePath)
+            throws Exception {
+
+        if (timeWindowMilliseconds == 0) {
+            throw new Exception("Time window is missing");
         }
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(currencyPairs);
+        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
+        VWAPRecordListener listener = vwapRecord -> {
+            metricsRecorder.onRecord(vwapRecord.getStartTime());
+            returnVwapRecords.add(vwapRecord);
+        };
+        EventTimeVWAPEngine engine = new EventTimeVWAPEngine(timeWindowMilliseconds, allowedLatenessMilliseconds, currencyPairs, listener);
+        try (TickReader tickReader = openTicks(csvFilePath, currencyPairs, metricsRecorder, null)) {
+            while (tickReader.next()) {
+                engine.onTick(tickReader.getPairId(), tickReader.getTimestamp(), tickReader.getPrice(), tickReader.getVolume());
+            }
+        }
+        engine.flush();
+        metricsRecorder.publish();
         return returnVwapRecords;
+    }
 
+    /**
+     * Returns the rolling VWAP of each tick's currency pair over the last N minutes, one record per tick
+     * of a CSV input file.
+     *
+     * @param windowMilliseconds Length of the rolling window, a multiple of one minute.
+     * @param csvFilePath Input file.
+     * @return A list of VWAP records, in input order.
+     * @throws Exception
+     */
+    public List<VWAPRecord> calculateRollingVWAP(long windowMilliseconds, String csvFilePath) throws Exception {
+
+        if (windowMilliseconds == 0) {
+            throw new Exception("Time window is missing");
+        }
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPMetrics.Recorder metricsRecorder = metrics.newRecorder(currencyPairs);
+        List<VWAPRecord> returnVwapRecords = new ArrayList<>();
+        RollingVWAPEngine engine = new RollingVWAPEngine(windowMilliseconds, currencyPairs, vwapRecord -> {
+            metricsRecorder.onRecord(vwapRecord.getStartTime());
+            returnVwapRecords.add(vwapRecord);
+        });
+        try (TickReader tickReader = openTicks(csvFilePath, currencyPairs, metricsRecorder, null)) {
+            while (tickReader.next()) {
+                engine.onTick(tickReader.getPairId(), tickReader.getTimestamp(), tickReader.getPrice(), tickReader.getVolume());
+            }
+        }
+        metricsRecorder.publish();
+        return returnVwapRecords;
     }
 
     /**
@@ -85,78 +514,150 @@ public class VWAPServiceImpl implements VWAPService {
      */
     public void writeVWAPRecords(String csvFilePath, List<VWAPRecord> vwapRecords) throws IOException {
 
+        long start = System.nanoTime();
         try (CSVPrinter writer  = new CSVPrinter(Files.newBufferedWriter(Paths.get(csvFilePath)),
                                                  CSVFormat.DEFAULT.withHeader("TIME WINDOW", "CURRENCY-PAIR", "VWAP"))) {
-            if (!CollectionUtils.isEmpty(vwapRecords)) {
+            if (vwapRecords != null) {
                 for (VWAPRecord vwapRecord : vwapRecords) {
                     writer.printRecord(vwapRecord.getTimeWindow(), vwapRecord.getCurrencyPair(), vwapRecord.getVwap());
                 }
             }
         }
+        metrics.recordWrite(System.nanoTime() - start);
     }
 
-    private VWAPRecord buildVwapRecord(CSVRecord csvRecord, long startTime, long endTime) {
+    /**
+     * Writes VWAP records to a CSV file like {@link #writeVWAPRecords(String, List)}, with a column per selected
+     * analytic after the VWAP: TWAP, OPEN, HIGH, LOW, CLOSE, TICKS, MIN VOLUME and MAX VOLUME.
+     * @param csvFilePath Path to a CSV file
+     * @param vwapRecords A list of VWAP records from {@link #calculateVWAP(long, String, Set)} with the same metrics.
+     * @param windowMetrics Analytics to write.
+     * @throws IOException When there is an error in writing records to the CSV file.
+     */
+    public void writeVWAPRecords(String csvFilePath, List<VWAPRecord> vwapRecords, Set<WindowMetric> windowMetrics) throws IOException {
 
-        long volume = getVolume(csvRecord);
-        double price = Double.valueOf(csvRecord.get(PRICE)).doubleValue();
-        double priceVolume = price * volume;
-        VWAPRecord vwapRecord = new VWAPRecord(createTimeWindow(startTime, endTime),
-                                               csvRecord.get(CURRENCY_PAIR),
-                                               priceVolume,
-                                               volume);
-        return vwapRecord;
+        long start = System.nanoTime();
+        boolean twap = windowMetrics.contains(WindowMetric.TWAP);
+        boolean ohlc = windowMetrics.contains(WindowMetric.OHLC);
+        boolean tickCount = windowMetrics.contains(WindowMetric.TICK_COUNT);
+        boolean volumeRange = windowMetrics.contains(WindowMetric.VOLUME_RANGE);
+        List<String> header = new ArrayList<>(List.of("TIME WINDOW", "CURRENCY-PAIR", "VWAP"));
+        if (twap) {
+            header.add("TWAP");
+        }
+        if (ohlc) {
+            header.addAll(List.of("OPEN", "HIGH", "LOW", "CLOSE"));
+        }
+        if (tickCount) {
+            header.add("TICKS");
+        }
+        if (volumeRange) {
+            header.addAll(List.of("MIN VOLUME", "MAX VOLUME"));
+        }
+        try (CSVPrinter writer  = new CSVPrinter(Files.newBufferedWriter(Paths.get(csvFilePath)),
+                                                 CSVFormat.DEFAULT.withHeader(header.toArray(new String[0])))) {
+            if (vwapRecords != null) {
+                for (VWAPRecord vwapRecord : vwapRecords) {
+                    WindowAnalytics analytics = vwapRecord.getAnalytics();
+                    writer.print(vwapRecord.getTimeWindow());
+                    writer.print(vwapRecord.getCurrencyPair());
+                    writer.print(vwapRecord.getVwap());
+                    if (twap) {
+                        writer.print(Utils.roundToDecimalPlaces(analytics.getTwap(), 4));
+                    }
+                    if (ohlc) {
+                        writer.print(analytics.getOpen());
+                        writer.print(analytics.getHigh());
+                        writer.print(analytics.getLow());
+                        writer.print(analytics.getClose());
+                    }
+                    if (tickCount) {
+                        writer.print(analytics.getTickCount());
+                    }
+                    if (volumeRange) {
+                        writer.print(analytics.getMinVolume());
+                        writer.print(analytics.getMaxVolume());
+                    }
+                    writer.println();
+                }
+            }
+        }
+        metrics.recordWrite(System.nanoTime() - start);
     }
 
-    private void updateVWAPRecordList(List<VWAPRecord> tmpVwapRecords, CSVRecord csvRecord, long startTime, long endTime) throws Exception {
-
-        long volume = getVolume(csvRecord);
-        double price = Double.valueOf(csvRecord.get(PRICE)).doubleValue();
-        double priceVolume = price * volume;
+    /**
+     * Writes VWAP results to a CSV file in the same format as {@link #writeVWAPRecords(String, List)}.
+     * Each time window is formatted once for all of its rows.
+     * @param csvFilePath Path to a CSV file
+     * @param vwapRecordTable VWAP results to be written to a file.
+     * @throws IOException When there is an error in writing records to the CSV file.
+     */
+    public void writeVWAPRecords(String csvFilePath, VWAPRecordTable vwapRecordTable) throws IOException {
 
-        if (tmpVwapRecords.isEmpty()) {
-            VWAPRecord vwapRecord = new VWAPRecord(createTimeWindow(startTime, endTime),
-                                                   csvRecord.get(CURRENCY_PAIR),
-                                                   priceVolume,
-                                                   volume);
-            tmpVwapRecords.add(vwapRecord);
-        } else {
-            List<VWAPRecord> duplicateRecords = tmpVwapRecords.stream()
-                                                              .filter(vr -> vr.getCurrencyPair().equalsIgnoreCase(csvRecord.get(CURRENCY_PAIR)))
-                                                              .collect(Collectors.toList());
-            if (duplicateRecords.isEmpty()) { // No duplicate VWAP records
-                VWAPRecord vwapRecord = new VWAPRecord(createTimeWindow(startTime, endTime),
-                                                       csvRecord.get(CURRENCY_PAIR),
-                                                       priceVolume,
-                                                       volume);
-                tmpVwapRecords.add(vwapRecord);
-            } else {
-                if (duplicateRecords.size() > 1) {
-                    throw new Exception("Two many duplicate VWAP records found!"); // There should only be one currency pair in the VWAP list.
+        long start = System.nanoTime();
+        try (CSVPrinter writer  = new CSVPrinter(Files.newBufferedWriter(Paths.get(csvFilePath)),
+                                                 CSVFormat.DEFAULT.withHeader("TIME WINDOW", "CURRENCY-PAIR", "VWAP"))) {
+            String timeWindow = null;
+            for (int row = 0; row < vwapRecordTable.size(); row++) {
+                if (row == 0 || vwapRecordTable.getStartTime(row) != vwapRecordTable.getStartTime(row - 1)
+                             || vwapRecordTable.getEndTime(row) != vwapRecordTable.getEndTime(row - 1)) {
+                    timeWindow = vwapRecordTable.getTimeWindow(row);
                 }
-                duplicateRecords.get(0).addPriceVolume(priceVolume).addVolume(volume);
+                writer.print(timeWindow);
+                writer.print(vwapRecordTable.getCurrencyPair(row));
+                writer.print(Utils.roundToDecimalPlaces(vwapRecordTable.getVwap(row), 4));
+                writer.println();
             }
         }
+        metrics.recordWrite(System.nanoTime() - start);
     }
 
-    private long getVolume(CSVRecord csvRecord) {
-        long volume;
-        if (csvRecord.size() > MAX_FIELD_LEN) {
-            StringBuilder volBuilder = new StringBuilder();
-            for (int i = 3; i < csvRecord.size(); i++) {
-                volBuilder.append(csvRecord.get(i));
-            }
-            volume = Double.valueOf(volBuilder.toString()).longValue();
+    /**
+     * Opens an input file for reading ticks, as binary ticks if the file is a binary tick file and as CSV otherwise.
+     * @param metricsRecorder Recorder for the ticks of this input, published when the reader is closed.
+     * @param sessionConverter Converts CSV timestamps on the session date of the file with midnight rollover,
+     * or null for today's date without rollover.
+     */
+    private TickReader openTicks(String filePath, CurrencyPairDictionary currencyPairs, VWAPMetrics.Recorder metricsRecorder,
+                                 TimestampConverter sessionConverter) throws IOException {
+
+        Path path = Paths.get(filePath);
+        if (BinaryTickFormat.isBinaryTickFile(path)) {
+            BinaryTickReader binaryTickReader = new BinaryTickReader(path, currencyPairs);
+            binaryTickReader.setMetricsRecorder(metricsRecorder);
+            return binaryTickReader;
+        }
+        TickParser tickParser;
+        if (sessionConverter == null) {
+            tickParser = new TickParser(FileChannel.open(path), currencyPairs);
         } else {
-            volume = Double.valueOf(csvRecord.get(VOLUME)).longValue();
+            tickParser = new TickParser(FileChannel.open(path), currencyPairs, sessionConverter);
+            tickParser.setMidnightRollover(true);
+        }
+        tickParser.setMetricsRecorder(metricsRecorder);
+        return tickParser;
+    }
+
+    private TickSegments readMinuteBars(Path path) throws Exception {
+
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        TickSegments segments = new TickSegments(currencyPairs);
+        try (TickReader tickReader = openTicks(path.toString(), currencyPairs, metrics.newRecorder(currencyPairs), null)) {
+            while (tickReader.next()) {
+                segments.add(tickReader.getPairId(), tickReader.getTimestamp(), tickReader.getPrice(), tickReader.getVolume());
+            }
         }
-        return volume;
+        segments.finish();
+        return segments;
     }
 
-    private String createTimeWindow(long startTime, long endTime) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("hh:mm aa");
-        StringBuilder timeWindow = new StringBuilder();
-        return timeWindow.append(dateFormat.format(new Date(startTime)))
-                         .append(" - ")
-                         .append(dateFormat.format(new Date(endTime))).toString().toUpperCase();
+    private void readTicks(String csvFilePath, VWAPEngine engine, VWAPMetrics.Recorder metricsRecorder,
+                           TimestampConverter sessionConverter) throws Exception {
+
+        try (TickReader tickReader = openTicks(csvFilePath, engine.getCurrencyPairs(), metricsRecorder, sessionConverter)) {
+            while (tickReader.next()) {
+                engine.onTick(tickReader.getPairId(), tickReader.getTimestamp(), tickReader.getPrice(), tickReader.getVolume());
+            }
+        }
     }
 }
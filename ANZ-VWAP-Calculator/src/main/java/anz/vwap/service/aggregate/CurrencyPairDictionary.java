@@ -0,0 +1,229 @@
+package anz.vwap.service.aggregate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns currency pair names to small integer ids.
+ * Names are matched ignoring case, the same way VWAP records have always been grouped, and the
+ * spelling seen first is kept as the pair's name. Lookups of known pairs do not allocate.
+ * This class is not thread-safe.
+ */
+public class CurrencyPairDictionary {
+
+    /** Returned by the find methods for a pair that has not been interned. */
+    public static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 64; // Must be a power of two
+
+    private int[] table = new int[INITIAL_CAPACITY]; // pair id + 1, 0 when the bucket is empty
+    private int[] hashes = new int[INITIAL_CAPACITY / 2];
+    private String[] names = new String[INITIAL_CAPACITY / 2];
+    private int size;
+
+    /**
+     * Returns the id of a currency pair, assigning the next free id when the pair is new.
+     * @param currencyPair Currency pair name, e.g. AUD/USD.
+     * @return The pair id, starting from 0.
+     */
+    public int intern(CharSequence currencyPair) {
+
+        int hash = hash(currencyPair);
+        int mask = table.length - 1;
+        for (int bucket = hash & mask; ; bucket = (bucket + 1) & mask) {
+            int entry = table[bucket];
+            if (entry == 0) {
+                return add(currencyPair.toString(), hash, bucket);
+            }
+            int pairId = entry - 1;
+            if (hashes[pairId] == hash && equalsIgnoreCase(names[pairId], currencyPair)) {
+                return pairId;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a currency pair given as UTF-8 bytes, assigning the next free id when the pair is new.
+     * Does not allocate unless the pair is new or contains non-ASCII characters.
+     * @param bytes Buffer holding the currency pair name.
+     * @param offset Offset of the name in the buffer.
+     * @param length Length of the name in bytes.
+     * @return The pair id, starting from 0.
+     */
+    public int intern(byte[] bytes, int offset, int length) {
+
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                return intern(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            }
+            hash = 31 * hash + fold((char) b);
+        }
+        hash ^= hash >>> 16;
+        int mask = table.length - 1;
+        for (int bucket = hash & mask; ; bucket = (bucket + 1) & mask) {
+            int entry = table[bucket];
+            if (entry == 0) {
+                return add(new String(bytes, offset, length, StandardCharsets.US_ASCII), hash, bucket);
+            }
+            int pairId = entry - 1;
+            if (hashes[pairId] == hash && equalsIgnoreCase(names[pairId], bytes, offset, length)) {
+                return pairId;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a currency pair without interning it.
+     * @param currencyPair Currency pair name, e.g. AUD/USD.
+     * @return The pair id, or {@link #NOT_FOUND} when the pair has not been interned.
+     */
+    public int find(CharSequence currencyPair) {
+
+        int hash = hash(currencyPair);
+        int mask = table.length - 1;
+        for (int bucket = hash & mask; ; bucket = (bucket + 1) & mask) {
+            int entry = table[bucket];
+            if (entry == 0) {
+                return NOT_FOUND;
+            }
+            int pairId = entry - 1;
+            if (hashes[pairId] == hash && equalsIgnoreCase(names[pairId], currencyPair)) {
+                return pairId;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a currency pair given as UTF-8 bytes without interning it.
+     * Does not allocate unless the name contains non-ASCII characters.
+     * @param bytes Buffer holding the currency pair name.
+     * @param offset Offset of the name in the buffer.
+     * @param length Length of the name in bytes.
+     * @return The pair id, or {@link #NOT_FOUND} when the pair has not been interned.
+     */
+    public int find(byte[] bytes, int offset, int length) {
+
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                return find(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            }
+            hash = 31 * hash + fold((char) b);
+        }
+        hash ^= hash >>> 16;
+        int mask = table.length - 1;
+        for (int bucket = hash & mask; ; bucket = (bucket + 1) & mask) {
+            int entry = table[bucket];
+            if (entry == 0) {
+                return NOT_FOUND;
+            }
+            int pairId = entry - 1;
+            if (hashes[pairId] == hash && equalsIgnoreCase(names[pairId], bytes, offset, length)) {
+                return pairId;
+            }
+        }
+    }
+
+    /**
+     * Returns the name of a pair as it was first interned.
+     * @param pairId Pair id returned by {@link #intern(CharSequence)}.
+     * @return The currency pair name.
+     */
+    public String getName(int pairId) {
+        return names[pairId];
+    }
+
+    /**
+     * @return The number of distinct currency pairs interned so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int add(String currencyPair, int hash, int bucket) {
+
+        int pairId = size++;
+        if (pairId == names.length) {
+            names = Arrays.copyOf(names, pairId * 2);
+            hashes = Arrays.copyOf(hashes, pairId * 2);
+        }
+        names[pairId] = currencyPair;
+        hashes[pairId] = hash;
+        table[bucket] = pairId + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return pairId;
+    }
+
+    private void rehash() {
+
+        int[] newTable = new int[table.length * 2];
+        int mask = newTable.length - 1;
+        for (int pairId = 0; pairId < size; pairId++) {
+            int bucket = hashes[pairId] & mask;
+            while (newTable[bucket] != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            newTable[bucket] = pairId + 1;
+        }
+        table = newTable;
+    }
+
+    static int hash(CharSequence currencyPair) {
+        int hash = 0;
+        for (int i = 0; i < currencyPair.length(); i++) {
+            hash = 31 * hash + fold(currencyPair.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Folds the case of a currency pair name the way this dictionary matches names, e.g. to key other
+     * lookups of the same pairs.
+     * @param currencyPair Currency pair name, e.g. AUD/USD.
+     * @return A key that is equal for names that this dictionary interns to the same id.
+     */
+    public static String foldCase(CharSequence currencyPair) {
+
+        StringBuilder folded = new StringBuilder(currencyPair.length());
+        for (int i = 0; i < currencyPair.length(); i++) {
+            folded.append(fold(currencyPair.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static boolean equalsIgnoreCase(String name, CharSequence currencyPair) {
+        if (name.length() != currencyPair.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (fold(name.charAt(i)) != fold(currencyPair.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(String name, byte[] bytes, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (fold(name.charAt(i)) != fold((char) bytes[offset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+package anz.vwap.service.aggregate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point arithmetic for exact VWAP sums.
+ * Prices are held as longs in units of 1e-8, and price-volume sums as 128-bit integers in the same
+ * units, split into a high and a low long. A sum is exact as long as it stays below 2^127 units,
+ * e.g. about 1.7e21 in price-volume, so the VWAP does not depend on the order in which ticks are
+ * added. Adding is two multiplications and a carry, with no allocation; only a VWAP whose sum does
+ * not fit into 63 bits is divided with {@link BigInteger}.
+ */
+public final class FixedPoint {
+
+    /** Number of decimal places of a price unit. */
+    public static final int PRICE_SCALE = 8;
+    public static final long UNITS_PER_PRICE = 100_000_000L;
+
+    /** Returned by {@link #parsePriceUnits(byte[], int, int)} when the text is not a plain decimal. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Parses a plain decimal such as 0.65445 into price units. Digits beyond the eighth decimal place
+     * are rounded half-even.
+     * @param bytes Buffer holding the decimal as ASCII.
+     * @param start Offset of the decimal in the buffer.
+     * @param end Offset after the decimal.
+     * @return The price in units of 1e-8, or {@link #INVALID} for an exponent, other characters or an
+     * integer part too large for a long.
+     */
+    public static long parsePriceUnits(byte[] bytes, int start, int end) {
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long units = 0;
+        int decimals = -1; // -1 before the decimal point
+        boolean hasDigits = false;
+        int roundingDigit = -1;
+        boolean sticky = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                hasDigits = true;
+                if (decimals < PRICE_SCALE) {
+                    if (units > (Long.MAX_VALUE - 9) / 10) {
+                        return INVALID;
+                    }
+                    units = units * 10 + (b - '0');
+                    if (decimals >= 0) {
+                        decimals++;
+                    }
+                } else if (roundingDigit < 0) {
+                    roundingDigit = b - '0';
+                } else if (b != '0') {
+                    sticky = true;
+                }
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                return INVALID;
+            }
+        }
+        if (!hasDigits) {
+            return INVALID;
+        }
+        try {
+            units = Math.multiplyExact(units, POWERS_OF_TEN[PRICE_SCALE - Math.max(decimals, 0)]);
+        } catch (ArithmeticException e) {
+            return INVALID;
+        }
+        if (roundingDigit > 5 || (roundingDigit == 5 && (sticky || (units & 1) != 0))) {
+            units++;
+        }
+        return negative ? -units : units;
+    }
+
+    /**
+     * Converts a price to the nearest price unit, which is exact for prices given with up to eight
+     * decimal places below about 10 million.
+     * @param price Price as a double.
+     * @return The price in units of 1e-8.
+     */
+    public static long toPriceUnits(double price) {
+        return Math.round(price * UNITS_PER_PRICE);
+    }
+
+    /**
+     * Converts a 128-bit sum of price units to a double price-volume.
+     * @param high High 64 bits of the sum.
+     * @param low Low 64 bits of the sum.
+     * @return The sum divided by {@link #UNITS_PER_PRICE}, rounded to a double.
+     */
+    public static double toDouble(long high, long low) {
+
+        if (high == (low >> 63)) {
+            return (double) low / UNITS_PER_PRICE;
+        }
+        return toBigInteger(high, low).doubleValue() / UNITS_PER_PRICE;
+    }
+
+    /**
+     * Divides a 128-bit price-volume sum by a volume and rounds half-even, as
+     * {@code Utils.roundToDecimalPlaces} would round the exact quotient.
+     * @param high High 64 bits of the sum in price units.
+     * @param low Low 64 bits of the sum in price units.
+     * @param volume Sum of volume, positive.
+     * @param decimalPlaces Decimal places to round to, up to 8.
+     * @return The VWAP as the double nearest to the rounded decimal.
+     */
+    public static double vwap(long high, long low, long volume, int decimalPlaces) {
+
+        long unitsPerResult = POWERS_OF_TEN[PRICE_SCALE - decimalPlaces];
+        if (high == (low >> 63) && volume <= Long.MAX_VALUE / unitsPerResult) {
+            long divisor = volume * unitsPerResult;
+            long quotient = low / divisor;
+            long remainder = Math.abs(low % divisor);
+            long rest = divisor - remainder; // compared with the remainder instead of doubling it, which could overflow
+            if (remainder > rest || (remainder == rest && (quotient & 1) != 0)) {
+                quotient += low < 0 ? -1 : 1;
+            }
+            return (double) quotient / POWERS_OF_TEN[decimalPlaces];
+        }
+        return new BigDecimal(toBigInteger(high, low))
+                .divide(BigDecimal.valueOf(volume).scaleByPowerOfTen(PRICE_SCALE), decimalPlaces, RoundingMode.HALF_EVEN)
+                .doubleValue();
+    }
+
+    /**
+     * @return The high 64 bits of a sum after adding the product of price units and volume.
+     */
+    public static long addHigh(long high, long low, long priceUnits, long volume) {
+        long productLow = priceUnits * volume;
+        long sumLow = low + productLow;
+        long carry = Long.compareUnsigned(sumLow, low) < 0 ? 1 : 0;
+        return high + Math.multiplyHigh(priceUnits, volume) + carry;
+    }
+
+    /**
+     * @return The low 64 bits of a sum after adding the product of price units and volume.
+     */
+    public static long addLow(long low, long priceUnits, long volume) {
+        return low + priceUnits * volume;
+    }
+
+    static BigInteger toBigInteger(long high, long low) {
+        return BigInteger.valueOf(high).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(low)));
+    }
+}
@@ -0,0 +1,164 @@
+package anz.vwap.service.aggregate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches the pre-aggregated ticks of input files as {@link TickSegments}, so that VWAP can be
+ * recalculated for another window length without reading the file again.
+ * For input with minute timestamps the segments are per-pair minute bars in file order, and replaying
+ * them into an engine gives the windows of the file itself for any window length.
+ * Entries are keyed by file path and modification time, so a changed file is read again. The least
+ * recently used entries are evicted when the cached segments exceed the memory budget; a file whose
+ * segments alone exceed the budget is not cached.
+ * This class is thread-safe. Two threads missing on the same file may both load it.
+ */
+public class MinuteBarCache {
+
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+
+    private final long memoryBudget;
+    private final LinkedHashMap<Key, TickSegments> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryUsage;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Loads the segments of a file on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        TickSegments load(Path path) throws Exception;
+    }
+
+    public MinuteBarCache() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * @param memoryBudget Maximum number of bytes of cached segments.
+     */
+    public MinuteBarCache(long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns the segments of a file from the cache, loading them if the file is not cached or has changed.
+     * @param path Input file.
+     * @param loader Reads the file into finished segments.
+     * @return The segments of the file. They must not be modified.
+     * @throws Exception When the file cannot be loaded.
+     */
+    public TickSegments get(Path path, Loader loader) throws Exception {
+
+        Path normalizedPath = path.toAbsolutePath().normalize();
+        Key key = new Key(normalizedPath, Files.getLastModifiedTime(normalizedPath).toMillis(), Files.size(normalizedPath));
+        synchronized (this) {
+            TickSegments segments = entries.get(key);
+            if (segments != null) {
+                hitCount++;
+                return segments;
+            }
+            missCount++;
+        }
+        TickSegments segments = loader.load(normalizedPath);
+        put(key, segments);
+        return segments;
+    }
+
+    /**
+     * Removes all entries. The hit and miss counts are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        memoryUsage = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return The approximate number of bytes held by the cached segments.
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void put(Key key, TickSegments segments) {
+
+        long size = segments.getMemoryUsage();
+        if (size > memoryBudget) {
+            return;
+        }
+        // Older versions of the same file can never be hit again
+        Iterator<Map.Entry<Key, TickSegments>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, TickSegments> entry = iterator.next();
+            if (entry.getKey().path.equals(key.path)) {
+                memoryUsage -= entry.getValue().getMemoryUsage();
+                iterator.remove();
+            }
+        }
+        iterator = entries.entrySet().iterator();
+        while (memoryUsage + size > memoryBudget && iterator.hasNext()) {
+            memoryUsage -= iterator.next().getValue().getMemoryUsage();
+            iterator.remove();
+            evictionCount++;
+        }
+        entries.put(key, segments);
+        memoryUsage += size;
+    }
+
+    private static final class Key {
+
+        final Path path;
+        final long lastModified;
+        final long size;
+
+        Key(Path path, long lastModified, long size) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return lastModified == key.lastModified && size == key.size && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified, size);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package anz.vwap.service.aggregate;
+
+import anz.vwap.service.engine.VWAPEngine;
+
+import java.util.Arrays;
+
+/**
+ * Partial sums of a run of ticks, kept in input order so that they can be replayed into a
+ * {@link VWAPEngine} later with the same windows as the ticks themselves.
+ * Consecutive ticks that share a timestamp always land in the same window, so each such segment is
+ * reduced to one price-volume and volume sum per currency pair, in first-appearance order.
+ * For input with minute timestamps this holds one entry per pair and minute instead of one per tick.
+ */
+public class TickSegments {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int BYTES_PER_PAIR = 64; // String and dictionary overhead of a pair name
+
+    private final CurrencyPairDictionary currencyPairs;
+    private final WindowAggregator segment = new WindowAggregator();
+    private long segmentTimestamp;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private int[] segmentEnds = new int[INITIAL_CAPACITY];
+    private int segmentCount;
+
+    private int[] pairIds = new int[INITIAL_CAPACITY];
+    private double[] priceVolumes = new double[INITIAL_CAPACITY];
+    private long[] volumes = new long[INITIAL_CAPACITY];
+    private int entryCount;
+
+    /**
+     * @param currencyPairs Dictionary that the pair ids of added ticks belong to.
+     */
+    public TickSegments(CurrencyPairDictionary currencyPairs) {
+        this.currencyPairs = currencyPairs;
+    }
+
+    /**
+     * Adds a tick after the ticks added so far.
+     * @param pairId Pair id from this segment list's dictionary.
+     * @param timestamp Tick time in milliseconds.
+     * @param price Traded price.
+     * @param volume Traded volume.
+     */
+    public void add(int pairId, long timestamp, double price, long volume) {
+
+        if (timestamp != segmentTimestamp) {
+            closeSegment();
+            segmentTimestamp = timestamp;
+        }
+        segment.add(pairId, price * volume, volume);
+    }
+
+    /**
+     * Completes the last segment and trims the arrays to their contents.
+     * Must be called once all ticks have been added.
+     */
+    public void finish() {
+
+        closeSegment();
+        timestamps = Arrays.copyOf(timestamps, segmentCount);
+        segmentEnds = Arrays.copyOf(segmentEnds, segmentCount);
+        pairIds = Arrays.copyOf(pairIds, entryCount);
+        priceVolumes = Arrays.copyOf(priceVolumes, entryCount);
+        volumes = Arrays.copyOf(volumes, entryCount);
+    }
+
+    /**
+     * @return The number of segments, i.e. runs of ticks sharing a timestamp.
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return The approximate number of bytes held by the segment arrays and the pair names.
+     */
+    public long getMemoryUsage() {
+
+        long bytes = (long) timestamps.length * Long.BYTES + (long) segmentEnds.length * Integer.BYTES
+                     + (long) pairIds.length * Integer.BYTES + (long) priceVolumes.length * Double.BYTES
+                     + (long) volumes.length * Long.BYTES;
+        for (int pairId = 0; pairId < currencyPairs.size(); pairId++) {
+            bytes += BYTES_PER_PAIR + currencyPairs.getName(pairId).length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Feeds the segments into an engine, in the order their ticks were added.
+     * Pair ids are translated to the engine's dictionary by name.
+     * @param engine Engine to feed.
+     */
+    public void replay(VWAPEngine engine) {
+
+        int[] enginePairIds = new int[currencyPairs.size()];
+        for (int pairId = 0; pairId < enginePairIds.length; pairId++) {
+            enginePairIds[pairId] = engine.getCurrencyPairs().intern(currencyPairs.getName(pairId));
+        }
+        int entry = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            for (; entry < segmentEnds[i]; entry++) {
+                engine.onAggregate(enginePairIds[pairIds[entry]], timestamps[i], priceVolumes[entry], volumes[entry]);
+            }
+        }
+    }
+
+    private void closeSegment() {
+
+        if (segment.isEmpty()) {
+            return;
+        }
+        if (segmentCount == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, Math.max(INITIAL_CAPACITY, segmentCount * 2));
+            segmentEnds = Arrays.copyOf(segmentEnds, Math.max(INITIAL_CAPACITY, segmentCount * 2));
+        }
+        if (entryCount + segment.size() > pairIds.length) {
+            int capacity = Math.max(pairIds.length * 2, entryCount + segment.size());
+            pairIds = Arrays.copyOf(pairIds, capacity);
+            priceVolumes = Arrays.copyOf(priceVolumes, capacity);
+            volumes = Arrays.copyOf(volumes, capacity);
+        }
+        for (int slot = 0; slot < segment.size(); slot++) {
+            pairIds[entryCount] = segment.getPairId(slot);
+            priceVolumes[entryCount] = segment.getCumulativePriceVolume(slot);
+            volumes[entryCount] = segment.getCumulativeVolume(slot);
+            entryCount++;
+        }
+        timestamps[segmentCount] = segmentTimestamp;
+        segmentEnds[segmentCount] = entryCount;
+        segmentCount++;
+        segment.clear();
+    }
+}
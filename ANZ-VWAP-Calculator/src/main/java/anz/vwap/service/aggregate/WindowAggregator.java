@@ -0,0 +1,314 @@
+package anz.vwap.service.aggregate;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Accumulates the price-volume and volume sums of each currency pair traded in one time window.
+ * Pairs are addressed by their {@link CurrencyPairDictionary} id, so adding a tick is a constant
+ * time array lookup with no allocation once the arrays have grown to the number of pairs.
+ * Slots are numbered in the order in which pairs first traded in the window.
+ * Price-volume is summed either as doubles with {@link #add(int, double, long)} or exactly in
+ * {@link FixedPoint} units with {@link #addFixedPoint(int, long, long)}; a window uses one or the other.
+ * An aggregator created with {@link WindowMetric}s also accumulates those analytics from the ticks passed
+ * to {@link #addTick(int, long, double, long)}, in primitive arrays allocated only for the selected metrics.
+ */
+public class WindowAggregator {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] slotByPairId = new int[INITIAL_CAPACITY]; // slot + 1, 0 when the pair has not traded yet
+    private int[] pairIds = new int[INITIAL_CAPACITY];
+    private double[] priceVolumes = new double[INITIAL_CAPACITY];
+    private long[] volumes = new long[INITIAL_CAPACITY];
+    private long[] priceVolumeHighs; // allocated on the first fixed-point tick
+    private long[] priceVolumeLows;
+    private boolean fixedPoint;
+    private int size;
+
+    private final Set<WindowMetric> metrics;
+    private final boolean twap;
+    private final boolean ohlc;
+    private final boolean tickCount;
+    private final boolean volumeRange;
+    // TWAP: sum of price multiplied by the time until the next tick, and the time and price of the last tick
+    private long[] firstTimes;
+    private long[] lastTimes;
+    private double[] lastPrices;
+    private double[] timeWeightedPrices;
+    private double[] opens;
+    private double[] highs;
+    private double[] lows;
+    private double[] closes;
+    private long[] tickCounts;
+    private long[] minVolumes;
+    private long[] maxVolumes;
+
+    public WindowAggregator() {
+        this(EnumSet.noneOf(WindowMetric.class));
+    }
+
+    /**
+     * @param metrics Analytics to accumulate in {@link #addTick(int, long, double, long)} besides the VWAP sums.
+     */
+    public WindowAggregator(Set<WindowMetric> metrics) {
+        this.metrics = metrics.isEmpty() ? EnumSet.noneOf(WindowMetric.class) : EnumSet.copyOf(metrics);
+        twap = metrics.contains(WindowMetric.TWAP);
+        ohlc = metrics.contains(WindowMetric.OHLC);
+        tickCount = metrics.contains(WindowMetric.TICK_COUNT);
+        volumeRange = metrics.contains(WindowMetric.VOLUME_RANGE);
+        if (twap) {
+            firstTimes = new long[INITIAL_CAPACITY];
+            lastTimes = new long[INITIAL_CAPACITY];
+            lastPrices = new double[INITIAL_CAPACITY];
+            timeWeightedPrices = new double[INITIAL_CAPACITY];
+        }
+        if (ohlc) {
+            opens = new double[INITIAL_CAPACITY];
+            highs = new double[INITIAL_CAPACITY];
+            lows = new double[INITIAL_CAPACITY];
+            closes = new double[INITIAL_CAPACITY];
+        }
+        if (tickCount) {
+            tickCounts = new long[INITIAL_CAPACITY];
+        }
+        if (volumeRange) {
+            minVolumes = new long[INITIAL_CAPACITY];
+            maxVolumes = new long[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Adds a tick to the sums of its currency pair.
+     * @param pairId Pair id of the tick.
+     * @param priceVolume Price multiplied by volume.
+     * @param volume Traded volume.
+     */
+    public void add(int pairId, double priceVolume, long volume) {
+
+        int slot = slotOf(pairId);
+        priceVolumes[slot] += priceVolume;
+        volumes[slot] += volume;
+    }
+
+    /**
+     * Adds a tick to the sums of its currency pair and to the selected analytics.
+     * Ticks of a pair are expected in time order; a tick earlier than the previous one of its pair
+     * counts for TWAP as if it had the time of the previous one.
+     * @param pairId Pair id of the tick.
+     * @param timestamp Tick time in milliseconds.
+     * @param price Traded price.
+     * @param volume Traded volume.
+     */
+    public void addTick(int pairId, long timestamp, double price, long volume) {
+
+        int previousSize = size;
+        int slot = slotOf(pairId);
+        priceVolumes[slot] += price * volume;
+        volumes[slot] += volume;
+        boolean first = size != previousSize;
+        if (twap) {
+            if (first) {
+                firstTimes[slot] = timestamp;
+                lastTimes[slot] = timestamp;
+                timeWeightedPrices[slot] = 0;
+            } else if (timestamp > lastTimes[slot]) {
+                timeWeightedPrices[slot] += lastPrices[slot] * (timestamp - lastTimes[slot]);
+                lastTimes[slot] = timestamp;
+            }
+            lastPrices[slot] = price;
+        }
+        if (ohlc) {
+            if (first) {
+                opens[slot] = price;
+                highs[slot] = price;
+                lows[slot] = price;
+            } else {
+                highs[slot] = Math.max(highs[slot], price);
+                lows[slot] = Math.min(lows[slot], price);
+            }
+            closes[slot] = price;
+        }
+        if (tickCount) {
+            tickCounts[slot] = first ? 1 : tickCounts[slot] + 1;
+        }
+        if (volumeRange) {
+            minVolumes[slot] = first ? volume : Math.min(minVolumes[slot], volume);
+            maxVolumes[slot] = first ? volume : Math.max(maxVolumes[slot], volume);
+        }
+    }
+
+    /**
+     * Adds a tick to the exact sums of its currency pair.
+     * @param pairId Pair id of the tick.
+     * @param priceUnits Price in {@link FixedPoint} units of 1e-8.
+     * @param volume Traded volume.
+     */
+    public void addFixedPoint(int pairId, long priceUnits, long volume) {
+
+        if (priceVolumeHighs == null) {
+            priceVolumeHighs = new long[pairIds.length];
+            priceVolumeLows = new long[pairIds.length];
+        }
+        fixedPoint = true;
+        int slot = slotOf(pairId);
+        long low = priceVolumeLows[slot];
+        priceVolumeHighs[slot] = FixedPoint.addHigh(priceVolumeHighs[slot], low, priceUnits, volume);
+        priceVolumeLows[slot] = FixedPoint.addLow(low, priceUnits, volume);
+        volumes[slot] += volume;
+    }
+
+    /**
+     * @return true when the window has been summed with {@link #addFixedPoint(int, long, long)}.
+     */
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    /**
+     * @return The number of currency pairs traded in the window.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getPairId(int slot) {
+        return pairIds[slot];
+    }
+
+    public double getCumulativePriceVolume(int slot) {
+        return fixedPoint ? FixedPoint.toDouble(priceVolumeHighs[slot], priceVolumeLows[slot]) : priceVolumes[slot];
+    }
+
+    public long getCumulativeVolume(int slot) {
+        return volumes[slot];
+    }
+
+    /**
+     * Returns the exact VWAP of a fixed-point window.
+     * @param slot Slot of the currency pair.
+     * @param decimalPlaces Decimal places to round half-even to.
+     * @return The rounded VWAP.
+     */
+    public double getFixedPointVwap(int slot, int decimalPlaces) {
+        return FixedPoint.vwap(priceVolumeHighs[slot], priceVolumeLows[slot], volumes[slot], decimalPlaces);
+    }
+
+    /**
+     * @return The analytics accumulated by {@link #addTick(int, long, double, long)}.
+     */
+    public Set<WindowMetric> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the time-weighted average price, with the last price of the pair holding until the end of the window.
+     * @param slot Slot of the currency pair.
+     * @param endTime End of the window in milliseconds.
+     * @return The TWAP.
+     */
+    public double getTwap(int slot, long endTime) {
+
+        long lastTime = lastTimes[slot];
+        long duration = Math.max(endTime, lastTime) - firstTimes[slot];
+        if (duration == 0) {
+            return lastPrices[slot];
+        }
+        return (timeWeightedPrices[slot] + lastPrices[slot] * Math.max(0, endTime - lastTime)) / duration;
+    }
+
+    public double getOpen(int slot) {
+        return opens[slot];
+    }
+
+    public double getHigh(int slot) {
+        return highs[slot];
+    }
+
+    public double getLow(int slot) {
+        return lows[slot];
+    }
+
+    public double getClose(int slot) {
+        return closes[slot];
+    }
+
+    public long getTickCount(int slot) {
+        return tickCounts[slot];
+    }
+
+    public long getMinVolume(int slot) {
+        return minVolumes[slot];
+    }
+
+    public long getMaxVolume(int slot) {
+        return maxVolumes[slot];
+    }
+
+    /**
+     * Resets the aggregator for the next window, keeping the arrays it has grown.
+     */
+    public void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            slotByPairId[pairIds[slot]] = 0;
+            priceVolumes[slot] = 0;
+            volumes[slot] = 0;
+        }
+        if (fixedPoint) {
+            Arrays.fill(priceVolumeHighs, 0, size, 0);
+            Arrays.fill(priceVolumeLows, 0, size, 0);
+            fixedPoint = false;
+        }
+        size = 0;
+    }
+
+    private int slotOf(int pairId) {
+
+        if (pairId >= slotByPairId.length) {
+            slotByPairId = Arrays.copyOf(slotByPairId, Math.max(pairId + 1, slotByPairId.length * 2));
+        }
+        int slot = slotByPairId[pairId] - 1;
+        return slot < 0 ? newSlot(pairId) : slot;
+    }
+
+    private int newSlot(int pairId) {
+
+        int slot = size++;
+        if (slot == pairIds.length) {
+            pairIds = Arrays.copyOf(pairIds, slot * 2);
+            priceVolumes = Arrays.copyOf(priceVolumes, slot * 2);
+            volumes = Arrays.copyOf(volumes, slot * 2);
+            if (priceVolumeHighs != null) {
+                priceVolumeHighs = Arrays.copyOf(priceVolumeHighs, slot * 2);
+                priceVolumeLows = Arrays.copyOf(priceVolumeLows, slot * 2);
+            }
+            if (twap) {
+                firstTimes = Arrays.copyOf(firstTimes, slot * 2);
+                lastTimes = Arrays.copyOf(lastTimes, slot * 2);
+                lastPrices = Arrays.copyOf(lastPrices, slot * 2);
+                timeWeightedPrices = Arrays.copyOf(timeWeightedPrices, slot * 2);
+            }
+            if (ohlc) {
+                opens = Arrays.copyOf(opens, slot * 2);
+                highs = Arrays.copyOf(highs, slot * 2);
+                lows = Arrays.copyOf(lows, slot * 2);
+                closes = Arrays.copyOf(closes, slot * 2);
+            }
+            if (tickCount) {
+                tickCounts = Arrays.copyOf(tickCounts, slot * 2);
+            }
+            if (volumeRange) {
+                minVolumes = Arrays.copyOf(minVolumes, slot * 2);
+                maxVolumes = Arrays.copyOf(maxVolumes, slot * 2);
+            }
+        }
+        pairIds[slot] = pairId;
+        slotByPairId[pairId] = slot + 1;
+        return slot;
+    }
+}
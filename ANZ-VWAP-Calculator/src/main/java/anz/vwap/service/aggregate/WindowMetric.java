@@ -0,0 +1,51 @@
+package anz.vwap.service.aggregate;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Analytics that can be calculated per time window and currency pair next to the VWAP, in the same pass.
+ * Only the selected metrics are accumulated; a window without any keeps no state beyond the VWAP sums.
+ */
+public enum WindowMetric {
+
+    /** Time-weighted average price; each price holds until the next tick of the pair or the end of the window. */
+    TWAP,
+    /** Open, high, low and close price. */
+    OHLC,
+    /** Number of ticks. */
+    TICK_COUNT,
+    /** Smallest and largest volume of a single tick. */
+    VOLUME_RANGE;
+
+    /**
+     * @return The name used on the command line, e.g. tick-count.
+     */
+    public String getOptionName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Parses a comma-separated list of option names, e.g. twap,ohlc.
+     * @param optionNames Names of the metrics, in any case.
+     * @return The metrics.
+     * @throws IllegalArgumentException When a name is not a metric.
+     */
+    public static Set<WindowMetric> parse(String optionNames) {
+
+        Set<WindowMetric> metrics = EnumSet.noneOf(WindowMetric.class);
+        for (String optionName : optionNames.split(",")) {
+            String name = optionName.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                metrics.add(valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_')));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown metric " + name + ", expected twap, ohlc, tick-count or volume-range");
+            }
+        }
+        return metrics;
+    }
+}
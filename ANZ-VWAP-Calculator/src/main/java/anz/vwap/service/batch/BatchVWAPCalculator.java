@@ -0,0 +1,142 @@
+package anz.vwap.service.batch;
+
+import anz.vwap.service.VWAPService;
+import anz.vwap.service.csv.model.VWAPRecordTable;
+import anz.vwap.util.Utils;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Calculates VWAP for many daily tick files at once, e.g. an archive of trading sessions.
+ * Each file is read on its own virtual thread with its own session date, so a thread waiting for
+ * the disk does not hold a carrier thread, and parsing runs on as many cores as there are files.
+ * At most the given number of files are open at a time, which bounds memory and open file handles.
+ * The results are merged in session date order and written with the date of each time window.
+ */
+public class BatchVWAPCalculator {
+
+    private final VWAPService vwapService;
+    private final int maxConcurrentFiles;
+
+    public BatchVWAPCalculator(VWAPService vwapService) {
+        this(vwapService, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param vwapService Service that calculates each file.
+     * @param maxConcurrentFiles Maximum number of files read at the same time.
+     */
+    public BatchVWAPCalculator(VWAPService vwapService, int maxConcurrentFiles) {
+        if (maxConcurrentFiles <= 0) {
+            throw new IllegalArgumentException("Number of concurrent files must be positive");
+        }
+        this.vwapService = vwapService;
+        this.maxConcurrentFiles = maxConcurrentFiles;
+    }
+
+    /**
+     * Calculates the VWAP of each file on its session date.
+     * @param timeWindowMilliseconds Length of a time window.
+     * @param dailyTickFiles Files to calculate.
+     * @return One result per file, in the order of the files.
+     * @throws Exception When a file cannot be calculated. The message names the file.
+     */
+    public List<DailyVWAP> calculate(long timeWindowMilliseconds, List<DailyTickFile> dailyTickFiles) throws Exception {
+
+        Semaphore openFiles = new Semaphore(maxConcurrentFiles);
+        List<Future<VWAPRecordTable>> futures = new ArrayList<>(dailyTickFiles.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (DailyTickFile dailyTickFile : dailyTickFiles) {
+                futures.add(executor.submit(() -> {
+                    openFiles.acquire();
+                    try {
+                        return vwapService.calculateVWAPTable(timeWindowMilliseconds, dailyTickFile.getPath().toString(),
+                                                              dailyTickFile.getSessionDate());
+                    } finally {
+                        openFiles.release();
+                    }
+                }));
+            }
+            List<DailyVWAP> results = new ArrayList<>(dailyTickFiles.size());
+            for (int i = 0; i < dailyTickFiles.size(); i++) {
+                try {
+                    results.add(new DailyVWAP(dailyTickFiles.get(i), futures.get(i).get()));
+                } catch (ExecutionException e) {
+                    futures.forEach(future -> future.cancel(true));
+                    throw new Exception("Cannot calculate VWAP for " + dailyTickFiles.get(i).getPath() + ": "
+                                        + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Writes the results of all files to one CSV file, with the date of each time window in the first column.
+     * @param csvFilePath Path to a CSV file.
+     * @param dailyVWAPs Results in the order to write them.
+     * @throws IOException When there is an error in writing records to the CSV file.
+     */
+    public void writeVWAPRecords(String csvFilePath, List<DailyVWAP> dailyVWAPs) throws IOException {
+
+        ZoneId zoneId = ZoneId.systemDefault();
+        StringBuilder vwap = new StringBuilder(32);
+        try (CSVPrinter writer = new CSVPrinter(Files.newBufferedWriter(Paths.get(csvFilePath)),
+                                                CSVFormat.DEFAULT.withHeader("DATE", "TIME WINDOW", "CURRENCY-PAIR", "VWAP"))) {
+            for (DailyVWAP dailyVWAP : dailyVWAPs) {
+                VWAPRecordTable table = dailyVWAP.getVwapRecordTable();
+                String date = null;
+                String timeWindow = null;
+                for (int row = 0; row < table.size(); row++) {
+                    if (row == 0 || table.getStartTime(row) != table.getStartTime(row - 1)
+                                 || table.getEndTime(row) != table.getEndTime(row - 1)) {
+                        date = LocalDate.ofInstant(Instant.ofEpochMilli(table.getStartTime(row)), zoneId).toString();
+                        timeWindow = table.getTimeWindow(row);
+                    }
+                    vwap.setLength(0);
+                    writer.print(date);
+                    writer.print(timeWindow);
+                    writer.print(table.getCurrencyPair(row));
+                    writer.print(Utils.appendDecimal(vwap, table.getVwap(row), 4));
+                    writer.println();
+                }
+            }
+        }
+    }
+
+    /**
+     * VWAP results of one daily tick file.
+     */
+    public static final class DailyVWAP {
+
+        private final DailyTickFile dailyTickFile;
+        private final VWAPRecordTable vwapRecordTable;
+
+        public DailyVWAP(DailyTickFile dailyTickFile, VWAPRecordTable vwapRecordTable) {
+            this.dailyTickFile = dailyTickFile;
+            this.vwapRecordTable = vwapRecordTable;
+        }
+
+        public DailyTickFile getDailyTickFile() {
+            return dailyTickFile;
+        }
+
+        public VWAPRecordTable getVwapRecordTable() {
+            return vwapRecordTable;
+        }
+    }
+}
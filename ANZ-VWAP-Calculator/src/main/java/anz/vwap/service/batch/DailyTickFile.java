@@ -0,0 +1,123 @@
+package anz.vwap.service.batch;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A tick file of one trading session, with the date its timestamps belong to.
+ */
+public final class DailyTickFile {
+
+    // e.g. ticks-2024-03-15.csv, ticks_20240315.csv
+    private static final Pattern DATE_IN_NAME = Pattern.compile("(?<!\\d)(\\d{4})[-_]?(\\d{2})[-_]?(\\d{2})(?!\\d)");
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final Path path;
+    private final LocalDate sessionDate;
+
+    public DailyTickFile(Path path, LocalDate sessionDate) {
+        this.path = path;
+        this.sessionDate = sessionDate;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public LocalDate getSessionDate() {
+        return sessionDate;
+    }
+
+    /**
+     * Finds tick files and their session dates.
+     * @param location A file, a directory whose regular files are all taken, or a glob such as data/ticks-*.csv.
+     * @param sessionDate Session date of all the files, or null to infer it from each file name.
+     * @return The files, ordered by session date and then by path.
+     * @throws Exception When no file is found or a session date cannot be inferred.
+     */
+    public static List<DailyTickFile> find(String location, LocalDate sessionDate) throws Exception {
+
+        List<DailyTickFile> dailyTickFiles = new ArrayList<>();
+        for (Path path : findPaths(location)) {
+            LocalDate date = sessionDate != null ? sessionDate : inferSessionDate(path);
+            if (date == null) {
+                throw new Exception("Session date of " + path + " is missing: the file name has no date such as 2024-03-15");
+            }
+            dailyTickFiles.add(new DailyTickFile(path, date));
+        }
+        if (dailyTickFiles.isEmpty()) {
+            throw new Exception("No tick files found in " + location);
+        }
+        dailyTickFiles.sort(Comparator.comparing(DailyTickFile::getSessionDate).thenComparing(DailyTickFile::getPath));
+        return dailyTickFiles;
+    }
+
+    /**
+     * Infers a session date from a file name holding a date as yyyy-MM-dd, yyyy_MM_dd or yyyyMMdd.
+     * @param path Tick file.
+     * @return The first valid date in the file name, or null if there is none.
+     */
+    public static LocalDate inferSessionDate(Path path) {
+
+        Matcher matcher = DATE_IN_NAME.matcher(path.getFileName().toString());
+        while (matcher.find()) {
+            try {
+                return LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                                    Integer.parseInt(matcher.group(3)));
+            } catch (DateTimeException e) {
+                // Not a date, e.g. a sequence number; look further
+            }
+        }
+        return null;
+    }
+
+    private static List<Path> findPaths(String location) throws IOException {
+
+        int globStart = indexOfGlob(location);
+        if (globStart < 0) {
+            Path path = Paths.get(location);
+            if (!Files.isDirectory(path)) {
+                return List.of(path);
+            }
+            try (Stream<Path> paths = Files.list(path)) {
+                return paths.filter(Files::isRegularFile).sorted().toList();
+            }
+        }
+        // Walk from the deepest directory without glob characters and match the rest of the pattern
+        int separator = Math.max(location.lastIndexOf('/', globStart), location.lastIndexOf('\\', globStart));
+        Path base = Paths.get(separator < 0 ? "." : location.substring(0, separator + 1));
+        String pattern = location.substring(separator + 1);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        int depth = pattern.contains("**") ? Integer.MAX_VALUE : Paths.get(pattern.replace('\\', '/')).getNameCount();
+        try (Stream<Path> paths = Files.walk(base, depth)) {
+            return paths.filter(Files::isRegularFile).filter(path -> matcher.matches(base.relativize(path))).sorted().toList();
+        }
+    }
+
+    private static int indexOfGlob(String location) {
+
+        for (int i = 0; i < location.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(location.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + sessionDate + ")";
+    }
+}
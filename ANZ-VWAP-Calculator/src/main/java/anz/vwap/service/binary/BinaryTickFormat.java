@@ -0,0 +1,53 @@
+package anz.vwap.service.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Layout of binary tick files. All numbers are little-endian.
+ * <pre>
+ * header      magic (4 bytes: 0x89 'V' 'W' 'T'), version (short), record size (short),
+ *             record count (long), dictionary offset (long), reserved (long)
+ * records     timestamp in epoch milliseconds (long), pair id (int), price (double), volume (long)
+ * dictionary  pair count (int), then per pair id in order: name length (short), name (UTF-8)
+ * </pre>
+ * The dictionary follows the records, so a file can be written in one pass while new currency pairs
+ * are still being discovered; the header gives its offset.
+ * The leading byte is not valid text, so a binary file is never mistaken for a CSV file.
+ */
+public final class BinaryTickFormat {
+
+    public static final int MAGIC = 0x54_57_56_89; // 0x89 'V' 'W' 'T' in little-endian order
+    public static final short VERSION = 1;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = Long.BYTES + Integer.BYTES + Double.BYTES + Long.BYTES;
+
+    private BinaryTickFormat() {
+    }
+
+    /**
+     * Tells whether a file starts with the binary tick magic number.
+     * @param path File to check.
+     * @return true for a binary tick file.
+     * @throws IOException When the file cannot be read.
+     */
+    public static boolean isBinaryTickFile(Path path) throws IOException {
+
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(BYTE_ORDER);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Read until the magic number is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+}
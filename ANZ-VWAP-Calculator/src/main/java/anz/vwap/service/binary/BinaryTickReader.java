@@ -0,0 +1,204 @@
+package anz.vwap.service.binary;
+
+import anz.vwap.service.TickReader;
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.metrics.VWAPMetrics;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static anz.vwap.service.binary.BinaryTickFormat.BYTE_ORDER;
+import static anz.vwap.service.binary.BinaryTickFormat.HEADER_SIZE;
+import static anz.vwap.service.binary.BinaryTickFormat.RECORD_SIZE;
+
+/**
+ * Reads ticks from a binary tick file, see {@link BinaryTickFormat}.
+ * Records are read from the file channel into a direct buffer in large blocks and decoded with
+ * absolute gets, so there is no text parsing and no allocation per tick. The pair names of the file
+ * are interned into the given dictionary up front, and pair ids are translated to it as ticks are read.
+ */
+public class BinaryTickReader implements TickReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024 / RECORD_SIZE * RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final CurrencyPairDictionary currencyPairs;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+    private final int[] pairIds;
+    private final long recordCount;
+    private long recordsRead;
+
+    private long timestamp;
+    private int pairId;
+    private double price;
+    private long volume;
+
+    private VWAPMetrics.Recorder metricsRecorder;
+
+    /**
+     * Opens a file and reads its header and dictionary.
+     * @param path Binary tick file.
+     * @param currencyPairs Dictionary to intern the file's currency pairs into.
+     * @throws IOException When the file cannot be read or is not a binary tick file.
+     */
+    public BinaryTickReader(Path path, CurrencyPairDictionary currencyPairs) throws IOException {
+
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.currencyPairs = currencyPairs;
+        try {
+            ByteBuffer header = readFully(HEADER_SIZE, 0);
+            if (header.getInt() != BinaryTickFormat.MAGIC) {
+                throw new IOException("Not a binary tick file: " + path);
+            }
+            short version = header.getShort();
+            short recordSize = header.getShort();
+            if (version != BinaryTickFormat.VERSION || recordSize != RECORD_SIZE) {
+                throw new IOException("Unsupported binary tick file version " + version + ": " + path);
+            }
+            recordCount = header.getLong();
+            long dictionaryOffset = header.getLong();
+            if (recordCount < 0 || dictionaryOffset != HEADER_SIZE + recordCount * RECORD_SIZE) {
+                throw new IOException("Binary tick file is incomplete: " + path);
+            }
+            pairIds = readDictionary(dictionaryOffset);
+            channel.position(HEADER_SIZE);
+            buffer.limit(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean next() throws Exception {
+
+        if (recordsRead == recordCount) {
+            return false;
+        }
+        if (buffer.remaining() < RECORD_SIZE) {
+            fill();
+        }
+        int position = buffer.position();
+        timestamp = buffer.getLong(position);
+        int filePairId = buffer.getInt(position + 8);
+        price = buffer.getDouble(position + 12);
+        volume = buffer.getLong(position + 20);
+        buffer.position(position + RECORD_SIZE);
+        if (filePairId < 0 || filePairId >= pairIds.length) {
+            if (metricsRecorder != null) {
+                metricsRecorder.onRejectedRow();
+            }
+            throw new Exception("Pair id " + filePairId + " is not valid");
+        }
+        pairId = pairIds[filePairId];
+        recordsRead++;
+        if (metricsRecorder != null) {
+            metricsRecorder.onTick(pairId);
+        }
+        return true;
+    }
+
+    /**
+     * Counts the ticks that are read. The counts are published when the reader is closed.
+     * @param metricsRecorder Recorder for this input, or null to record nothing.
+     */
+    public void setMetricsRecorder(VWAPMetrics.Recorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public int getPairId() {
+        return pairId;
+    }
+
+    @Override
+    public double getPrice() {
+        return price;
+    }
+
+    @Override
+    public long getVolume() {
+        return volume;
+    }
+
+    @Override
+    public CurrencyPairDictionary getCurrencyPairs() {
+        return currencyPairs;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (metricsRecorder != null) {
+            metricsRecorder.publish();
+        }
+        channel.close();
+    }
+
+    private void fill() throws IOException {
+
+        buffer.compact();
+        long bytesLeft = (recordCount - recordsRead) * RECORD_SIZE - buffer.position();
+        if (bytesLeft < buffer.remaining()) {
+            buffer.limit(buffer.position() + (int) bytesLeft);
+        }
+        while (buffer.position() < RECORD_SIZE && buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Binary tick file ends within a record");
+            }
+        }
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // Fill the buffer with what is available
+        }
+        buffer.flip();
+    }
+
+    private int[] readDictionary(long offset) throws IOException {
+
+        long size = channel.size() - offset;
+        if (size < Integer.BYTES || size > Integer.MAX_VALUE) {
+            throw new IOException("Binary tick file has no valid dictionary");
+        }
+        ByteBuffer dictionary = readFully((int) size, offset);
+        int pairCount = dictionary.getInt();
+        if (pairCount < 0 || pairCount > size / Short.BYTES) {
+            throw new IOException("Binary tick file has no valid dictionary");
+        }
+        int[] dictionaryPairIds = new int[pairCount];
+        try {
+            for (int i = 0; i < pairCount; i++) {
+                byte[] name = new byte[dictionary.getShort()];
+                dictionary.get(name);
+                dictionaryPairIds[i] = currencyPairs.intern(new String(name, StandardCharsets.UTF_8));
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Binary tick file has no valid dictionary", e);
+        }
+        return dictionaryPairIds;
+    }
+
+    private ByteBuffer readFully(int size, long position) throws IOException {
+
+        ByteBuffer target = ByteBuffer.allocate(size).order(BYTE_ORDER);
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new EOFException("Binary tick file is truncated");
+            }
+        }
+        return target.flip();
+    }
+}
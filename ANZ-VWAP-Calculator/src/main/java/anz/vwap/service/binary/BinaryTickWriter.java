@@ -0,0 +1,116 @@
+package anz.vwap.service.binary;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static anz.vwap.service.binary.BinaryTickFormat.BYTE_ORDER;
+import static anz.vwap.service.binary.BinaryTickFormat.HEADER_SIZE;
+import static anz.vwap.service.binary.BinaryTickFormat.RECORD_SIZE;
+
+/**
+ * Writes ticks to a binary tick file, see {@link BinaryTickFormat}.
+ * Records are collected in a direct buffer and written to the file channel in large blocks.
+ * The dictionary and the header are written when the writer is closed, so the file is complete only then.
+ */
+public class BinaryTickWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024 / RECORD_SIZE * RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final CurrencyPairDictionary currencyPairs;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+    private long recordCount;
+
+    /**
+     * @param path File to write. An existing file is replaced.
+     * @param currencyPairs Dictionary that the pair ids of the written ticks belong to.
+     * @throws IOException When the file cannot be created.
+     */
+    public BinaryTickWriter(Path path, CurrencyPairDictionary currencyPairs) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.currencyPairs = currencyPairs;
+        channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * Appends a tick.
+     * @param timestamp Tick time in milliseconds.
+     * @param pairId Pair id from the writer's dictionary.
+     * @param price Traded price.
+     * @param volume Traded volume.
+     * @throws IOException When the file cannot be written.
+     */
+    public void write(long timestamp, int pairId, double price, long volume) throws IOException {
+
+        if (buffer.remaining() < RECORD_SIZE) {
+            drain(buffer);
+        }
+        buffer.putLong(timestamp).putInt(pairId).putDouble(price).putLong(volume);
+        recordCount++;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Writes the remaining records, the dictionary and the header, and closes the file.
+     * @throws IOException When the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+
+        try (channel) {
+            drain(buffer);
+            long dictionaryOffset = channel.position();
+            drain(encodeDictionary());
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+            header.putInt(BinaryTickFormat.MAGIC)
+                  .putShort(BinaryTickFormat.VERSION)
+                  .putShort((short) RECORD_SIZE)
+                  .putLong(recordCount)
+                  .putLong(dictionaryOffset)
+                  .putLong(0)
+                  .flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+        }
+    }
+
+    private ByteBuffer encodeDictionary() {
+
+        byte[][] names = new byte[currencyPairs.size()][];
+        int size = Integer.BYTES;
+        for (int pairId = 0; pairId < names.length; pairId++) {
+            names[pairId] = currencyPairs.getName(pairId).getBytes(StandardCharsets.UTF_8);
+            if (names[pairId].length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Currency pair name is too long: " + currencyPairs.getName(pairId));
+            }
+            size += Short.BYTES + names[pairId].length;
+        }
+        ByteBuffer dictionary = ByteBuffer.allocate(size).order(BYTE_ORDER);
+        dictionary.putInt(names.length);
+        for (byte[] name : names) {
+            dictionary.putShort((short) name.length).put(name);
+        }
+        return dictionary;
+    }
+
+    private void drain(ByteBuffer source) throws IOException {
+
+        source.flip();
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+        source.clear();
+    }
+}
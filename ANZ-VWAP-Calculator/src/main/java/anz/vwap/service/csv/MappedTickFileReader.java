@@ -0,0 +1,186 @@
+package anz.vwap.service.csv;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.TickSegments;
+import anz.vwap.service.engine.VWAPEngine;
+import anz.vwap.service.metrics.VWAPMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a large tick file in parallel.
+ * The file is split into line-aligned chunks which are memory-mapped and parsed on a fork-join pool.
+ * Each worker reduces its chunk to {@link TickSegments}, i.e. one price-volume and volume sum per timestamp and
+ * pair, and the segments are then replayed into the engine in file order.
+ * Sums of ticks that share a timestamp are added up before they reach the window, so the cumulative price-volume
+ * may differ from the sequential result in the last bits of the double.
+ * At most one chunk more than the parallelism of the pool is reduced ahead of the replay.
+ * Ticks are replayed as price-volume sums, so they do not count for any analytics selected on the engine.
+ */
+public class MappedTickFileReader {
+
+    public static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private static final int BOUNDARY_SCAN_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+    private VWAPMetrics metrics;
+
+    public MappedTickFileReader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool Pool to parse chunks on.
+     * @param chunkSize Approximate size of a chunk in bytes. Chunks are extended to the end of a line.
+     */
+    public MappedTickFileReader(ForkJoinPool pool, long chunkSize) {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + Integer.MAX_VALUE + " bytes");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Counts the parsed ticks and rejected rows of each chunk with a recorder of its own, published when the
+     * chunk has been parsed.
+     * @param metrics Meters to record in, or null to record nothing.
+     */
+    public void setMetrics(VWAPMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Parses a CSV tick file and feeds its ticks into an engine.
+     * @param csvFilePath Input file.
+     * @param engine Engine to feed. It is not flushed.
+     * @throws Exception When the file cannot be read or has an invalid row.
+     */
+    public void read(Path csvFilePath, VWAPEngine engine) throws Exception {
+
+        try (FileChannel fileChannel = FileChannel.open(csvFilePath, StandardOpenOption.READ)) {
+            List<Long> boundaries = findChunkBoundaries(fileChannel);
+            if (boundaries.size() < 2) {
+                return;
+            }
+            TickParser headerParser = new TickParser(mapChunk(fileChannel, boundaries.get(0), boundaries.get(1)),
+                                                     new CurrencyPairDictionary());
+            Deque<Future<TickSegments>> chunks = new ArrayDeque<>();
+            chunks.add(pool.submit(() -> parseChunk(headerParser)));
+            int maxPendingChunks = pool.getParallelism() + 1;
+            int nextChunk = 1;
+            try {
+                while (!chunks.isEmpty()) {
+                    for (; nextChunk < boundaries.size() - 1 && chunks.size() < maxPendingChunks; nextChunk++) {
+                        long start = boundaries.get(nextChunk);
+                        long end = boundaries.get(nextChunk + 1);
+                        chunks.add(pool.submit(() -> parseChunk(new TickParser(mapChunk(fileChannel, start, end),
+                                                                               new CurrencyPairDictionary(),
+                                                                               headerParser))));
+                    }
+                    chunks.remove().get().replay(engine);
+                }
+            } catch (ExecutionException e) {
+                chunks.forEach(chunk -> chunk.cancel(false));
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+    }
+
+    private TickSegments parseChunk(TickParser tickParser) throws Exception {
+
+        if (metrics != null) {
+            tickParser.setMetricsRecorder(metrics.newRecorder(tickParser.getCurrencyPairs()));
+        }
+        try (tickParser) {
+            TickSegments segments = new TickSegments(tickParser.getCurrencyPairs());
+            while (tickParser.next()) {
+                segments.add(tickParser.getPairId(), tickParser.getTimestamp(), tickParser.getPrice(), tickParser.getVolume());
+            }
+            segments.finish();
+            return segments;
+        }
+    }
+
+    private List<Long> findChunkBoundaries(FileChannel fileChannel) throws IOException {
+
+        long size = fileChannel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer scanBuffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long boundary = 0;
+        while (boundary < size) {
+            boundary = Math.min(size, nextLineStart(fileChannel, boundary + chunkSize, size, scanBuffer));
+            boundaries.add(boundary);
+        }
+        return boundaries;
+    }
+
+    private long nextLineStart(FileChannel fileChannel, long position, long size, ByteBuffer scanBuffer) throws IOException {
+
+        while (position < size) {
+            scanBuffer.clear();
+            int read = fileChannel.read(scanBuffer, position);
+            for (int i = 0; i < read; i++) {
+                if (scanBuffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += Math.max(read, 0);
+        }
+        return size;
+    }
+
+    private static ReadableByteChannel mapChunk(FileChannel fileChannel, long start, long end) throws IOException {
+        return new ByteBufferChannel(fileChannel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+    }
+
+    /**
+     * Presents a mapped chunk as a channel for {@link TickParser}.
+     */
+    private static class ByteBufferChannel implements ReadableByteChannel {
+
+        private final ByteBuffer source;
+        private boolean open = true;
+
+        ByteBufferChannel(ByteBuffer source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) {
+            if (!source.hasRemaining()) {
+                return -1;
+            }
+            int length = Math.min(source.remaining(), destination.remaining());
+            destination.put(destination.position(), source, source.position(), length);
+            destination.position(destination.position() + length);
+            source.position(source.position() + length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
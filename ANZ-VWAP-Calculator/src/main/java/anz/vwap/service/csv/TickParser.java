@@ -0,0 +1,542 @@
+package anz.vwap.service.csv;
+
+import anz.vwap.service.TickReader;
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.FixedPoint;
+import anz.vwap.service.metrics.VWAPMetrics;
+import anz.vwap.util.TimestampConverter;
+import anz.vwap.util.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses tick rows of a CSV input file straight from bytes into primitives.
+ * Rows are read into a reusable buffer and decoded in place, so that once the buffer and the
+ * currency pair dictionary have warmed up no objects are created per row. Timestamps are converted
+ * on the session date of the given {@link TimestampConverter}, today by default. With midnight rollover,
+ * a session that runs past midnight continues on the next day.
+ * The first non-empty line is the header. Header names are matched ignoring case and all values are
+ * trimmed, as the commons-csv based reader did. A row with more than four fields holds a volume
+ * that was split by its thousands separators, e.g. 100,000, and the fields from the fourth onwards
+ * are joined back into one volume.
+ * Quoted fields are supported, line breaks inside them are not.
+ * In follow mode the parser reads a file that is still being appended to: a last line without its line
+ * break is held back until the rest of it has been written.
+ * Rows can be filtered while they are parsed: a row whose currency pair is not in the pair filter is
+ * rejected after looking up the pair field, and a row outside the time range after its timestamp. Only the
+ * timestamp of a rejected row is parsed, so that windows still start and end where they would without the
+ * filter; its pair id is {@link #SKIPPED_PAIR}.
+ */
+public class TickParser implements TickReader {
+
+    public static final String TIMESTAMP = "TIMESTAMP";
+    public static final String CURRENCY_PAIR = "CURRENCY-PAIR";
+    public static final String PRICE = "PRICE";
+    public static final String VOLUME = "VOLUME";
+    /** Pair id of a row rejected by a filter. */
+    public static final int SKIPPED_PAIR = -1;
+
+    private static final int MAX_FIELD_LEN = 4;
+    private static final int SPLIT_VOLUME_FIELD = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long HALF_DAY = 12 * 60 * 60 * 1000;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ReadableByteChannel channel;
+    private final CurrencyPairDictionary currencyPairs;
+    private TimestampConverter timestampConverter;
+    private boolean midnightRollover;
+    private boolean follow;
+    private CurrencyPairDictionary pairFilter;
+    private long fromTime = Long.MIN_VALUE;
+    private long toTime = Long.MAX_VALUE;
+    private long latestTimestamp = Long.MIN_VALUE;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private int position;
+    private long bufferOffset; // offset in the input of the start of the buffer
+    private int limit;
+    private boolean endOfInput;
+    private int lineStart;
+    private int lineEnd;
+
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private int fieldCount;
+    private byte[] volumeBytes = new byte[32];
+
+    private List<String> headerNames = new ArrayList<>();
+    private int timestampColumn = -1;
+    private int currencyPairColumn = -1;
+    private int priceColumn = -1;
+    private int volumeColumn = -1;
+
+    private long timestamp;
+    private int pairId;
+    private double price;
+    private long volume;
+
+    private VWAPMetrics.Recorder metricsRecorder;
+
+    /**
+     * Creates a parser and reads the header row.
+     * @param channel Input holding the CSV file. It is closed with the parser.
+     * @param currencyPairs Dictionary to intern currency pairs into.
+     * @throws IOException When the header cannot be read.
+     */
+    public TickParser(ReadableByteChannel channel, CurrencyPairDictionary currencyPairs) throws IOException {
+        this(channel, currencyPairs, Utils.getTimestampConverter());
+    }
+
+    /**
+     * Creates a parser and reads the header row.
+     * @param channel Input holding the CSV file. It is closed with the parser.
+     * @param currencyPairs Dictionary to intern currency pairs into.
+     * @param timestampConverter Converts timestamps on the session date of the file.
+     * @throws IOException When the header cannot be read.
+     */
+    public TickParser(ReadableByteChannel channel, CurrencyPairDictionary currencyPairs, TimestampConverter timestampConverter)
+            throws IOException {
+        this.channel = channel;
+        this.currencyPairs = currencyPairs;
+        this.timestampConverter = timestampConverter;
+        readHeader();
+    }
+
+    /**
+     * Creates a parser for rows that continue a file whose header has been read by another parser,
+     * e.g. a chunk in the middle of the file.
+     * @param channel Input holding tick rows only. It is closed with the parser.
+     * @param currencyPairs Dictionary to intern currency pairs into.
+     * @param headerParser Parser that read the header of the file.
+     */
+    public TickParser(ReadableByteChannel channel, CurrencyPairDictionary currencyPairs, TickParser headerParser) {
+        this.channel = channel;
+        this.currencyPairs = currencyPairs;
+        this.timestampConverter = headerParser.timestampConverter;
+        this.headerNames = headerParser.headerNames;
+        this.timestampColumn = headerParser.timestampColumn;
+        this.currencyPairColumn = headerParser.currencyPairColumn;
+        this.priceColumn = headerParser.priceColumn;
+        this.volumeColumn = headerParser.volumeColumn;
+    }
+
+    /**
+     * Moves to the next tick row.
+     * @return true when a row was parsed, false at the end of the input.
+     * @throws Exception When the row has an invalid timestamp, number or too few values.
+     */
+    public boolean next() throws Exception {
+
+        while (readLine()) {
+            if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd == lineStart) {
+                continue;
+            }
+            if (metricsRecorder == null) {
+                splitFields();
+                parseRow(false);
+                return true;
+            }
+            boolean sampled = metricsRecorder.sample();
+            long start = sampled ? System.nanoTime() : 0;
+            splitFields();
+            try {
+                parseRow(sampled);
+            } catch (Exception e) {
+                metricsRecorder.onRejectedRow();
+                throw e;
+            }
+            if (sampled) {
+                metricsRecorder.recordParse(System.nanoTime() - start);
+            }
+            if (pairId != SKIPPED_PAIR) {
+                metricsRecorder.onTick(pairId);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts the parsed ticks and rejected rows, and times a sample of the rows.
+     * The counts are published when the parser is closed.
+     * @param metricsRecorder Recorder for this input, or null to record nothing.
+     */
+    public void setMetricsRecorder(VWAPMetrics.Recorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    /**
+     * Moves timestamps to the next day when they fall more than 12 hours before the latest timestamp,
+     * so that a session running past midnight keeps increasing. Only meaningful when the whole file is
+     * read by this parser.
+     * @param midnightRollover Whether to roll over at midnight.
+     */
+    public void setMidnightRollover(boolean midnightRollover) {
+        this.midnightRollover = midnightRollover;
+    }
+
+    /**
+     * Treats the end of the input as the current end of a file that is still growing. A last line
+     * without its line break is not returned, and once {@link #next()} has returned false it can be
+     * called again to read what has been appended since.
+     * @param follow Whether to follow the input.
+     */
+    public void setFollow(boolean follow) {
+        this.follow = follow;
+    }
+
+    /**
+     * Rejects rows of currency pairs that are not in a filter without interning their pairs or parsing their
+     * prices and volumes.
+     * @param pairFilter Currency pairs to read, or null to read all.
+     */
+    public void setPairFilter(CurrencyPairDictionary pairFilter) {
+        this.pairFilter = pairFilter;
+    }
+
+    /**
+     * Rejects rows outside a time range without parsing their prices and volumes or interning their pairs.
+     * @param fromTime Earliest timestamp to read in milliseconds, inclusive.
+     * @param toTime Latest timestamp to read in milliseconds, exclusive.
+     */
+    public void setTimeRange(long fromTime, long toTime) {
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+    }
+
+    /**
+     * @return The number of bytes of the input up to the end of the last line read, including its
+     * line break. Reading the input again from this offset continues with the next line.
+     */
+    public long getOffset() {
+        return bufferOffset + position;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getPairId() {
+        return pairId;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return The price in {@link FixedPoint} units, converted exactly from the text of the row.
+     */
+    @Override
+    public long getPriceUnits() {
+        long priceUnits = FixedPoint.parsePriceUnits(buffer, fieldStarts[priceColumn], fieldEnds[priceColumn]);
+        return priceUnits == FixedPoint.INVALID ? FixedPoint.toPriceUnits(price) : priceUnits;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    public CurrencyPairDictionary getCurrencyPairs() {
+        return currencyPairs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (metricsRecorder != null) {
+            metricsRecorder.publish();
+        }
+        channel.close();
+    }
+
+    private void readHeader() throws IOException {
+
+        while (readLine()) {
+            if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd == lineStart) {
+                continue;
+            }
+            splitFields();
+            for (int i = 0; i < fieldCount; i++) {
+                String name = new String(buffer, fieldStarts[i], fieldEnds[i] - fieldStarts[i], StandardCharsets.UTF_8);
+                headerNames.add(name);
+                if (TIMESTAMP.equalsIgnoreCase(name)) {
+                    timestampColumn = i;
+                } else if (CURRENCY_PAIR.equalsIgnoreCase(name)) {
+                    currencyPairColumn = i;
+                } else if (PRICE.equalsIgnoreCase(name)) {
+                    priceColumn = i;
+                } else if (VOLUME.equalsIgnoreCase(name)) {
+                    volumeColumn = i;
+                }
+            }
+            return;
+        }
+    }
+
+    private void parseRow(boolean sampled) throws Exception {
+
+        int column;
+        if (pairFilter != null) {
+            column = checkColumn(currencyPairColumn, CURRENCY_PAIR);
+            int filterPairId = pairFilter.find(buffer, fieldStarts[column], fieldEnds[column] - fieldStarts[column]);
+            if (filterPairId == CurrencyPairDictionary.NOT_FOUND) {
+                column = checkColumn(timestampColumn, TIMESTAMP);
+                timestamp = parseTimestamp(fieldStarts[column], fieldEnds[column]);
+                skipRow();
+                return;
+            }
+        }
+        column = checkColumn(timestampColumn, TIMESTAMP);
+        if (sampled) {
+            long start = System.nanoTime();
+            timestamp = parseTimestamp(fieldStarts[column], fieldEnds[column]);
+            metricsRecorder.recordTimestampConversion(System.nanoTime() - start);
+        } else {
+            timestamp = parseTimestamp(fieldStarts[column], fieldEnds[column]);
+        }
+        if (timestamp < fromTime || timestamp >= toTime) {
+            skipRow();
+            return;
+        }
+        volume = parseVolume();
+        column = checkColumn(priceColumn, PRICE);
+        price = parseDouble(buffer, fieldStarts[column], fieldEnds[column]);
+        column = checkColumn(currencyPairColumn, CURRENCY_PAIR);
+        pairId = currencyPairs.intern(buffer, fieldStarts[column], fieldEnds[column] - fieldStarts[column]);
+    }
+
+    private void skipRow() {
+        pairId = SKIPPED_PAIR;
+        price = 0;
+        volume = 0;
+    }
+
+    private long parseTimestamp(int start, int end) throws Exception {
+
+        long value = timestampConverter.toEpochMillis(buffer, start, end);
+        if (value == TimestampConverter.INVALID) {
+            throw new Exception("Timestamp is not valid");
+        }
+        if (midnightRollover) {
+            if (value + HALF_DAY < latestTimestamp) {
+                // The session has run past midnight
+                timestampConverter = timestampConverter.nextDay();
+                value = timestampConverter.toEpochMillis(buffer, start, end);
+            }
+            latestTimestamp = Math.max(latestTimestamp, value);
+        }
+        return value;
+    }
+
+    private long parseVolume() {
+
+        if (fieldCount <= MAX_FIELD_LEN) {
+            int column = checkColumn(volumeColumn, VOLUME);
+            return parseVolume(buffer, fieldStarts[column], fieldEnds[column]);
+        }
+        // The volume was split by its thousands separators
+        int length = 0;
+        for (int i = SPLIT_VOLUME_FIELD; i < fieldCount; i++) {
+            int fieldLength = fieldEnds[i] - fieldStarts[i];
+            if (length + fieldLength > volumeBytes.length) {
+                volumeBytes = Arrays.copyOf(volumeBytes, Math.max(volumeBytes.length * 2, length + fieldLength));
+            }
+            System.arraycopy(buffer, fieldStarts[i], volumeBytes, length, fieldLength);
+            length += fieldLength;
+        }
+        return parseVolume(volumeBytes, 0, length);
+    }
+
+    /**
+     * Parses a volume exactly when it is a whole number of up to 18 digits, and truncates it through
+     * {@link #parseDouble(byte[], int, int)} otherwise.
+     */
+    private static long parseVolume(byte[] bytes, int start, int end) {
+
+        if (start == end || end - start > 18) {
+            return (long) parseDouble(bytes, start, end);
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b < '0' || b > '9') {
+                return (long) parseDouble(bytes, start, end);
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private int checkColumn(int column, String name) {
+        if (column < 0) {
+            throw new IllegalArgumentException(String.format("Mapping for %s not found, expected one of %s", name, headerNames));
+        }
+        if (column >= fieldCount) {
+            throw new IllegalArgumentException(String.format("Index for header '%s' is %d but CSVRecord only has %d values!",
+                                                             name, column, fieldCount));
+        }
+        return column;
+    }
+
+    /**
+     * Parses a decimal number the way {@link Double#parseDouble(String)} does.
+     * Plain decimals with up to 15 significant digits are converted exactly without allocating;
+     * anything else, e.g. exponents, falls back to {@link Double#parseDouble(String)}.
+     */
+    static double parseDouble(byte[] bytes, int start, int end) {
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= (1L << 53) / 10) {
+                    return parseDoubleSlow(bytes, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                hasDigits = true;
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return parseDoubleSlow(bytes, start, end);
+            }
+        }
+        if (!hasDigits || -exponent >= POWERS_OF_TEN.length) {
+            return parseDoubleSlow(bytes, start, end);
+        }
+        double value = exponent == 0 ? mantissa : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private static double parseDoubleSlow(byte[] bytes, int start, int end) {
+        return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    private boolean readLine() throws IOException {
+
+        int scanFrom = position;
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    lineStart = position;
+                    lineEnd = i;
+                    position = i + 1;
+                    return true;
+                }
+            }
+            if (endOfInput) {
+                if (follow) {
+                    // Wait for the rest of the file; the next call reads again
+                    endOfInput = false;
+                    return false;
+                }
+                if (position < limit) {
+                    lineStart = position;
+                    lineEnd = limit;
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            scanFrom = limit - position;
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            bufferOffset += position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            byteBuffer = ByteBuffer.wrap(buffer);
+        }
+        byteBuffer.limit(buffer.length).position(limit);
+        int read = channel.read(byteBuffer);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private void splitFields() {
+
+        fieldCount = 0;
+        int i = lineStart;
+        while (true) {
+            int start = i;
+            int end;
+            if (i < lineEnd && buffer[i] == '"') {
+                int quote = i + 1;
+                while (quote < lineEnd && (buffer[quote] != '"' || (quote + 1 < lineEnd && buffer[quote + 1] == '"'))) {
+                    quote += buffer[quote] == '"' ? 2 : 1;
+                }
+                start = i + 1;
+                end = Math.min(quote, lineEnd);
+                i = quote;
+                while (i < lineEnd && buffer[i] != ',') {
+                    i++;
+                }
+            } else {
+                while (i < lineEnd && buffer[i] != ',') {
+                    i++;
+                }
+                end = i;
+            }
+            addField(start, end);
+            if (i >= lineEnd) {
+                return;
+            }
+            i++;
+        }
+    }
+
+    private void addField(int start, int end) {
+
+        while (start < end && (buffer[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+}
@@ -6,9 +6,13 @@ import anz.vwap.util.Utils;
 public class VWAPRecord {
 
     String timeWindow;
+    long startTime;
+    long endTime;
     String currencyPair;
     double cumulativePriceVolume;
     long cumulativeVolume;
+    double exactVwap = Double.NaN;
+    WindowAnalytics analytics;
 
     public VWAPRecord(String timeWindow, String currencyPair, double cumulativePriceVolume, long cumulativeVolume) {
         this.timeWindow = timeWindow;
@@ -17,7 +21,24 @@ public class VWAPRecord {
         this.cumulativeVolume = cumulativeVolume;
     }
 
+    /**
+     * Creates a record whose time window is formatted only when it is first read.
+     * @param startTime Start of the time window in milliseconds.
+     * @param endTime End of the time window in milliseconds.
+     * @param currencyPair Currency pair, e.g. AUD/USD.
+     * @param cumulativePriceVolume Sum of price multiplied by volume.
+     * @param cumulativeVolume Sum of traded volume.
+     */
+    public VWAPRecord(long startTime, long endTime, String currencyPair, double cumulativePriceVolume, long cumulativeVolume) {
+        this(null, currencyPair, cumulativePriceVolume, cumulativeVolume);
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
     public String getTimeWindow() {
+        if (timeWindow == null && startTime < endTime) {
+            timeWindow = Utils.createTimeWindow(startTime, endTime);
+        }
         return timeWindow;
     }
 
@@ -25,6 +46,14 @@ public class VWAPRecord {
         this.timeWindow = timeWindow;
     }
 
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
     public String getCurrencyPair() {
         return currencyPair;
     }
@@ -51,8 +80,37 @@ public class VWAPRecord {
         return this;
     }
 
+    /**
+     * Sets a VWAP calculated exactly from fixed-point sums, which {@link #getVwap()} then returns.
+     * @param exactVwap VWAP rounded to 4 decimal places.
+     */
+    public void setExactVwap(double exactVwap) {
+        this.exactVwap = exactVwap;
+    }
+
+    /**
+     * @return true when {@link #getVwap()} returns a VWAP set with {@link #setExactVwap(double)}.
+     */
+    public boolean hasExactVwap() {
+        return !Double.isNaN(exactVwap);
+    }
+
+    /**
+     * @return The analytics selected for the calculation, or null if none were.
+     */
+    public WindowAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    public void setAnalytics(WindowAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
     public double getVwap() {
 
+        if (!Double.isNaN(exactVwap)) {
+            return exactVwap;
+        }
         double result = cumulativePriceVolume / cumulativeVolume;
         return Utils.roundToDecimalPlaces(result, 4);
     }
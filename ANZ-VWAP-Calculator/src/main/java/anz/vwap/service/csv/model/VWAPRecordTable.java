@@ -0,0 +1,150 @@
+package anz.vwap.service.csv.model;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.WindowAggregator;
+import anz.vwap.util.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds VWAP results in columns of primitives rather than as {@link VWAPRecord} objects.
+ * A row is a time window and currency pair; the window bounds, pair id and sums are kept in parallel
+ * arrays, so a large result set costs a few dozen bytes per row and no time window strings.
+ * Time windows and VWAPs are formatted only when the rows are written out.
+ */
+public class VWAPRecordTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final CurrencyPairDictionary currencyPairs;
+    private long[] startTimes = new long[INITIAL_CAPACITY];
+    private long[] endTimes = new long[INITIAL_CAPACITY];
+    private int[] pairIds = new int[INITIAL_CAPACITY];
+    private double[] priceVolumes = new double[INITIAL_CAPACITY];
+    private long[] volumes = new long[INITIAL_CAPACITY];
+    private int size;
+
+    public VWAPRecordTable() {
+        this(new CurrencyPairDictionary());
+    }
+
+    /**
+     * @param currencyPairs Dictionary that the pair ids of the rows belong to.
+     */
+    public VWAPRecordTable(CurrencyPairDictionary currencyPairs) {
+        this.currencyPairs = currencyPairs;
+    }
+
+    /**
+     * Appends a row.
+     * @param startTime Start of the time window in milliseconds.
+     * @param endTime End of the time window in milliseconds.
+     * @param pairId Pair id from {@link #getCurrencyPairs()}.
+     * @param priceVolume Sum of price multiplied by volume.
+     * @param volume Sum of traded volume.
+     */
+    public void add(long startTime, long endTime, int pairId, double priceVolume, long volume) {
+
+        if (size == startTimes.length) {
+            grow(size * 2);
+        }
+        startTimes[size] = startTime;
+        endTimes[size] = endTime;
+        pairIds[size] = pairId;
+        priceVolumes[size] = priceVolume;
+        volumes[size] = volume;
+        size++;
+    }
+
+    /**
+     * Appends one row per currency pair of a closed window, in the order of its slots.
+     * Can be passed to a {@link anz.vwap.service.engine.VWAPEngine} as its window listener.
+     * @param startTime Start of the time window in milliseconds.
+     * @param endTime End of the time window in milliseconds.
+     * @param window Sums of the window, with pair ids from {@link #getCurrencyPairs()}.
+     */
+    public void addWindow(long startTime, long endTime, WindowAggregator window) {
+
+        if (size + window.size() > startTimes.length) {
+            grow(Math.max(startTimes.length * 2, size + window.size()));
+        }
+        for (int slot = 0; slot < window.size(); slot++) {
+            add(startTime, endTime, window.getPairId(slot), window.getCumulativePriceVolume(slot), window.getCumulativeVolume(slot));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CurrencyPairDictionary getCurrencyPairs() {
+        return currencyPairs;
+    }
+
+    public long getStartTime(int row) {
+        return startTimes[row];
+    }
+
+    public long getEndTime(int row) {
+        return endTimes[row];
+    }
+
+    public int getPairId(int row) {
+        return pairIds[row];
+    }
+
+    public String getCurrencyPair(int row) {
+        return currencyPairs.getName(pairIds[row]);
+    }
+
+    public double getCumulativePriceVolume(int row) {
+        return priceVolumes[row];
+    }
+
+    public long getCumulativeVolume(int row) {
+        return volumes[row];
+    }
+
+    /**
+     * @return The VWAP of a row, unrounded.
+     */
+    public double getVwap(int row) {
+        return priceVolumes[row] / volumes[row];
+    }
+
+    /**
+     * @return The time window of a row formatted for display, e.g. 09:00 AM - 10:00 AM.
+     */
+    public String getTimeWindow(int row) {
+        return Utils.createTimeWindow(startTimes[row], endTimes[row]);
+    }
+
+    /**
+     * @return A row as a {@link VWAPRecord}.
+     */
+    public VWAPRecord getVWAPRecord(int row) {
+        return new VWAPRecord(startTimes[row], endTimes[row], getCurrencyPair(row), priceVolumes[row], volumes[row]);
+    }
+
+    /**
+     * @return All rows as VWAP records, in row order.
+     */
+    public List<VWAPRecord> toVWAPRecords() {
+
+        List<VWAPRecord> vwapRecords = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            vwapRecords.add(getVWAPRecord(row));
+        }
+        return vwapRecords;
+    }
+
+    private void grow(int capacity) {
+        startTimes = Arrays.copyOf(startTimes, capacity);
+        endTimes = Arrays.copyOf(endTimes, capacity);
+        pairIds = Arrays.copyOf(pairIds, capacity);
+        priceVolumes = Arrays.copyOf(priceVolumes, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+    }
+}
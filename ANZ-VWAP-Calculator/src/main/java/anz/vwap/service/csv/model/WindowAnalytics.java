@@ -0,0 +1,95 @@
+package anz.vwap.service.csv.model;
+
+import anz.vwap.service.aggregate.WindowAggregator;
+import anz.vwap.service.aggregate.WindowMetric;
+
+import java.util.Set;
+
+/**
+ * Analytics of one currency pair in one time window besides its VWAP, copied from a {@link WindowAggregator}
+ * when the window closes. Prices of metrics that were not selected are NaN and their counts 0.
+ */
+public final class WindowAnalytics {
+
+    private final Set<WindowMetric> metrics;
+    private final double twap;
+    private final double open;
+    private final double high;
+    private final double low;
+    private final double close;
+    private final long tickCount;
+    private final long minVolume;
+    private final long maxVolume;
+
+    private WindowAnalytics(Set<WindowMetric> metrics, double twap, double open, double high, double low, double close,
+                            long tickCount, long minVolume, long maxVolume) {
+        this.metrics = metrics;
+        this.twap = twap;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.tickCount = tickCount;
+        this.minVolume = minVolume;
+        this.maxVolume = maxVolume;
+    }
+
+    /**
+     * Copies the analytics of a currency pair from a closed window.
+     * @param window Sums of the window.
+     * @param slot Slot of the currency pair.
+     * @param endTime End of the window in milliseconds.
+     * @return The analytics.
+     */
+    public static WindowAnalytics of(WindowAggregator window, int slot, long endTime) {
+
+        Set<WindowMetric> metrics = window.getMetrics();
+        boolean ohlc = metrics.contains(WindowMetric.OHLC);
+        boolean volumeRange = metrics.contains(WindowMetric.VOLUME_RANGE);
+        return new WindowAnalytics(metrics,
+                                   metrics.contains(WindowMetric.TWAP) ? window.getTwap(slot, endTime) : Double.NaN,
+                                   ohlc ? window.getOpen(slot) : Double.NaN,
+                                   ohlc ? window.getHigh(slot) : Double.NaN,
+                                   ohlc ? window.getLow(slot) : Double.NaN,
+                                   ohlc ? window.getClose(slot) : Double.NaN,
+                                   metrics.contains(WindowMetric.TICK_COUNT) ? window.getTickCount(slot) : 0,
+                                   volumeRange ? window.getMinVolume(slot) : 0,
+                                   volumeRange ? window.getMaxVolume(slot) : 0);
+    }
+
+    public Set<WindowMetric> getMetrics() {
+        return metrics;
+    }
+
+    public double getTwap() {
+        return twap;
+    }
+
+    public double getOpen() {
+        return open;
+    }
+
+    public double getHigh() {
+        return high;
+    }
+
+    public double getLow() {
+        return low;
+    }
+
+    public double getClose() {
+        return close;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public long getMinVolume() {
+        return minVolume;
+    }
+
+    public long getMaxVolume() {
+        return maxVolume;
+    }
+}
@@ -0,0 +1,165 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.WindowAggregator;
+import anz.vwap.service.csv.model.VWAPRecord;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Calculates VWAP over tumbling event-time windows from ticks that may arrive slightly out of order.
+ * Windows lie on a fixed grid anchored at the first tick, and every tick is added to the window its
+ * own timestamp falls into, whatever order it arrives in. The watermark trails the latest timestamp
+ * seen by the allowed lateness; a window is emitted once the watermark reaches its end, in window
+ * order, with one {@link VWAPRecord} per currency pair in the order in which the pairs first arrived.
+ * Ticks for a window that has already been emitted are dropped and counted.
+ * Open windows are kept by start time, so at most lateness / window + 1 of them are held at once.
+ * This class is not thread-safe; ticks must be pushed from a single thread.
+ */
+public class EventTimeVWAPEngine {
+
+    private final long timeWindowMilliseconds;
+    private final long allowedLatenessMilliseconds;
+    private final CurrencyPairDictionary currencyPairs;
+    private final WindowListener listener;
+    private final TreeMap<Long, WindowAggregator> openWindows = new TreeMap<>();
+    private final ArrayDeque<WindowAggregator> freeWindows = new ArrayDeque<>();
+    private boolean anchored;
+    private long origin;
+    private long watermark = Long.MIN_VALUE;
+    private long droppedTicks;
+
+    public EventTimeVWAPEngine(long timeWindowMilliseconds, long allowedLatenessMilliseconds, VWAPRecordListener listener) {
+        this(timeWindowMilliseconds, allowedLatenessMilliseconds, new CurrencyPairDictionary(), listener);
+    }
+
+    public EventTimeVWAPEngine(long timeWindowMilliseconds, long allowedLatenessMilliseconds, CurrencyPairDictionary currencyPairs,
+                               VWAPRecordListener listener) {
+        this(timeWindowMilliseconds, allowedLatenessMilliseconds, currencyPairs, (WindowListener) (startTime, endTime, window) -> {
+            for (int slot = 0; slot < window.size(); slot++) {
+                listener.onVWAPRecord(new VWAPRecord(startTime,
+                                                     endTime,
+                                                     currencyPairs.getName(window.getPairId(slot)),
+                                                     window.getCumulativePriceVolume(slot),
+                                                     window.getCumulativeVolume(slot)));
+            }
+        });
+    }
+
+    /**
+     * @param timeWindowMilliseconds Length of a window.
+     * @param allowedLatenessMilliseconds How far behind the latest timestamp a tick may be and still be counted.
+     * @param currencyPairs Dictionary to intern currency pairs into.
+     * @param listener Receives the windows as the watermark passes them.
+     */
+    public EventTimeVWAPEngine(long timeWindowMilliseconds, long allowedLatenessMilliseconds, CurrencyPairDictionary currencyPairs,
+                               WindowListener listener) {
+        if (timeWindowMilliseconds <= 0) {
+            throw new IllegalArgumentException("Time window must be positive");
+        }
+        if (allowedLatenessMilliseconds < 0) {
+            throw new IllegalArgumentException("Allowed lateness must not be negative");
+        }
+        this.timeWindowMilliseconds = timeWindowMilliseconds;
+        this.allowedLatenessMilliseconds = allowedLatenessMilliseconds;
+        this.currencyPairs = currencyPairs;
+        this.listener = listener;
+    }
+
+    public void onTick(String currencyPair, long timestamp, double price, long volume) {
+        onTick(currencyPairs.intern(currencyPair), timestamp, price, volume);
+    }
+
+    /**
+     * Adds a tick to the window its timestamp falls into, then emits the windows the watermark has passed.
+     * @param pairId Pair id from {@link #getCurrencyPairs()}.
+     * @param timestamp Tick time in milliseconds.
+     * @param price Traded price.
+     * @param volume Traded volume.
+     */
+    public void onTick(int pairId, long timestamp, double price, long volume) {
+
+        if (!anchored) {
+            origin = timestamp;
+            anchored = true;
+        }
+        long startTime = origin + Math.floorDiv(timestamp - origin, timeWindowMilliseconds) * timeWindowMilliseconds;
+        if (startTime + timeWindowMilliseconds <= watermark) {
+            droppedTicks++;
+            return;
+        }
+        WindowAggregator window = openWindows.get(startTime);
+        if (window == null) {
+            window = freeWindows.isEmpty() ? new WindowAggregator() : freeWindows.poll();
+            openWindows.put(startTime, window);
+        }
+        window.add(pairId, price * volume, volume);
+        advanceTime(timestamp);
+    }
+
+    /**
+     * Moves the watermark to the given event time less the allowed lateness, if that is later than
+     * the current watermark, and emits the windows that end at or before it.
+     * @param timestamp Latest event time in milliseconds.
+     */
+    public void advanceTime(long timestamp) {
+
+        long newWatermark = timestamp - allowedLatenessMilliseconds;
+        if (newWatermark <= watermark) {
+            return;
+        }
+        watermark = newWatermark;
+        while (!openWindows.isEmpty() && openWindows.firstKey() + timeWindowMilliseconds <= watermark) {
+            emit(openWindows.pollFirstEntry());
+        }
+    }
+
+    /**
+     * Emits all open windows regardless of the watermark, e.g. at the end of an input file.
+     * Ticks arriving afterwards for those windows are dropped.
+     */
+    public void flush() {
+
+        while (!openWindows.isEmpty()) {
+            Map.Entry<Long, WindowAggregator> entry = openWindows.pollFirstEntry();
+            watermark = Math.max(watermark, entry.getKey() + timeWindowMilliseconds);
+            emit(entry);
+        }
+    }
+
+    public CurrencyPairDictionary getCurrencyPairs() {
+        return currencyPairs;
+    }
+
+    /**
+     * @return The event time up to which all windows have been emitted, or Long.MIN_VALUE before the first tick.
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return The number of windows that are waiting for the watermark.
+     */
+    public int getOpenWindowCount() {
+        return openWindows.size();
+    }
+
+    /**
+     * @return The number of ticks dropped because they arrived after their window was emitted.
+     */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    private void emit(Map.Entry<Long, WindowAggregator> entry) {
+
+        long startTime = entry.getKey();
+        WindowAggregator window = entry.getValue();
+        listener.onWindowClosed(startTime, startTime + timeWindowMilliseconds, window);
+        window.clear();
+        freeWindows.push(window);
+    }
+}
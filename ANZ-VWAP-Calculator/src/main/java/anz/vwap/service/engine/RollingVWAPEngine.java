@@ -0,0 +1,168 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.csv.model.VWAPRecord;
+
+import java.util.Arrays;
+
+/**
+ * Calculates a rolling VWAP over the last N minutes of each currency pair, updated on every tick.
+ * Each pair has a ring buffer of N per-minute buckets holding price-volume and volume sums, plus
+ * running totals over the ring. When a tick moves a pair into a new minute, the buckets that fell out
+ * of the window are subtracted from the totals and cleared, so an update costs O(1) amortised.
+ * The price-volume total is recomputed from the buckets once every N minutes, which keeps rounding
+ * errors of the repeated subtraction from building up.
+ * Ticks older than the window of their pair are dropped. This class is not thread-safe.
+ */
+public class RollingVWAPEngine {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long NO_TICK = Long.MIN_VALUE;
+    private static final int INITIAL_PAIRS = 16;
+
+    private final int windowMinutes;
+    private final CurrencyPairDictionary currencyPairs;
+    private final VWAPRecordListener listener;
+
+    private double[] bucketPriceVolumes;
+    private long[] bucketVolumes;
+    private long[] newestMinutes;
+    private double[] priceVolumeSums;
+    private long[] volumeSums;
+    private long droppedTicks;
+
+    /**
+     * @param windowMilliseconds Length of the rolling window, a multiple of one minute.
+     * @param listener Receives the pair's rolling VWAP after every tick, or null if it is only queried.
+     */
+    public RollingVWAPEngine(long windowMilliseconds, VWAPRecordListener listener) {
+        this(windowMilliseconds, new CurrencyPairDictionary(), listener);
+    }
+
+    public RollingVWAPEngine(long windowMilliseconds, CurrencyPairDictionary currencyPairs, VWAPRecordListener listener) {
+        if (windowMilliseconds <= 0 || windowMilliseconds % MINUTE != 0) {
+            throw new IllegalArgumentException("Rolling window must be a positive number of minutes");
+        }
+        this.windowMinutes = Math.toIntExact(windowMilliseconds / MINUTE);
+        this.currencyPairs = currencyPairs;
+        this.listener = listener;
+        bucketPriceVolumes = new double[INITIAL_PAIRS * windowMinutes];
+        bucketVolumes = new long[INITIAL_PAIRS * windowMinutes];
+        newestMinutes = new long[INITIAL_PAIRS];
+        Arrays.fill(newestMinutes, NO_TICK);
+        priceVolumeSums = new double[INITIAL_PAIRS];
+        volumeSums = new long[INITIAL_PAIRS];
+    }
+
+    public void onTick(String currencyPair, long timestamp, double price, long volume) {
+        onTick(currencyPairs.intern(currencyPair), timestamp, price, volume);
+    }
+
+    /**
+     * Adds a tick to the rolling window of its currency pair.
+     * @param pairId Pair id from {@link #getCurrencyPairs()}.
+     * @param timestamp Tick time in milliseconds.
+     * @param price Traded price.
+     * @param volume Traded volume.
+     */
+    public void onTick(int pairId, long timestamp, double price, long volume) {
+
+        if (pairId >= newestMinutes.length) {
+            grow(pairId);
+        }
+        long minute = Math.floorDiv(timestamp, MINUTE);
+        long newestMinute = newestMinutes[pairId];
+        if (minute > newestMinute) {
+            advance(pairId, newestMinute, minute);
+        } else if (minute <= newestMinute - windowMinutes) {
+            droppedTicks++;
+            return;
+        }
+        double priceVolume = price * volume;
+        int bucket = pairId * windowMinutes + (int) Math.floorMod(minute, (long) windowMinutes);
+        bucketPriceVolumes[bucket] += priceVolume;
+        bucketVolumes[bucket] += volume;
+        priceVolumeSums[pairId] += priceVolume;
+        volumeSums[pairId] += volume;
+        if (listener != null) {
+            listener.onVWAPRecord(getVWAPRecord(pairId));
+        }
+    }
+
+    /**
+     * Returns the rolling VWAP of a pair, unrounded.
+     * @param pairId Pair id from {@link #getCurrencyPairs()}.
+     * @return The VWAP over the last N minutes up to the pair's latest tick, or NaN if the pair has not traded.
+     */
+    public double getVwap(int pairId) {
+        if (pairId >= volumeSums.length || volumeSums[pairId] == 0) {
+            return Double.NaN;
+        }
+        return priceVolumeSums[pairId] / volumeSums[pairId];
+    }
+
+    /**
+     * Returns the rolling window of a pair as a VWAP record.
+     * @param pairId Pair id of a pair that has traded.
+     * @return The record for the N minutes up to and including the minute of the pair's latest tick.
+     */
+    public VWAPRecord getVWAPRecord(int pairId) {
+        long endTime = (newestMinutes[pairId] + 1) * MINUTE;
+        return new VWAPRecord(endTime - windowMinutes * MINUTE,
+                              endTime,
+                              currencyPairs.getName(pairId),
+                              priceVolumeSums[pairId],
+                              volumeSums[pairId]);
+    }
+
+    public CurrencyPairDictionary getCurrencyPairs() {
+        return currencyPairs;
+    }
+
+    /**
+     * @return The number of ticks dropped because they were older than the window of their pair.
+     */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    private void advance(int pairId, long newestMinute, long minute) {
+
+        int base = pairId * windowMinutes;
+        if (newestMinute == NO_TICK || minute - newestMinute >= windowMinutes) {
+            // The whole ring has expired
+            Arrays.fill(bucketPriceVolumes, base, base + windowMinutes, 0);
+            Arrays.fill(bucketVolumes, base, base + windowMinutes, 0);
+            priceVolumeSums[pairId] = 0;
+            volumeSums[pairId] = 0;
+        } else {
+            for (long expired = newestMinute + 1; expired <= minute; expired++) {
+                int bucket = base + (int) Math.floorMod(expired, (long) windowMinutes);
+                priceVolumeSums[pairId] -= bucketPriceVolumes[bucket];
+                volumeSums[pairId] -= bucketVolumes[bucket];
+                bucketPriceVolumes[bucket] = 0;
+                bucketVolumes[bucket] = 0;
+            }
+            if (Math.floorDiv(newestMinute, windowMinutes) != Math.floorDiv(minute, windowMinutes)) {
+                double priceVolumeSum = 0;
+                for (int bucket = base; bucket < base + windowMinutes; bucket++) {
+                    priceVolumeSum += bucketPriceVolumes[bucket];
+                }
+                priceVolumeSums[pairId] = priceVolumeSum;
+            }
+        }
+        newestMinutes[pairId] = minute;
+    }
+
+    private void grow(int pairId) {
+
+        int pairs = Math.max(pairId + 1, newestMinutes.length * 2);
+        int oldPairs = newestMinutes.length;
+        bucketPriceVolumes = Arrays.copyOf(bucketPriceVolumes, pairs * windowMinutes);
+        bucketVolumes = Arrays.copyOf(bucketVolumes, pairs * windowMinutes);
+        newestMinutes = Arrays.copyOf(newestMinutes, pairs);
+        Arrays.fill(newestMinutes, oldPairs, pairs, NO_TICK);
+        priceVolumeSums = Arrays.copyOf(priceVolumeSums, pairs);
+        volumeSums = Arrays.copyOf(volumeSums, pairs);
+    }
+}
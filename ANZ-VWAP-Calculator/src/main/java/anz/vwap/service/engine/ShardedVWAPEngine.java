@@ -0,0 +1,333 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.WindowAggregator;
+import anz.vwap.service.csv.model.VWAPRecord;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Calculates the same tumbling-window VWAP as {@link VWAPEngine}, with the sums spread over worker threads.
+ * Currency pairs are partitioned over N shards by pair id. The thread pushing ticks assigns each tick
+ * to its window, numbers the pairs of a window in the order they first trade, and hands the tick to
+ * its pair's shard through a {@link TickRingBuffer}. Each shard owns the sums of its pairs, so the hot
+ * path takes no locks. When a window closes, every shard writes its sums into the window's result
+ * arrays at the pairs' ordinals, and the last shard to finish queues the window for delivery.
+ * Windows complete in time order and are passed to the listener on the pushing thread, one record
+ * per pair in first-appearance order, so the output is identical to {@link VWAPEngine}.
+ * A full ring buffer blocks the pushing thread until its shard catches up.
+ * Ticks must be pushed from a single thread. The engine must be closed to stop its threads.
+ */
+public class ShardedVWAPEngine implements AutoCloseable {
+
+    public static final int DEFAULT_RING_CAPACITY = 64 * 1024;
+
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PARK_NANOS = 20_000;
+
+    private final long timeWindowMilliseconds;
+    private final CurrencyPairDictionary currencyPairs;
+    private final VWAPRecordListener listener;
+    private final Shard[] shards;
+    private final ConcurrentLinkedQueue<ClosedWindow> completedWindows = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean running = true;
+
+    private long startTime;
+    private long endTime;
+    private boolean windowOpen;
+    private int windowSequence; // 1 for the first window, so that 0 in ordinalWindows means never
+    private int[] ordinalWindows = new int[16]; // sequence of the window in which the pair's ordinal was assigned
+    private int[] ordinalsByPairId = new int[16];
+    private int[] pairIdsByOrdinal = new int[16];
+    private int ordinalCount;
+    private long closedWindows;
+    private long deliveredWindows;
+
+    public ShardedVWAPEngine(long timeWindowMilliseconds, int shardCount, VWAPRecordListener listener) {
+        this(timeWindowMilliseconds, shardCount, DEFAULT_RING_CAPACITY, new CurrencyPairDictionary(), listener);
+    }
+
+    /**
+     * Creates the engine and starts one thread per shard.
+     * @param timeWindowMilliseconds Length of a window.
+     * @param shardCount Number of worker shards.
+     * @param ringCapacity Number of ticks each shard's queue holds, rounded up to a power of two.
+     * @param currencyPairs Dictionary to intern currency pairs into.
+     * @param listener Receives the VWAP records on the thread that pushes ticks.
+     */
+    public ShardedVWAPEngine(long timeWindowMilliseconds, int shardCount, int ringCapacity, CurrencyPairDictionary currencyPairs,
+                             VWAPRecordListener listener) {
+        if (timeWindowMilliseconds <= 0) {
+            throw new IllegalArgumentException("Time window must be positive");
+        }
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.timeWindowMilliseconds = timeWindowMilliseconds;
+        this.currencyPairs = currencyPairs;
+        this.listener = listener;
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(new TickRingBuffer(ringCapacity));
+            shards[i].thread = new Thread(shards[i]::run, "vwap-shard-" + i);
+            shards[i].thread.setDaemon(true);
+            shards[i].thread.start();
+        }
+    }
+
+    public void onTick(String currencyPair, long timestamp, double price, long volume) {
+        onTick(currencyPairs.intern(currencyPair), timestamp, price, volume);
+    }
+
+    /**
+     * Hands a tick to the shard of its currency pair.
+     * @param pairId Pair id from {@link #getCurrencyPairs()}.
+     * @param timestamp Tick time in milliseconds.
+     * @param price Traded price.
+     * @param volume Traded volume.
+     */
+    public void onTick(int pairId, long timestamp, double price, long volume) {
+
+        if (windowOpen && timestamp >= endTime) {
+            closeWindow();
+        }
+        if (!windowOpen) {
+            startTime = timestamp;
+            endTime = timestamp + timeWindowMilliseconds;
+            windowOpen = true;
+            windowSequence++;
+            ordinalCount = 0;
+        }
+        offer(shards[pairId % shards.length], ordinalOf(pairId), price * volume, volume, null);
+    }
+
+    /**
+     * Closes the open window and waits until all closed windows have been passed to the listener,
+     * e.g. at the end of an input file.
+     */
+    public void flush() {
+
+        if (windowOpen) {
+            closeWindow();
+        }
+        int idle = 0;
+        while (deliveredWindows < closedWindows) {
+            if (deliverCompletedWindows() == 0) {
+                idle = backOff(idle);
+            }
+        }
+    }
+
+    /**
+     * Stops the shard threads. Windows that have not been flushed are discarded.
+     * When the calling thread is interrupted, it stops waiting for the shards and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        try {
+            for (Shard shard : shards) {
+                shard.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public CurrencyPairDictionary getCurrencyPairs() {
+        return currencyPairs;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return The number of ticks a shard has added to its sums.
+     */
+    public long getProcessedTicks(int shard) {
+        return shards[shard].processedTicks.get();
+    }
+
+    /**
+     * @return The ticks per second a shard has processed since the engine was created.
+     */
+    public double getTicksPerSecond(int shard) {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        return getProcessedTicks(shard) * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return The number of ticks and window markers waiting in a shard's queue.
+     */
+    public int getQueueDepth(int shard) {
+        return shards[shard].ring.size();
+    }
+
+    private int ordinalOf(int pairId) {
+
+        if (pairId >= ordinalWindows.length) {
+            int length = Math.max(pairId + 1, ordinalWindows.length * 2);
+            ordinalWindows = Arrays.copyOf(ordinalWindows, length);
+            ordinalsByPairId = Arrays.copyOf(ordinalsByPairId, length);
+        }
+        if (ordinalWindows[pairId] == windowSequence) {
+            return ordinalsByPairId[pairId];
+        }
+        if (ordinalCount == pairIdsByOrdinal.length) {
+            pairIdsByOrdinal = Arrays.copyOf(pairIdsByOrdinal, ordinalCount * 2);
+        }
+        pairIdsByOrdinal[ordinalCount] = pairId;
+        ordinalWindows[pairId] = windowSequence;
+        ordinalsByPairId[pairId] = ordinalCount;
+        return ordinalCount++;
+    }
+
+    private void closeWindow() {
+
+        ClosedWindow closedWindow = new ClosedWindow(startTime, endTime, Arrays.copyOf(pairIdsByOrdinal, ordinalCount), shards.length);
+        for (Shard shard : shards) {
+            offer(shard, 0, 0, 0, closedWindow);
+        }
+        windowOpen = false;
+        closedWindows++;
+        deliverCompletedWindows();
+    }
+
+    private void offer(Shard shard, int ordinal, double priceVolume, long volume, ClosedWindow closedWindow) {
+
+        int idle = 0;
+        while (!shard.ring.offer(ordinal, priceVolume, volume, closedWindow)) {
+            // Results are delivered while waiting, so a slow listener cannot stall the shards
+            if (deliverCompletedWindows() == 0) {
+                idle = backOff(idle);
+            }
+        }
+        if (shard.waiting) {
+            LockSupport.unpark(shard.thread);
+        }
+    }
+
+    private int deliverCompletedWindows() {
+
+        int delivered = 0;
+        ClosedWindow closedWindow;
+        while ((closedWindow = completedWindows.poll()) != null) {
+            for (int ordinal = 0; ordinal < closedWindow.pairIds.length; ordinal++) {
+                listener.onVWAPRecord(new VWAPRecord(closedWindow.startTime,
+                                                     closedWindow.endTime,
+                                                     currencyPairs.getName(closedWindow.pairIds[ordinal]),
+                                                     closedWindow.priceVolumes[ordinal],
+                                                     closedWindow.volumes[ordinal]));
+            }
+            deliveredWindows++;
+            delivered++;
+        }
+        return delivered;
+    }
+
+    private static int backOff(int idle) {
+        if (idle < SPINS_BEFORE_PARK) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+
+    /**
+     * A closed window whose sums are filled in by the shards.
+     * Each shard writes only the ordinals of its own pairs, and the countdown publishes the writes.
+     */
+    private static class ClosedWindow {
+
+        final long startTime;
+        final long endTime;
+        final int[] pairIds;
+        final double[] priceVolumes;
+        final long[] volumes;
+        final AtomicInteger pendingShards;
+
+        ClosedWindow(long startTime, long endTime, int[] pairIds, int shardCount) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.pairIds = pairIds;
+            this.priceVolumes = new double[pairIds.length];
+            this.volumes = new long[pairIds.length];
+            this.pendingShards = new AtomicInteger(shardCount);
+        }
+    }
+
+    private class Shard {
+
+        final TickRingBuffer ring;
+        final WindowAggregator window = new WindowAggregator(); // slots keyed by ordinal instead of pair id
+        final AtomicLong processedTicks = new AtomicLong();
+        volatile boolean waiting;
+        Thread thread;
+
+        Shard(TickRingBuffer ring) {
+            this.ring = ring;
+        }
+
+        void run() {
+
+            long processed = 0;
+            int idle = 0;
+            while (true) {
+                long head = ring.getHead();
+                long limit = ring.getReadLimit();
+                if (head == limit) {
+                    if (!running) {
+                        return;
+                    }
+                    if (idle < SPINS_BEFORE_PARK) {
+                        Thread.onSpinWait();
+                    } else {
+                        waiting = true;
+                        if (ring.size() == 0 && running) {
+                            LockSupport.parkNanos(PARK_NANOS);
+                        }
+                        waiting = false;
+                    }
+                    idle++;
+                    continue;
+                }
+                idle = 0;
+                for (long position = head; position < limit; position++) {
+                    Object marker = ring.takeMarker(position);
+                    if (marker != null) {
+                        closeWindow((ClosedWindow) marker);
+                    } else {
+                        window.add(ring.getOrdinal(position), ring.getPriceVolume(position), ring.getVolume(position));
+                        processed++;
+                    }
+                }
+                ring.release(limit);
+                processedTicks.lazySet(processed);
+            }
+        }
+
+        private void closeWindow(ClosedWindow closedWindow) {
+
+            for (int slot = 0; slot < window.size(); slot++) {
+                int ordinal = window.getPairId(slot);
+                closedWindow.priceVolumes[ordinal] = window.getCumulativePriceVolume(slot);
+                closedWindow.volumes[ordinal] = window.getCumulativeVolume(slot);
+            }
+            window.clear();
+            if (closedWindow.pendingShards.decrementAndGet() == 0) {
+                completedWindows.add(closedWindow);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package anz.vwap.service.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer queue of ticks, stored in parallel primitive arrays.
+ * The producer and the consumer each own one counter and publish it with a release store, so
+ * neither side takes a lock or allocates. Each side caches the other's counter and only reads it
+ * again when the cached value says the queue is full or empty.
+ * An entry may carry a marker object instead of a tick, e.g. to tell the consumer a window has closed.
+ */
+final class TickRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final int[] ordinals;
+    private final double[] priceVolumes;
+    private final long[] volumes;
+    private final Object[] markers;
+
+    private final AtomicLong head = new AtomicLong(); // next entry to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next entry to write, written by the producer
+    private long cachedHead; // producer's copy of head
+    private long cachedTail; // consumer's copy of tail
+
+    /**
+     * @param capacity Number of entries, rounded up to a power of two.
+     */
+    TickRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 1 and " + (1 << 30));
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        ordinals = new int[size];
+        priceVolumes = new double[size];
+        volumes = new long[size];
+        markers = new Object[size];
+    }
+
+    /**
+     * Appends an entry. Called by the producer only.
+     * @return false if the queue is full.
+     */
+    boolean offer(int ordinal, double priceVolume, long volume, Object marker) {
+
+        long position = tail.get();
+        if (position - cachedHead >= capacity) {
+            cachedHead = head.get();
+            if (position - cachedHead >= capacity) {
+                return false;
+            }
+        }
+        int index = (int) position & mask;
+        ordinals[index] = ordinal;
+        priceVolumes[index] = priceVolume;
+        volumes[index] = volume;
+        markers[index] = marker;
+        tail.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * @return The position of the next entry to read. Called by the consumer only.
+     */
+    long getHead() {
+        return head.get();
+    }
+
+    /**
+     * @return The position after the last entry that can be read. Called by the consumer only.
+     */
+    long getReadLimit() {
+        if (cachedTail == head.get()) {
+            cachedTail = tail.get();
+        }
+        return cachedTail;
+    }
+
+    int getOrdinal(long position) {
+        return ordinals[(int) position & mask];
+    }
+
+    double getPriceVolume(long position) {
+        return priceVolumes[(int) position & mask];
+    }
+
+    long getVolume(long position) {
+        return volumes[(int) position & mask];
+    }
+
+    /**
+     * Returns the marker of an entry and clears it, so the queue does not keep it reachable.
+     */
+    Object takeMarker(long position) {
+        int index = (int) position & mask;
+        Object marker = markers[index];
+        markers[index] = null;
+        return marker;
+    }
+
+    /**
+     * Frees the entries before the given position for the producer. Called by the consumer only.
+     */
+    void release(long position) {
+        head.lazySet(position);
+    }
+
+    /**
+     * @return The number of entries waiting to be read. Safe to call from any thread.
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,222 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.FixedPoint;
+import anz.vwap.service.aggregate.WindowAggregator;
+import anz.vwap.service.aggregate.WindowMetric;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.csv.model.WindowAnalytics;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Calculates VWAP over tumbling time windows from ticks pushed one at a time.
+ * A window starts at the first tick that does not fall into the previous window and lasts for
+ * the configured time window. When a tick at or after the end of the open window arrives, the
+ * window is closed and one {@link VWAPRecord} per currency pair is passed to the listener, in the
+ * order in which the pairs first traded in the window. A {@link WindowListener} receives the sums of
+ * the window instead, without a record per pair.
+ * Selected {@link WindowMetric}s are accumulated from the same ticks and attached to the records as
+ * {@link WindowAnalytics}; without any, a tick only adds to the VWAP sums.
+ * Only the open window is held in memory, so memory use does not grow with the length of the stream.
+ * This class is not thread-safe; ticks must be pushed from a single thread.
+ */
+public class VWAPEngine {
+
+    private final long timeWindowMilliseconds;
+    private final CurrencyPairDictionary currencyPairs;
+    private final WindowListener listener;
+    private final WindowAggregator window;
+    private final boolean analytics;
+    private long startTime;
+    private long endTime;
+    private boolean windowOpen;
+
+    public VWAPEngine(long timeWindowMilliseconds, VWAPRecordListener listener) {
+        this(timeWindowMilliseconds, new CurrencyPairDictionary(), listener);
+    }
+
+    public VWAPEngine(long timeWindowMilliseconds, CurrencyPairDictionary currencyPairs, VWAPRecordListener listener) {
+        this(timeWindowMilliseconds, currencyPairs, EnumSet.noneOf(WindowMetric.class), listener);
+    }
+
+    /**
+     * @param metrics Analytics to calculate besides the VWAP, attached to each record.
+     */
+    public VWAPEngine(long timeWindowMilliseconds, CurrencyPairDictionary currencyPairs, Set<WindowMetric> metrics,
+                      VWAPRecordListener listener) {
+        this(timeWindowMilliseconds, currencyPairs, metrics, (WindowListener) (startTime, endTime, window) -> {
+            for (int slot = 0; slot < window.size(); slot++) {
+                VWAPRecord vwapRecord = new VWAPRecord(startTime,
+                                                       endTime,
+                                                       currencyPairs.getName(window.getPairId(slot)),
+                                                       window.getCumulativePriceVolume(slot),
+                                                       window.getCumulativeVolume(slot));
+                if (window.isFixedPoint()) {
+                    vwapRecord.setExactVwap(window.getFixedPointVwap(slot, 4));
+                }
+                if (!metrics.isEmpty()) {
+                    vwapRecord.setAnalytics(WindowAnalytics.of(window, slot, endTime));
+                }
+                listener.onVWAPRecord(vwapRecord);
+            }
+        });
+    }
+
+    public VWAPEngine(long timeWindowMilliseconds, CurrencyPairDictionary currencyPairs, WindowListener listener) {
+        this(timeWindowMilliseconds, currencyPairs, EnumSet.noneOf(WindowMetric.class), listener);
+    }
+
+    /**
+     * @param metrics Analytics to accumulate besides the VWAP sums, read from the window passed to the listener.
+     */
+    public VWAPEngine(long timeWindowMilliseconds, CurrencyPairDictionary currencyPairs, Set<WindowMetric> metrics,
+                      WindowListener listener) {
+        if (timeWindowMilliseconds <= 0) {
+            throw new IllegalArgumentException("Time window must be positive");
+        }
+        this.timeWindowMilliseconds = timeWindowMilliseconds;
+        this.currencyPairs = currencyPairs;
+        this.listener = listener;
+        this.window = new WindowAggregator(metrics);
+        this.analytics = !metrics.isEmpty();
+    }
+
+    /**
+     * Adds a tick to the VWAP of its time window.
+     * @param currencyPair Currency pair, e.g. AUD/USD.
+     * @param timestamp Tick time in milliseconds.
+     * @param price Traded price.
+     * @param volume Traded volume.
+     */
+    public void onTick(String currencyPair, long timestamp, double price, long volume) {
+        onTick(currencyPairs.intern(currencyPair), timestamp, price, volume);
+    }
+
+    /**
+     * Adds a tick whose currency pair has already been interned in this engine's dictionary.
+     * @param pairId Pair id from {@link #getCurrencyPairs()}.
+     * @param timestamp Tick time in milliseconds.
+     * @param price Traded price.
+     * @param volume Traded volume.
+     */
+    public void onTick(int pairId, long timestamp, double price, long volume) {
+
+        if (analytics) {
+            openWindow(timestamp);
+            window.addTick(pairId, timestamp, price, volume);
+        } else {
+            onAggregate(pairId, timestamp, price * volume, volume);
+        }
+    }
+
+    /**
+     * Adds a tick to the exact fixed-point sums of its time window. Ticks of one engine are added either
+     * all with this method or all without it.
+     * @param pairId Pair id from {@link #getCurrencyPairs()}.
+     * @param timestamp Tick time in milliseconds.
+     * @param priceUnits Traded price in {@link FixedPoint} units of 1e-8.
+     * @param volume Traded volume.
+     */
+    public void onTickFixedPoint(int pairId, long timestamp, long priceUnits, long volume) {
+
+        openWindow(timestamp);
+        window.addFixedPoint(pairId, priceUnits, volume);
+    }
+
+    /**
+     * Adds the sums of consecutive ticks of one currency pair that share a timestamp.
+     * Since such ticks always fall into the same window, this is equivalent to adding them one by one,
+     * except that they do not count for any selected analytics.
+     * @param pairId Pair id from {@link #getCurrencyPairs()}.
+     * @param timestamp Time of the ticks in milliseconds.
+     * @param priceVolume Sum of price multiplied by volume.
+     * @param volume Sum of traded volume.
+     */
+    public void onAggregate(int pairId, long timestamp, double priceVolume, long volume) {
+
+        openWindow(timestamp);
+        window.add(pairId, priceVolume, volume);
+    }
+
+    /**
+     * Moves the windows on for a tick that is not counted, e.g. one rejected by a filter, so that windows
+     * start and end where they would if it were counted. A window that closes without any counted ticks
+     * is not passed to the listener.
+     * @param timestamp Tick time in milliseconds.
+     */
+    public void onSkippedTick(long timestamp) {
+        openWindow(timestamp);
+    }
+
+    /**
+     * Closes the open window if the given time has reached its end, so that quiet periods in a
+     * live feed do not hold back results. A later tick then starts a new window.
+     * @param timestamp Current time in milliseconds.
+     */
+    public void advanceTime(long timestamp) {
+        if (windowOpen && timestamp >= endTime) {
+            closeWindow();
+        }
+    }
+
+    /**
+     * Closes the open window regardless of time, e.g. at the end of an input file.
+     */
+    public void flush() {
+        if (windowOpen) {
+            closeWindow();
+        }
+    }
+
+    /**
+     * @return true while a window holds ticks that have not been passed to the listener.
+     */
+    public boolean isWindowOpen() {
+        return windowOpen;
+    }
+
+    /**
+     * @return The start of the open window in milliseconds.
+     */
+    public long getWindowStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the sums of the open window, e.g. to save them and restore them later with
+     * {@link #onAggregate(int, long, double, long)} at the start time of the window.
+     * @return The sums, which must not be changed.
+     */
+    public WindowAggregator getOpenWindow() {
+        return window;
+    }
+
+    public CurrencyPairDictionary getCurrencyPairs() {
+        return currencyPairs;
+    }
+
+    public long getTimeWindowMilliseconds() {
+        return timeWindowMilliseconds;
+    }
+
+    private void openWindow(long timestamp) {
+
+        advanceTime(timestamp);
+        if (!windowOpen) {
+            startTime = timestamp;
+            endTime = timestamp + timeWindowMilliseconds;
+            windowOpen = true;
+        }
+    }
+
+    private void closeWindow() {
+
+        if (!window.isEmpty()) {
+            listener.onWindowClosed(startTime, endTime, window);
+        }
+        window.clear();
+        windowOpen = false;
+    }
+}
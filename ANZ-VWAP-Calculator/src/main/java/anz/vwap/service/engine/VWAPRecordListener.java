@@ -0,0 +1,12 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.csv.model.VWAPRecord;
+
+/**
+ * Receives VWAP records as their time windows close.
+ */
+@FunctionalInterface
+public interface VWAPRecordListener {
+
+    void onVWAPRecord(VWAPRecord vwapRecord);
+}
@@ -0,0 +1,17 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.aggregate.WindowAggregator;
+
+/**
+ * Receives the sums of a whole time window as it closes, without a record object per currency pair.
+ */
+@FunctionalInterface
+public interface WindowListener {
+
+    /**
+     * @param startTime Start of the window in milliseconds.
+     * @param endTime End of the window in milliseconds.
+     * @param window Sums of the window. It is cleared and reused once this method returns.
+     */
+    void onWindowClosed(long startTime, long endTime, WindowAggregator window);
+}
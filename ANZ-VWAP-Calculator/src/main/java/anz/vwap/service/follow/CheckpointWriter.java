@@ -0,0 +1,108 @@
+package anz.vwap.service.follow;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes checkpoints to a file on a writer thread, so that the thread that takes them only copies the
+ * state and does not wait for the disk.
+ * Only the latest checkpoint matters: one that is submitted while the previous one is still being
+ * written replaces any checkpoint that has not been started yet, so a slow disk delays checkpoints
+ * but never queues them up. Checkpoints must be submitted from a single thread. The writer must be
+ * closed to write the last checkpoint.
+ */
+public final class CheckpointWriter implements Closeable {
+
+    private final Path path;
+    private final AtomicReference<FollowCheckpoint> pending = new AtomicReference<>();
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile IOException error;
+    private volatile long writtenCheckpoints;
+
+    /**
+     * Creates the writer and starts its thread.
+     * @param path Checkpoint file, replaced atomically by every checkpoint.
+     */
+    public CheckpointWriter(Path path) {
+        this.path = path;
+        thread = new Thread(this::run, "vwap-checkpoint");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hands a checkpoint over to the writer thread without waiting for it to be written.
+     * @param checkpoint Checkpoint to write.
+     * @throws IOException When writing an earlier checkpoint has failed.
+     */
+    public void submit(FollowCheckpoint checkpoint) throws IOException {
+
+        if (closed) {
+            throw new IllegalStateException("Checkpoint writer is closed");
+        }
+        if (error != null) {
+            throw error;
+        }
+        pending.set(checkpoint);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Writes the last submitted checkpoint and waits for the writer thread to finish.
+     * @throws IOException When a checkpoint could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the checkpoint writer");
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * @return The number of checkpoints written so far.
+     */
+    public long getWrittenCheckpoints() {
+        return writtenCheckpoints;
+    }
+
+    private void run() {
+
+        try {
+            while (true) {
+                FollowCheckpoint checkpoint = pending.getAndSet(null);
+                if (checkpoint != null) {
+                    checkpoint.write(path);
+                    writtenCheckpoints++;
+                } else if (closed) {
+                    if (pending.get() == null) {
+                        return;
+                    }
+                    // Submitted between the check above and close()
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException("Cannot write checkpoint " + path, e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package anz.vwap.service.follow;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.WindowAggregator;
+import anz.vwap.service.engine.VWAPEngine;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Position in a followed tick file together with the sums of the window that was open at that position,
+ * so that following can resume after a restart without reading the file again. Its size depends only
+ * on the number of pairs in the open window, so restoring takes the same time whatever the offset.
+ * All numbers are little-endian.
+ * <pre>
+ * header   magic (4 bytes: 0x89 'V' 'W' 'C'), version (short)
+ * position offset of the next line (long)
+ * window   length in milliseconds (long), open (byte), start in epoch milliseconds (long),
+ *          pair count (int), then per pair:
+ *          pair name length (short), pair name (UTF-8), cumulative price-volume (double), cumulative volume (long)
+ * checksum CRC-32 of all bytes before it (int)
+ * </pre>
+ */
+public final class FollowCheckpoint {
+
+    public static final int MAGIC = 0x43_57_56_89; // 0x89 'V' 'W' 'C' in little-endian order
+    public static final short VERSION = 2;
+
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int FIXED_SIZE = Integer.BYTES + Short.BYTES + Long.BYTES + Long.BYTES + 1 + Long.BYTES + Integer.BYTES
+                                          + Integer.BYTES;
+    private static final int FIXED_PAIR_SIZE = Short.BYTES + Double.BYTES + Long.BYTES;
+
+    private final long offset;
+    private final long timeWindowMilliseconds;
+    private final boolean windowOpen;
+    private final long windowStartTime;
+    private final String[] currencyPairs;
+    private final double[] priceVolumes;
+    private final long[] volumes;
+
+    private FollowCheckpoint(long offset, long timeWindowMilliseconds, boolean windowOpen, long windowStartTime,
+                             String[] currencyPairs, double[] priceVolumes, long[] volumes) {
+        this.offset = offset;
+        this.timeWindowMilliseconds = timeWindowMilliseconds;
+        this.windowOpen = windowOpen;
+        this.windowStartTime = windowStartTime;
+        this.currencyPairs = currencyPairs;
+        this.priceVolumes = priceVolumes;
+        this.volumes = volumes;
+    }
+
+    /**
+     * Copies the state of an engine.
+     * @param offset Offset in the file of the first line that the engine has not seen.
+     * @param engine Engine that has seen all lines before the offset.
+     * @return The checkpoint.
+     */
+    public static FollowCheckpoint of(long offset, VWAPEngine engine) {
+
+        WindowAggregator window = engine.getOpenWindow();
+        CurrencyPairDictionary dictionary = engine.getCurrencyPairs();
+        int size = engine.isWindowOpen() ? window.size() : 0;
+        String[] currencyPairs = new String[size];
+        double[] priceVolumes = new double[size];
+        long[] volumes = new long[size];
+        for (int slot = 0; slot < size; slot++) {
+            currencyPairs[slot] = dictionary.getName(window.getPairId(slot));
+            priceVolumes[slot] = window.getCumulativePriceVolume(slot);
+            volumes[slot] = window.getCumulativeVolume(slot);
+        }
+        return new FollowCheckpoint(offset, engine.getTimeWindowMilliseconds(), engine.isWindowOpen(), engine.getWindowStartTime(),
+                                    currencyPairs, priceVolumes, volumes);
+    }
+
+    /**
+     * Opens the saved window in an engine that has not seen any ticks yet.
+     * @param engine Engine to restore.
+     * @throws IllegalArgumentException When the engine has a different time window than the one saved.
+     */
+    public void restore(VWAPEngine engine) {
+
+        if (timeWindowMilliseconds != engine.getTimeWindowMilliseconds()) {
+            throw new IllegalArgumentException("Checkpoint was taken with a time window of " + timeWindowMilliseconds
+                                               + " ms, not " + engine.getTimeWindowMilliseconds() + " ms");
+        }
+        if (!windowOpen) {
+            return;
+        }
+        for (int i = 0; i < currencyPairs.length; i++) {
+            engine.onAggregate(engine.getCurrencyPairs().intern(currencyPairs[i]), windowStartTime, priceVolumes[i], volumes[i]);
+        }
+    }
+
+    /**
+     * @return The offset in the file of the first line that has not been read.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Writes the checkpoint next to the target file, forces it to disk and renames it over the target,
+     * so that a crash while writing leaves the previous checkpoint intact.
+     * @param path Checkpoint file.
+     * @throws IOException When the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+
+        byte[][] names = new byte[currencyPairs.length][];
+        int size = FIXED_SIZE;
+        for (int i = 0; i < currencyPairs.length; i++) {
+            names[i] = currencyPairs[i].getBytes(StandardCharsets.UTF_8);
+            size += FIXED_PAIR_SIZE + names[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(BYTE_ORDER);
+        buffer.putInt(MAGIC).putShort(VERSION).putLong(offset).putLong(timeWindowMilliseconds);
+        buffer.put((byte) (windowOpen ? 1 : 0)).putLong(windowStartTime).putInt(currencyPairs.length);
+        for (int i = 0; i < currencyPairs.length; i++) {
+            buffer.putShort((short) names[i].length).put(names[i]).putDouble(priceVolumes[i]).putLong(volumes[i]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue()).flip();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint file.
+     * @param path Checkpoint file.
+     * @return The checkpoint, or null if the file does not exist.
+     * @throws IOException When the file cannot be read or is not a checkpoint.
+     */
+    public static FollowCheckpoint read(Path path) throws IOException {
+
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(BYTE_ORDER);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a follow checkpoint file: " + path);
+            }
+            if (buffer.getShort() != VERSION) {
+                throw new IOException("Unsupported follow checkpoint file version: " + path);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, buffer.limit() - Integer.BYTES);
+            if (buffer.getInt(buffer.limit() - Integer.BYTES) != (int) crc.getValue()) {
+                throw new IOException("Follow checkpoint file is corrupt: " + path);
+            }
+            long offset = buffer.getLong();
+            long timeWindowMilliseconds = buffer.getLong();
+            boolean windowOpen = buffer.get() != 0;
+            long windowStartTime = buffer.getLong();
+            int size = buffer.getInt();
+            String[] currencyPairs = new String[size];
+            double[] priceVolumes = new double[size];
+            long[] volumes = new long[size];
+            for (int i = 0; i < size; i++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                currencyPairs[i] = new String(name, StandardCharsets.UTF_8);
+                priceVolumes[i] = buffer.getDouble();
+                volumes[i] = buffer.getLong();
+            }
+            return new FollowCheckpoint(offset, timeWindowMilliseconds, windowOpen, windowStartTime, currencyPairs, priceVolumes, volumes);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Follow checkpoint file is incomplete: " + path, e);
+        }
+    }
+}
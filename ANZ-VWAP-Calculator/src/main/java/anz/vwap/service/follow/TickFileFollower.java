@@ -0,0 +1,320 @@
+package anz.vwap.service.follow;
+
+import anz.vwap.service.csv.TickParser;
+import anz.vwap.service.engine.VWAPEngine;
+import anz.vwap.util.TimestampConverter;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Follows a tick CSV file that is still being appended to and feeds each new complete line into a
+ * {@link VWAPEngine} as it is written, so that windows close with low latency instead of after the
+ * whole file has been read again.
+ * The file is read from the last offset onwards only; a line without its line break is held back until
+ * the rest of it arrives. Changes are picked up from a {@link WatchService} on the directory of the
+ * file, with polling as a fallback for file systems that do not report them.
+ * With a checkpoint file, the offset and the sums of the open window are saved at most once per
+ * checkpoint interval, also while a long backlog is being read, and restored when the follower is
+ * created again, e.g. after a restart. Recovery therefore reads at most the lines appended during one
+ * interval, however much of the file has been read. Taking a checkpoint copies the sums of the open
+ * window; a {@link CheckpointWriter} writes it on its own thread. Windows closed after the last
+ * checkpoint are emitted again on restore, so output is at least once.
+ * This class is not thread-safe; it is used from the thread that feeds the engine.
+ */
+public class TickFileFollower implements Closeable {
+
+    public static final long DEFAULT_POLL_INTERVAL_MILLISECONDS = 100;
+    public static final long DEFAULT_CHECKPOINT_INTERVAL_MILLISECONDS = 1000;
+
+    private static final int CHECKPOINT_CHECK_TICKS = 4096; // ticks between looks at the clock while reading
+
+    private static final int HEADER_PROBE_SIZE = 64 * 1024;
+
+    private final Path csvFilePath;
+    private final VWAPEngine engine;
+    private final TimestampConverter timestampConverter;
+    private final CheckpointWriter checkpointWriter;
+    private long pollIntervalMilliseconds = DEFAULT_POLL_INTERVAL_MILLISECONDS;
+    private long checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_CHECKPOINT_INTERVAL_MILLISECONDS);
+    private LongSupplier clock;
+    private long clockDelayMilliseconds;
+    private Flushable output;
+
+    private FileChannel channel;
+    private TickParser tickParser;
+    private long startOffset; // offset of the first line read by the parser
+    private long checkpointOffset = -1;
+    private boolean checkpointWindowOpen;
+    private long checkpointNanos = System.nanoTime();
+    private boolean reading; // true while a read has stopped between lines, e.g. on an invalid row
+    private WatchService watchService;
+    private boolean pollOnly;
+    private long tickCount;
+
+    /**
+     * Creates a follower, restoring the engine from the checkpoint file if there is one.
+     * @param csvFilePath File to follow. It does not need to exist yet.
+     * @param engine Engine that has not seen any ticks yet.
+     * @param timestampConverter Converts timestamps on the session date of the file.
+     * @param checkpointPath File to save the position to, or null to start from the beginning every time.
+     * @throws IOException When the checkpoint cannot be read.
+     */
+    public TickFileFollower(Path csvFilePath, VWAPEngine engine, TimestampConverter timestampConverter, Path checkpointPath)
+            throws IOException {
+        this.csvFilePath = csvFilePath;
+        this.engine = engine;
+        this.timestampConverter = timestampConverter;
+        FollowCheckpoint checkpoint = checkpointPath == null ? null : FollowCheckpoint.read(checkpointPath);
+        if (checkpoint != null) {
+            checkpoint.restore(engine);
+            startOffset = checkpoint.getOffset();
+            checkpointOffset = startOffset;
+            checkpointWindowOpen = engine.isWindowOpen();
+        }
+        this.checkpointWriter = checkpointPath == null ? null : new CheckpointWriter(checkpointPath);
+    }
+
+    /**
+     * @param pollIntervalMilliseconds Longest wait for a change of the file before it is read again.
+     */
+    public void setPollInterval(long pollIntervalMilliseconds) {
+        if (pollIntervalMilliseconds <= 0) {
+            throw new IllegalArgumentException("Poll interval must be positive");
+        }
+        this.pollIntervalMilliseconds = pollIntervalMilliseconds;
+    }
+
+    /**
+     * @param checkpointIntervalMilliseconds Shortest time between two checkpoints.
+     */
+    public void setCheckpointInterval(long checkpointIntervalMilliseconds) {
+        if (checkpointIntervalMilliseconds < 0) {
+            throw new IllegalArgumentException("Checkpoint interval must not be negative");
+        }
+        this.checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMilliseconds);
+    }
+
+    /**
+     * Closes the open window once a clock has passed its end by a delay, without waiting for a tick of
+     * the next window. The delay should cover how late ticks are appended, e.g. one minute for timestamps
+     * that have no seconds; a tick that arrives after its window has closed starts a new window.
+     * @param clock Current time in epoch milliseconds, e.g. System::currentTimeMillis.
+     * @param delayMilliseconds Time after the end of a window until it is closed.
+     */
+    public void setClock(LongSupplier clock, long delayMilliseconds) {
+        this.clock = clock;
+        this.clockDelayMilliseconds = delayMilliseconds;
+    }
+
+    /**
+     * @param output Flushed before every checkpoint, so that the records of the windows closed before a
+     * checkpoint have left the process when it is saved.
+     */
+    public void setOutput(Flushable output) {
+        this.output = output;
+    }
+
+    /**
+     * Reads the complete lines appended since the last call and feeds them into the engine.
+     * @return The number of ticks read.
+     * @throws Exception When the file cannot be read, has been truncated, or has an invalid row.
+     */
+    public long poll() throws Exception {
+
+        long ticks = 0;
+        if (tickParser != null || open()) {
+            if (channel.size() < getOffset()) {
+                throw new IOException(csvFilePath + " is shorter than the offset " + getOffset() + " already read");
+            }
+            reading = true;
+            while (tickParser.next()) {
+                engine.onTick(tickParser.getPairId(), tickParser.getTimestamp(), tickParser.getPrice(), tickParser.getVolume());
+                if (++ticks % CHECKPOINT_CHECK_TICKS == 0 && checkpointWriter != null && isCheckpointDue()) {
+                    checkpoint();
+                }
+            }
+            reading = false;
+            tickCount += ticks;
+        }
+        if (clock != null) {
+            engine.advanceTime(clock.getAsLong() - clockDelayMilliseconds);
+        }
+        if (checkpointWriter != null && isCheckpointDue() && hasChangedSinceCheckpoint()) {
+            checkpoint();
+        }
+        return ticks;
+    }
+
+    /**
+     * Reads the file as it grows until the thread is interrupted. An interrupt while the file is being read
+     * closes it, so the follower cannot be used afterwards.
+     * @throws Exception When the file cannot be read, has been truncated, or has an invalid row.
+     */
+    public void follow() throws Exception {
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (poll() == 0) {
+                    awaitChange();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedByInterruptException e) {
+            // Interrupted while reading, which closed the file; the last checkpoint is still valid
+        }
+    }
+
+    /**
+     * @return The offset in the file of the first line that has not been read.
+     */
+    public long getOffset() {
+        return tickParser == null ? startOffset : startOffset + tickParser.getOffset();
+    }
+
+    /**
+     * @return The number of ticks read by this follower, not counting those before a restored checkpoint.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Saves a last checkpoint unless a read has failed, and waits for it to be written.
+     * @throws IOException When the file cannot be closed or a checkpoint cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        closeQuietly(watchService);
+        try (checkpointWriter) {
+            if (checkpointWriter != null && !reading && hasChangedSinceCheckpoint()) {
+                checkpoint();
+            }
+        } finally {
+            if (tickParser != null) {
+                tickParser.close(); // closes the channel
+            }
+        }
+    }
+
+    /**
+     * Opens the file once it has a complete header line and moves to the saved offset.
+     * @return false while the file does not exist or has no header yet.
+     */
+    private boolean open() throws IOException {
+
+        if (!Files.isRegularFile(csvFilePath)) {
+            return false;
+        }
+        FileChannel fileChannel = FileChannel.open(csvFilePath);
+        try {
+            if (!hasHeaderLine(fileChannel)) {
+                fileChannel.close();
+                return false;
+            }
+            TickParser headerParser = new TickParser(fileChannel, engine.getCurrencyPairs(), timestampConverter);
+            if (startOffset == 0) {
+                startOffset = headerParser.getOffset();
+            }
+            if (fileChannel.size() < startOffset) {
+                throw new IOException(csvFilePath + " is shorter than the offset " + startOffset + " of the checkpoint");
+            }
+            fileChannel.position(startOffset);
+            tickParser = new TickParser(fileChannel, engine.getCurrencyPairs(), headerParser);
+            tickParser.setFollow(true);
+            channel = fileChannel;
+            return true;
+        } catch (IOException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    private static boolean hasHeaderLine(FileChannel fileChannel) throws IOException {
+
+        ByteBuffer probe = ByteBuffer.allocate((int) Math.min(HEADER_PROBE_SIZE, fileChannel.size()));
+        while (probe.hasRemaining() && fileChannel.read(probe, probe.position()) > 0) {
+            // Read the start of the file
+        }
+        boolean text = false;
+        for (int i = 0; i < probe.position(); i++) {
+            byte b = probe.get(i);
+            if (b == '\n' && text) {
+                return true;
+            }
+            text |= (b & 0xff) > ' ';
+        }
+        return false;
+    }
+
+    private boolean isCheckpointDue() {
+        return System.nanoTime() - checkpointNanos >= checkpointIntervalNanos;
+    }
+
+    private boolean hasChangedSinceCheckpoint() {
+        return getOffset() != checkpointOffset || engine.isWindowOpen() != checkpointWindowOpen;
+    }
+
+    /**
+     * Copies the state at the current line and hands it over to the checkpoint writer.
+     */
+    private void checkpoint() throws IOException {
+
+        if (output != null) {
+            output.flush();
+        }
+        checkpointWriter.submit(FollowCheckpoint.of(getOffset(), engine));
+        checkpointOffset = getOffset();
+        checkpointWindowOpen = engine.isWindowOpen();
+        checkpointNanos = System.nanoTime();
+    }
+
+    /**
+     * Waits until the directory of the file changes or the poll interval has passed.
+     */
+    private void awaitChange() throws InterruptedException {
+
+        if (watchService == null && !pollOnly) {
+            Path directory = csvFilePath.toAbsolutePath().getParent();
+            try {
+                watchService = directory.getFileSystem().newWatchService();
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException | UnsupportedOperationException e) {
+                closeQuietly(watchService);
+                watchService = null;
+                pollOnly = true;
+            }
+        }
+        if (pollOnly) {
+            TimeUnit.MILLISECONDS.sleep(pollIntervalMilliseconds);
+            return;
+        }
+        WatchKey key = watchService.poll(pollIntervalMilliseconds, TimeUnit.MILLISECONDS);
+        if (key != null) {
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException e) {
+            // Nothing to recover
+        }
+    }
+}
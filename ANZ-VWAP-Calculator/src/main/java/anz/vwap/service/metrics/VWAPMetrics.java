@@ -0,0 +1,241 @@
+package anz.vwap.service.metrics;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the VWAP pipeline.
+ * The hot path does not touch the meters for every tick: each input file is read with its own
+ * {@link Recorder}, which counts into primitive fields and adds the counts to the meters in batches.
+ * Parse and timestamp conversion latencies are timed for one row in {@link #SAMPLE_INTERVAL}, since
+ * timing every row would cost more than converting it. Recording allocates nothing once a
+ * recorder's per-pair arrays have grown to the number of pairs.
+ * <ul>
+ * <li>vwap.ticks.parsed: ticks read from input files; its rate is the ticks parsed per second</li>
+ * <li>vwap.ticks.pair: ticks read per currency pair, tagged with the pair. Off unless enabled with
+ * {@link #setMaxTaggedPairs(int)}, and capped there, since every pair adds a time series</li>
+ * <li>vwap.rows.rejected: rows that could not be parsed, e.g. with an invalid timestamp</li>
+ * <li>vwap.windows.emitted and vwap.records.emitted: closed time windows and their VWAP records</li>
+ * <li>vwap.parse.latency and vwap.timestamp.conversion.latency: sampled per-row latencies</li>
+ * <li>vwap.output.write: time taken to write an output file</li>
+ * </ul>
+ */
+public class VWAPMetrics {
+
+    public static final int SAMPLE_INTERVAL = 1024;
+
+    public static final String OTHER_PAIRS_TAG = "other";
+
+    private static final int PUBLISH_INTERVAL = 64 * 1024;
+
+    private final MeterRegistry registry;
+    private final Counter ticksParsed;
+    private final Counter rowsRejected;
+    private final Counter windowsEmitted;
+    private final Counter recordsEmitted;
+    private final Timer parseLatency;
+    private final Timer timestampConversionLatency;
+    private final Timer writeTime;
+    private final Set<String> taggedPairs = new HashSet<>();
+    private volatile int maxTaggedPairs;
+
+    /**
+     * Creates meters in a new {@link SimpleMeterRegistry}, which can be read through {@link #getRegistry()}.
+     */
+    public VWAPMetrics() {
+        this(new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param registry Registry to create the meters in.
+     */
+    public VWAPMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        ticksParsed = Counter.builder("vwap.ticks.parsed").description("Ticks read from input files").register(registry);
+        rowsRejected = Counter.builder("vwap.rows.rejected").description("Rows that could not be parsed").register(registry);
+        windowsEmitted = Counter.builder("vwap.windows.emitted").description("Closed time windows").register(registry);
+        recordsEmitted = Counter.builder("vwap.records.emitted").description("VWAP records of closed windows").register(registry);
+        parseLatency = Timer.builder("vwap.parse.latency")
+                            .description("Time to parse one row, sampled")
+                            .publishPercentileHistogram()
+                            .register(registry);
+        timestampConversionLatency = Timer.builder("vwap.timestamp.conversion.latency")
+                                          .description("Time to convert one timestamp, sampled")
+                                          .publishPercentileHistogram()
+                                          .register(registry);
+        writeTime = Timer.builder("vwap.output.write").description("Time to write an output file").register(registry);
+    }
+
+    /**
+     * @return Metrics whose meters record nothing.
+     */
+    public static VWAPMetrics noop() {
+        return new VWAPMetrics(new CompositeMeterRegistry());
+    }
+
+    /**
+     * Creates a recorder for one input file.
+     * @param currencyPairs Dictionary that the pair ids of the recorded ticks belong to.
+     * @return The recorder, to be used from one thread at a time.
+     */
+    public Recorder newRecorder(CurrencyPairDictionary currencyPairs) {
+        return new Recorder(currencyPairs);
+    }
+
+    /**
+     * Records the time taken to write an output file.
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    public void recordWrite(long nanos) {
+        writeTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Enables vwap.ticks.pair for recorders created after this call. Ticks of the first pairs up to the limit
+     * are counted under their own tag, and the ticks of any further pairs under {@link #OTHER_PAIRS_TAG}.
+     * @param maxTaggedPairs Maximum number of pair tags, or 0 to count no ticks per pair (the default).
+     */
+    public void setMaxTaggedPairs(int maxTaggedPairs) {
+        if (maxTaggedPairs < 0) {
+            throw new IllegalArgumentException("Maximum number of tagged pairs must not be negative");
+        }
+        this.maxTaggedPairs = maxTaggedPairs;
+    }
+
+    private synchronized Counter getPairCounter(String currencyPair) {
+
+        String tag = currencyPair;
+        if (!taggedPairs.contains(currencyPair)) {
+            if (taggedPairs.size() < maxTaggedPairs) {
+                taggedPairs.add(currencyPair);
+            } else {
+                tag = OTHER_PAIRS_TAG;
+            }
+        }
+        return registry.counter("vwap.ticks.pair", "pair", tag);
+    }
+
+    /**
+     * Counts the ticks and windows of one input file. Not thread-safe.
+     */
+    public class Recorder {
+
+        private final CurrencyPairDictionary currencyPairs;
+        private final boolean countPairTicks = maxTaggedPairs > 0;
+        private long[] pairTicks = new long[16];
+        private long[] publishedPairTicks = new long[16];
+        private Counter[] pairCounters = new Counter[16];
+        private long ticks;
+        private long publishedTicks;
+        private long windows;
+        private long records;
+        private long windowStart;
+        private boolean recordSeen;
+        private int sampleCountdown = SAMPLE_INTERVAL;
+
+        Recorder(CurrencyPairDictionary currencyPairs) {
+            this.currencyPairs = currencyPairs;
+        }
+
+        /**
+         * @return true once every {@link #SAMPLE_INTERVAL} calls, when the current row should be timed.
+         */
+        public boolean sample() {
+            if (--sampleCountdown > 0) {
+                return false;
+            }
+            sampleCountdown = SAMPLE_INTERVAL;
+            return true;
+        }
+
+        public void recordParse(long nanos) {
+            parseLatency.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordTimestampConversion(long nanos) {
+            timestampConversionLatency.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Counts a tick that has been read.
+         * @param pairId Pair id of the tick.
+         */
+        public void onTick(int pairId) {
+
+            if (countPairTicks) {
+                if (pairId >= pairTicks.length) {
+                    int length = Math.max(pairId + 1, pairTicks.length * 2);
+                    pairTicks = Arrays.copyOf(pairTicks, length);
+                    publishedPairTicks = Arrays.copyOf(publishedPairTicks, length);
+                    pairCounters = Arrays.copyOf(pairCounters, length);
+                }
+                pairTicks[pairId]++;
+            }
+            if (++ticks - publishedTicks >= PUBLISH_INTERVAL) {
+                publish();
+            }
+        }
+
+        public void onRejectedRow() {
+            rowsRejected.increment();
+        }
+
+        /**
+         * Counts a closed window.
+         * @param recordCount Number of VWAP records of the window.
+         */
+        public void onWindow(int recordCount) {
+            windows++;
+            records += recordCount;
+        }
+
+        /**
+         * Counts a VWAP record, and its window when it is the first record of the window.
+         * @param startTime Start of the record's time window.
+         */
+        public void onRecord(long startTime) {
+            if (!recordSeen || startTime != windowStart) {
+                windowStart = startTime;
+                recordSeen = true;
+                windows++;
+            }
+            records++;
+        }
+
+        /**
+         * Adds the counts since the last call to the meters.
+         */
+        public void publish() {
+
+            ticksParsed.increment(ticks - publishedTicks);
+            publishedTicks = ticks;
+            windowsEmitted.increment(windows);
+            recordsEmitted.increment(records);
+            windows = 0;
+            records = 0;
+            for (int pairId = 0; pairId < pairTicks.length; pairId++) {
+                long delta = pairTicks[pairId] - publishedPairTicks[pairId];
+                if (delta > 0) {
+                    if (pairCounters[pairId] == null) {
+                        pairCounters[pairId] = getPairCounter(currencyPairs.getName(pairId));
+                    }
+                    pairCounters[pairId].increment(delta);
+                    publishedPairTicks[pairId] = pairTicks[pairId];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package anz.vwap.service.output;
+
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.engine.VWAPRecordListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes VWAP records to a {@link VWAPRecordSink} on a writer thread, so that an engine can pass
+ * records on as windows close without waiting for the file.
+ * Records are queued in a bounded queue and written in batches: a batch is written and flushed when
+ * it is full or when the flush interval has passed since the last write, whichever comes first.
+ * When the sink falls behind and the queue is full, {@link #onVWAPRecord(VWAPRecord)} blocks until
+ * there is room, which slows the engine down to the speed of the sink.
+ * Records must be passed from a single thread. The writer must be closed to write the last batch.
+ */
+public class AsyncVWAPRecordWriter implements VWAPRecordListener, Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 64 * 1024;
+    public static final int DEFAULT_BATCH_SIZE = 4 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLISECONDS = 100;
+
+    private static final long ERROR_CHECK_MILLISECONDS = 10;
+    // Queued by close() after the last record
+    private static final VWAPRecord END = new VWAPRecord(null, null, 0, 0);
+
+    private final VWAPRecordSink sink;
+    private final ArrayBlockingQueue<VWAPRecord> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Thread thread;
+    private volatile IOException error;
+    private volatile long writtenRecords;
+    private long blockedNanos;
+    private boolean closed;
+
+    public AsyncVWAPRecordWriter(VWAPRecordSink sink) {
+        this(sink, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLISECONDS);
+    }
+
+    /**
+     * Creates the writer and starts its thread.
+     * @param sink Sink to write to. It is closed when the writer is closed.
+     * @param queueCapacity Number of records that can be queued before the caller blocks.
+     * @param batchSize Maximum number of records written to the sink at once.
+     * @param flushIntervalMilliseconds Maximum time that queued records wait before they are written.
+     */
+    public AsyncVWAPRecordWriter(VWAPRecordSink sink, int queueCapacity, int batchSize, long flushIntervalMilliseconds) {
+        if (queueCapacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Queue capacity and batch size must be positive");
+        }
+        if (flushIntervalMilliseconds <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMilliseconds);
+        thread = new Thread(this::run, "vwap-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a record for writing, blocking while the queue is full.
+     * @param vwapRecord Record to write.
+     * @throws UncheckedIOException When the sink has failed. Records queued after the failure are not written.
+     */
+    @Override
+    public void onVWAPRecord(VWAPRecord vwapRecord) {
+
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        checkError();
+        if (queue.offer(vwapRecord)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            while (!queue.offer(vwapRecord, ERROR_CHECK_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+                checkError();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the writer", e);
+        } finally {
+            blockedNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Writes the queued records, waits for the writer thread to finish and closes the sink.
+     * @throws IOException When the sink has failed.
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (sink) {
+            while (thread.isAlive() && !queue.offer(END, ERROR_CHECK_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+                // The writer thread stops taking records after a failure
+            }
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the writer");
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * @return The number of records written to the sink so far.
+     */
+    public long getWrittenRecords() {
+        return writtenRecords;
+    }
+
+    /**
+     * @return The time the caller has spent waiting for room in the queue, in nanoseconds.
+     */
+    public long getBlockedNanos() {
+        return blockedNanos;
+    }
+
+    /**
+     * @return The number of records waiting to be written.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void run() {
+
+        List<VWAPRecord> batch = new ArrayList<>(batchSize);
+        long lastWrite = System.nanoTime();
+        try {
+            boolean end = false;
+            while (!end) {
+                long timeout = lastWrite + flushIntervalNanos - System.nanoTime();
+                VWAPRecord vwapRecord = queue.poll(Math.max(timeout, 0), TimeUnit.NANOSECONDS);
+                if (vwapRecord != null) {
+                    batch.add(vwapRecord);
+                    queue.drainTo(batch, batchSize - batch.size());
+                    end = batch.get(batch.size() - 1) == END;
+                    if (end) {
+                        batch.remove(batch.size() - 1);
+                    }
+                }
+                if (end || batch.size() >= batchSize || System.nanoTime() - lastWrite >= flushIntervalNanos) {
+                    writeBatch(batch);
+                    lastWrite = System.nanoTime();
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException("Cannot write VWAP records", e);
+        } catch (InterruptedException e) {
+            error = new InterruptedIOException("Writer thread was interrupted");
+        }
+    }
+
+    private void writeBatch(List<VWAPRecord> batch) throws IOException {
+
+        if (batch.isEmpty()) {
+            return;
+        }
+        sink.write(batch);
+        sink.flush();
+        writtenRecords += batch.size();
+        batch.clear();
+    }
+
+    private void checkError() {
+        IOException e = error;
+        if (e != null) {
+            throw new UncheckedIOException("Cannot write VWAP records", e);
+        }
+    }
+}
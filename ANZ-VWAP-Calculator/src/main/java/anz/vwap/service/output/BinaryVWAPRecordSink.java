@@ -0,0 +1,132 @@
+package anz.vwap.service.output;
+
+import anz.vwap.service.csv.model.VWAPRecord;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes VWAP records to a binary file. All numbers are little-endian.
+ * <pre>
+ * header   magic (4 bytes: 0x89 'V' 'W' 'R'), version (short)
+ * records  window start and end in epoch milliseconds (long, long), pair name length (short),
+ *          pair name (UTF-8), cumulative price-volume (double), cumulative volume (long),
+ *          exact VWAP (double, NaN when the record has none)
+ * </pre>
+ * The file has no record count, so records can be appended as windows close and a file that is
+ * still being written can be read up to its last complete record.
+ */
+public class BinaryVWAPRecordSink implements VWAPRecordSink {
+
+    public static final int MAGIC = 0x52_57_56_89; // 0x89 'V' 'W' 'R' in little-endian order
+    public static final short VERSION = 1;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FIXED_RECORD_SIZE = Long.BYTES + Long.BYTES + Short.BYTES + Double.BYTES + Long.BYTES + Double.BYTES;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+    private final Map<String, byte[]> encodedPairs = new HashMap<>();
+
+    /**
+     * @param path File to write. An existing file is replaced.
+     * @throws IOException When the file cannot be created.
+     */
+    public BinaryVWAPRecordSink(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer.putInt(MAGIC).putShort(VERSION);
+    }
+
+    @Override
+    public void write(List<VWAPRecord> vwapRecords) throws IOException {
+
+        for (int i = 0; i < vwapRecords.size(); i++) {
+            VWAPRecord vwapRecord = vwapRecords.get(i);
+            byte[] pair = encodedPairs.computeIfAbsent(vwapRecord.getCurrencyPair(), BinaryVWAPRecordSink::encode);
+            if (buffer.remaining() < FIXED_RECORD_SIZE + pair.length) {
+                flush();
+            }
+            buffer.putLong(vwapRecord.getStartTime())
+                  .putLong(vwapRecord.getEndTime())
+                  .putShort((short) pair.length)
+                  .put(pair)
+                  .putDouble(vwapRecord.getCumulativePriceVolume())
+                  .putLong(vwapRecord.getCumulativeVolume())
+                  .putDouble(vwapRecord.hasExactVwap() ? vwapRecord.getVwap() : Double.NaN);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            flush();
+        }
+    }
+
+    /**
+     * Reads the complete records of a binary VWAP file.
+     * @param path File to read.
+     * @return The records, with their time windows formatted on first use and their exact VWAPs, if any.
+     * @throws IOException When the file cannot be read or is not a binary VWAP file.
+     */
+    public static List<VWAPRecord> read(Path path) throws IOException {
+
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path)).order(BYTE_ORDER);
+        if (file.remaining() < Integer.BYTES + Short.BYTES || file.getInt() != MAGIC) {
+            throw new IOException("Not a binary VWAP file: " + path);
+        }
+        if (file.getShort() != VERSION) {
+            throw new IOException("Unsupported binary VWAP file version: " + path);
+        }
+        List<VWAPRecord> vwapRecords = new ArrayList<>();
+        try {
+            while (file.hasRemaining()) {
+                long startTime = file.getLong();
+                long endTime = file.getLong();
+                byte[] pair = new byte[file.getShort()];
+                file.get(pair);
+                VWAPRecord vwapRecord = new VWAPRecord(startTime, endTime, new String(pair, StandardCharsets.UTF_8),
+                                                       file.getDouble(), file.getLong());
+                double exactVwap = file.getDouble();
+                if (!Double.isNaN(exactVwap)) {
+                    vwapRecord.setExactVwap(exactVwap);
+                }
+                vwapRecords.add(vwapRecord);
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            // The last record is still being written
+        }
+        return vwapRecords;
+    }
+
+    private static byte[] encode(String currencyPair) {
+
+        byte[] encoded = currencyPair.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Currency pair name is too long: " + currencyPair);
+        }
+        return encoded;
+    }
+}
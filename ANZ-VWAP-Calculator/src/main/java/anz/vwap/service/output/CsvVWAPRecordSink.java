@@ -0,0 +1,81 @@
+package anz.vwap.service.output;
+
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.util.Utils;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes VWAP records as CSV in the format of {@code VWAPService.writeVWAPRecords}.
+ * The VWAP is formatted with {@link Utils#appendDecimal(StringBuilder, double, int)} into a reused buffer.
+ * An exact VWAP set on a record is written instead of the quotient of its sums.
+ */
+public class CsvVWAPRecordSink implements VWAPRecordSink {
+
+    private final CSVPrinter printer;
+    private final boolean closeWriter;
+    private final StringBuilder vwap = new StringBuilder(32);
+
+    /**
+     * @param csvFilePath File to write. An existing file is replaced.
+     * @throws IOException When the file cannot be created.
+     */
+    public CsvVWAPRecordSink(Path csvFilePath) throws IOException {
+        this(Files.newBufferedWriter(csvFilePath), true);
+    }
+
+    /**
+     * @param writer Writer to print the records to.
+     * @param closeWriter Whether closing the sink closes the writer.
+     * @throws IOException When the header cannot be written.
+     */
+    public CsvVWAPRecordSink(Writer writer, boolean closeWriter) throws IOException {
+        this.printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withHeader("TIME WINDOW", "CURRENCY-PAIR", "VWAP"));
+        this.closeWriter = closeWriter;
+    }
+
+    /**
+     * @return A sink printing to the standard output, which is flushed but left open on close.
+     * @throws IOException When the header cannot be written.
+     */
+    public static CsvVWAPRecordSink stdout() throws IOException {
+        return new CsvVWAPRecordSink(new OutputStreamWriter(System.out), false);
+    }
+
+    @Override
+    public void write(List<VWAPRecord> vwapRecords) throws IOException {
+
+        for (int i = 0; i < vwapRecords.size(); i++) {
+            VWAPRecord vwapRecord = vwapRecords.get(i);
+            vwap.setLength(0);
+            double value = vwapRecord.hasExactVwap() ? vwapRecord.getVwap()
+                                                     : vwapRecord.getCumulativePriceVolume() / vwapRecord.getCumulativeVolume();
+            Utils.appendDecimal(vwap, value, 4);
+            printer.print(vwapRecord.getTimeWindow());
+            printer.print(vwapRecord.getCurrencyPair());
+            printer.print(vwap);
+            printer.println();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        printer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeWriter) {
+            printer.close();
+        } else {
+            printer.flush();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package anz.vwap.service.output;
+
+import anz.vwap.service.csv.model.VWAPRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of VWAP records, written in batches by an {@link AsyncVWAPRecordWriter}.
+ * A sink is used from one thread at a time.
+ */
+public interface VWAPRecordSink extends Closeable {
+
+    /**
+     * Writes a batch of records. They may be buffered until {@link #flush()}.
+     * @param vwapRecords Records in time window order. The list is reused after the call.
+     * @throws IOException When the records cannot be written.
+     */
+    void write(List<VWAPRecord> vwapRecords) throws IOException;
+
+    /**
+     * Passes buffered records on to the file or stream.
+     * @throws IOException When the records cannot be written.
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,114 @@
+package anz.vwap.service.query;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.WindowAggregator;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.engine.VWAPRecordListener;
+import anz.vwap.service.engine.WindowListener;
+
+/**
+ * Passes on the VWAP records of only the N currency pairs with the largest volume in each closed window,
+ * largest first. Pairs with the same volume are ranked in the order in which they first traded.
+ * The pairs are selected with a min-heap of at most N slots, so a window costs O(pairs * log N) time and
+ * no memory beyond the heap, and records are created for the selected pairs only.
+ */
+public class TopVolumeFilter implements WindowListener {
+
+    private final int limit;
+    private final CurrencyPairDictionary currencyPairs;
+    private final VWAPRecordListener listener;
+    private final int[] heap; // slots, the lowest-ranked at the root
+    private final int[] ranked;
+
+    /**
+     * @param limit Maximum number of records per window.
+     * @param currencyPairs Dictionary of the engine that closes the windows.
+     * @param listener Receives the records of the selected pairs.
+     */
+    public TopVolumeFilter(int limit, CurrencyPairDictionary currencyPairs, VWAPRecordListener listener) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Top-N limit must be positive");
+        }
+        this.limit = limit;
+        this.currencyPairs = currencyPairs;
+        this.listener = listener;
+        this.heap = new int[limit];
+        this.ranked = new int[limit];
+    }
+
+    @Override
+    public void onWindowClosed(long startTime, long endTime, WindowAggregator window) {
+
+        int size = 0;
+        for (int slot = 0; slot < window.size(); slot++) {
+            if (size < limit) {
+                heap[size] = slot;
+                siftUp(window, size++);
+            } else if (ranksBelow(window, heap[0], slot)) {
+                heap[0] = slot;
+                siftDown(window, 0, size);
+            }
+        }
+        int count = size;
+        while (size > 0) {
+            ranked[--size] = heap[0];
+            heap[0] = heap[size];
+            siftDown(window, 0, size);
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = ranked[i];
+            VWAPRecord vwapRecord = new VWAPRecord(startTime,
+                                                   endTime,
+                                                   currencyPairs.getName(window.getPairId(slot)),
+                                                   window.getCumulativePriceVolume(slot),
+                                                   window.getCumulativeVolume(slot));
+            if (window.isFixedPoint()) {
+                vwapRecord.setExactVwap(window.getFixedPointVwap(slot, 4));
+            }
+            listener.onVWAPRecord(vwapRecord);
+        }
+    }
+
+    private void siftUp(WindowAggregator window, int index) {
+
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBelow(window, slot, heap[parent])) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private void siftDown(WindowAggregator window, int index, int size) {
+
+        int slot = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && ranksBelow(window, heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!ranksBelow(window, heap[child], slot)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+
+    /**
+     * @return true when slot a has less volume than slot b, or the same volume and traded first later.
+     */
+    private static boolean ranksBelow(WindowAggregator window, int a, int b) {
+        long volumeA = window.getCumulativeVolume(a);
+        long volumeB = window.getCumulativeVolume(b);
+        return volumeA < volumeB || (volumeA == volumeB && a > b);
+    }
+}
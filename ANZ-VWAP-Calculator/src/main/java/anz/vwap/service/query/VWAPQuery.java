@@ -0,0 +1,92 @@
+package anz.vwap.service.query;
+
+import java.util.List;
+
+/**
+ * Selects the VWAP records to calculate from an input file: the currency pairs to include, the time range
+ * of the ticks to count, and optionally only the pairs with the largest traded volume in each window.
+ * The filters are applied while the file is read rather than to the records afterwards, so rows of other
+ * pairs are not parsed beyond their pair and timestamp.
+ * Instances are immutable; each with method returns a new query.
+ */
+public final class VWAPQuery {
+
+    private static final VWAPQuery ALL = new VWAPQuery(List.of(), Long.MIN_VALUE, Long.MAX_VALUE, 0);
+
+    private final List<String> currencyPairs;
+    private final long fromTime;
+    private final long toTime;
+    private final int topByVolume;
+
+    private VWAPQuery(List<String> currencyPairs, long fromTime, long toTime, int topByVolume) {
+        this.currencyPairs = currencyPairs;
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+        this.topByVolume = topByVolume;
+    }
+
+    /**
+     * @return A query for all currency pairs and all ticks.
+     */
+    public static VWAPQuery all() {
+        return ALL;
+    }
+
+    /**
+     * @param currencyPairs Currency pairs to include, matched ignoring case.
+     * @return A query for only these currency pairs.
+     */
+    public VWAPQuery withCurrencyPairs(String... currencyPairs) {
+        if (currencyPairs.length == 0) {
+            throw new IllegalArgumentException("At least one currency pair is required");
+        }
+        return new VWAPQuery(List.of(currencyPairs), fromTime, toTime, topByVolume);
+    }
+
+    /**
+     * Counts only ticks in a time range. Windows start and end as they would for all ticks, so the records
+     * of windows inside the range are the same as without it.
+     * @param fromTime Earliest tick time in epoch milliseconds, inclusive.
+     * @param toTime Latest tick time in epoch milliseconds, exclusive.
+     * @return A query for only the ticks in this range.
+     */
+    public VWAPQuery withTimeRange(long fromTime, long toTime) {
+        if (toTime < fromTime) {
+            throw new IllegalArgumentException("Time range ends before it starts");
+        }
+        return new VWAPQuery(currencyPairs, fromTime, toTime, topByVolume);
+    }
+
+    /**
+     * @param topByVolume Maximum number of records per window, for the currency pairs with the largest volume.
+     * @return A query for only the top currency pairs of each window, largest volume first.
+     */
+    public VWAPQuery withTopByVolume(int topByVolume) {
+        if (topByVolume <= 0) {
+            throw new IllegalArgumentException("Top-N limit must be positive");
+        }
+        return new VWAPQuery(currencyPairs, fromTime, toTime, topByVolume);
+    }
+
+    /**
+     * @return The currency pairs to include, or an empty list for all pairs.
+     */
+    public List<String> getCurrencyPairs() {
+        return currencyPairs;
+    }
+
+    public long getFromTime() {
+        return fromTime;
+    }
+
+    public long getToTime() {
+        return toTime;
+    }
+
+    /**
+     * @return The maximum number of records per window, or 0 for all.
+     */
+    public int getTopByVolume() {
+        return topByVolume;
+    }
+}
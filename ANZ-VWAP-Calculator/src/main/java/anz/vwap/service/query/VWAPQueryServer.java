@@ -0,0 +1,205 @@
+package anz.vwap.service.query;
+
+import anz.vwap.util.Utils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP server that answers VWAP lookups from a {@link VWAPSnapshotIndex} as JSON, e.g.
+ * <pre>
+ * GET /vwap                        last closed window of every currency pair
+ * GET /vwap/AUD/USD                last closed window and the recent windows of AUD/USD
+ * GET /vwap/AUD/USD?recent=5       last closed window and at most 5 windows before it
+ * </pre>
+ * Pairs are matched ignoring case. Only closed windows are served, as "lastClosed": the ticks of the window
+ * that is still open are not included until it closes.
+ * Each request reads one snapshot, so a response never mixes windows published while it was written,
+ * and it never blocks the thread that feeds the index. Requests run on virtual threads.
+ * The server listens on the loopback address only, for other services on the same host.
+ */
+public class VWAPQueryServer implements AutoCloseable {
+
+    private static final String CONTEXT = "/vwap";
+    private static final String RECENT_PARAMETER = "recent=";
+
+    private final VWAPSnapshotIndex index;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Starts the server.
+     * @param index Index to answer from.
+     * @param port Port to listen on, or 0 for any free port (see {@link #getPort()}).
+     * @throws IOException When the port cannot be bound.
+     */
+    public VWAPQueryServer(VWAPSnapshotIndex index, int port) throws IOException {
+        this.index = index;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(CONTEXT, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits for the running ones to complete.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                send(exchange, 405, error("Method not allowed"));
+                return;
+            }
+            String path = exchange.getRequestURI().getRawPath();
+            VWAPSnapshotIndex.Snapshot snapshot = index.getSnapshot();
+            if (path.equals(CONTEXT) || path.equals(CONTEXT + "/")) {
+                send(exchange, 200, allPairs(snapshot));
+                return;
+            }
+            if (!path.startsWith(CONTEXT + "/")) {
+                send(exchange, 404, error("Not found"));
+                return;
+            }
+            String currencyPair = URLDecoder.decode(path.substring(CONTEXT.length() + 1), StandardCharsets.UTF_8);
+            int recent = parseRecent(exchange.getRequestURI().getRawQuery(), index.getHistorySize() - 1);
+            if (recent < 0) {
+                send(exchange, 400, error("Parameter recent must be a non-negative number"));
+                return;
+            }
+            VWAPSnapshotIndex.PairHistory history = snapshot.get(currencyPair);
+            if (history == null) {
+                send(exchange, 404, error("No VWAP for currency pair " + currencyPair));
+                return;
+            }
+            send(exchange, 200, pair(snapshot, history, recent));
+        }
+    }
+
+    /**
+     * @return The value of the recent parameter, the default when it is missing, or -1 when it is not valid.
+     */
+    private static int parseRecent(String query, int defaultValue) {
+
+        if (query == null) {
+            return defaultValue;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(RECENT_PARAMETER)) {
+                try {
+                    return Math.max(-1, Integer.parseInt(parameter.substring(RECENT_PARAMETER.length())));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    private static String allPairs(VWAPSnapshotIndex.Snapshot snapshot) {
+
+        StringBuilder json = new StringBuilder(64 + 128 * snapshot.getCurrencyPairs().size());
+        json.append("{\"version\":").append(snapshot.getVersion()).append(",\"pairs\":[");
+        boolean first = true;
+        for (String currencyPair : snapshot.getCurrencyPairs()) {
+            VWAPSnapshotIndex.PairHistory history = snapshot.get(currencyPair);
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"currencyPair\":");
+            appendString(json, currencyPair);
+            json.append(",\"lastClosed\":");
+            appendWindow(json, history, history.latest());
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String pair(VWAPSnapshotIndex.Snapshot snapshot, VWAPSnapshotIndex.PairHistory history, int recent) {
+
+        StringBuilder json = new StringBuilder(128 + 96 * Math.min(recent, history.size()));
+        json.append("{\"version\":").append(snapshot.getVersion()).append(",\"currencyPair\":");
+        appendString(json, history.getCurrencyPair());
+        json.append(",\"lastClosed\":");
+        appendWindow(json, history, history.latest());
+        json.append(",\"recent\":[");
+        // Newest first, without the last closed window
+        int oldest = Math.max(0, history.latest() - recent);
+        for (int i = history.latest() - 1; i >= oldest; i--) {
+            if (i < history.latest() - 1) {
+                json.append(',');
+            }
+            appendWindow(json, history, i);
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void appendWindow(StringBuilder json, VWAPSnapshotIndex.PairHistory history, int index) {
+
+        json.append("{\"timeWindow\":");
+        appendString(json, Utils.createTimeWindow(history.getStartTime(index), history.getEndTime(index)));
+        json.append(",\"startTime\":").append(history.getStartTime(index));
+        json.append(",\"endTime\":").append(history.getEndTime(index));
+        json.append(",\"vwap\":");
+        double vwap = history.getVwap(index);
+        if (Double.isFinite(vwap)) {
+            Utils.appendDecimal(json, vwap, 4);
+        } else {
+            json.append("null");
+        }
+        json.append(",\"volume\":").append(history.getVolume(index)).append('}');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static String error(String message) {
+
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        return json.append('}').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
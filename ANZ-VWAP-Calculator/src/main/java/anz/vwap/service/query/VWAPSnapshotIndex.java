@@ -0,0 +1,198 @@
+package anz.vwap.service.query;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.WindowAggregator;
+import anz.vwap.service.engine.WindowListener;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the VWAP of the latest closed windows of each currency pair for concurrent lookups.
+ * The ingestion thread passes every closed window to {@link #onWindowClosed}, which builds a new
+ * immutable {@link Snapshot} from the previous one and publishes it with a single reference write.
+ * Readers take the current snapshot with {@link #getSnapshot()} and never lock or wait, and the
+ * ingestion thread never waits for readers. A reader always sees whole windows: the histories of all
+ * pairs in one snapshot end at the same or an earlier window, never half of one.
+ * Copying costs one map of all pairs plus the history of each pair that traded in the window, once per
+ * window rather than per tick.
+ * Pairs are looked up ignoring case, as {@link CurrencyPairDictionary} groups them, and keep the spelling
+ * of the dictionary. Only closed windows are published, so the latest window of a pair may end up to one
+ * time window before the latest tick.
+ */
+public class VWAPSnapshotIndex implements WindowListener {
+
+    public static final int DEFAULT_HISTORY_SIZE = 60;
+
+    private final CurrencyPairDictionary currencyPairs;
+    private final int historySize;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(0, Map.of()));
+
+    public VWAPSnapshotIndex(CurrencyPairDictionary currencyPairs) {
+        this(currencyPairs, DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * @param currencyPairs Dictionary of the engine that closes the windows.
+     * @param historySize Maximum number of windows kept per currency pair, including the latest.
+     */
+    public VWAPSnapshotIndex(CurrencyPairDictionary currencyPairs, int historySize) {
+        if (historySize <= 0) {
+            throw new IllegalArgumentException("History size must be positive");
+        }
+        this.currencyPairs = currencyPairs;
+        this.historySize = historySize;
+    }
+
+    /**
+     * Publishes the VWAP of each pair of a closed window. Must be called from a single thread, as
+     * {@link anz.vwap.service.engine.VWAPEngine} does.
+     */
+    @Override
+    public void onWindowClosed(long startTime, long endTime, WindowAggregator window) {
+
+        Snapshot previous = snapshot.get();
+        Map<String, PairHistory> pairs = new HashMap<>(previous.pairs);
+        for (int slot = 0; slot < window.size(); slot++) {
+            String currencyPair = currencyPairs.getName(window.getPairId(slot));
+            String key = CurrencyPairDictionary.foldCase(currencyPair);
+            long volume = window.getCumulativeVolume(slot);
+            double vwap = window.isFixedPoint() ? window.getFixedPointVwap(slot, 4)
+                                                : window.getCumulativePriceVolume(slot) / volume;
+            pairs.put(key, PairHistory.append(pairs.get(key), currencyPair, historySize, startTime, endTime, vwap, volume));
+        }
+        snapshot.set(new Snapshot(previous.version + 1, Collections.unmodifiableMap(pairs)));
+    }
+
+    /**
+     * @return The latest published snapshot. It does not change when later windows close.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * VWAP histories of all currency pairs as of one closed window.
+     */
+    public static final class Snapshot {
+
+        private final long version;
+        private final Map<String, PairHistory> pairs; // by case-folded pair name
+
+        Snapshot(long version, Map<String, PairHistory> pairs) {
+            this.version = version;
+            this.pairs = pairs;
+        }
+
+        /**
+         * @return The number of windows closed before this snapshot was published.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @param currencyPair Currency pair, e.g. AUD/USD, in any case.
+         * @return The history of the pair, or null if it has not traded in a closed window.
+         */
+        public PairHistory get(String currencyPair) {
+            return pairs.get(CurrencyPairDictionary.foldCase(currencyPair));
+        }
+
+        /**
+         * @return The names of the currency pairs in alphabetical order.
+         */
+        public Set<String> getCurrencyPairs() {
+            Set<String> currencyPairs = new TreeSet<>();
+            pairs.values().forEach(history -> currencyPairs.add(history.getCurrencyPair()));
+            return currencyPairs;
+        }
+    }
+
+    /**
+     * The latest windows of one currency pair, oldest first.
+     */
+    public static final class PairHistory {
+
+        private final String currencyPair;
+        private final long[] startTimes;
+        private final long[] endTimes;
+        private final double[] vwaps;
+        private final long[] volumes;
+
+        private PairHistory(String currencyPair, long[] startTimes, long[] endTimes, double[] vwaps, long[] volumes) {
+            this.currencyPair = currencyPair;
+            this.startTimes = startTimes;
+            this.endTimes = endTimes;
+            this.vwaps = vwaps;
+            this.volumes = volumes;
+        }
+
+        static PairHistory append(PairHistory previous, String currencyPair, int historySize, long startTime, long endTime,
+                                  double vwap, long volume) {
+
+            int kept = previous == null ? 0 : Math.min(previous.size(), historySize - 1);
+            int from = previous == null ? 0 : previous.size() - kept;
+            long[] startTimes = new long[kept + 1];
+            long[] endTimes = new long[kept + 1];
+            double[] vwaps = new double[kept + 1];
+            long[] volumes = new long[kept + 1];
+            if (kept > 0) {
+                System.arraycopy(previous.startTimes, from, startTimes, 0, kept);
+                System.arraycopy(previous.endTimes, from, endTimes, 0, kept);
+                System.arraycopy(previous.vwaps, from, vwaps, 0, kept);
+                System.arraycopy(previous.volumes, from, volumes, 0, kept);
+            }
+            startTimes[kept] = startTime;
+            endTimes[kept] = endTime;
+            vwaps[kept] = vwap;
+            volumes[kept] = volume;
+            return new PairHistory(currencyPair, startTimes, endTimes, vwaps, volumes);
+        }
+
+        public String getCurrencyPair() {
+            return currencyPair;
+        }
+
+        public int size() {
+            return vwaps.length;
+        }
+
+        /**
+         * @return The index of the latest window.
+         */
+        public int latest() {
+            return vwaps.length - 1;
+        }
+
+        public long getStartTime(int index) {
+            return startTimes[index];
+        }
+
+        public long getEndTime(int index) {
+            return endTimes[index];
+        }
+
+        public double getVwap(int index) {
+            return vwaps[index];
+        }
+
+        public long getVolume(int index) {
+            return volumes[index];
+        }
+
+        @Override
+        public String toString() {
+            return currencyPair + " " + Arrays.toString(vwaps);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package anz.vwap.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Writes synthetic tick files in the CSV input format, for benchmarks and load tests.
+ * Ticks cycle through the configured number of currency pairs in random order, with prices that
+ * take a random walk per pair and volumes written with thousands separators, e.g. 1,250,000.
+ * Timestamps start at 12:00 AM and advance by one minute every {@code ticksPerMinute} rows,
+ * stopping at 11:59 PM. The same seed always produces the same file.
+ * For load tests the mix can be made more realistic: a Zipf skew makes a few pairs trade far more
+ * often than the rest, a share of ticks can arrive a few minutes late, volumes can be written without
+ * thousands separators, and a share of rows can be malformed in the ways the CSV readers tolerate:
+ * blank lines, CRLF line breaks, quoted fields, padding around fields and lower-case names. With the
+ * defaults none of these draw random numbers, so files of earlier versions are reproduced exactly.
+ */
+public class SyntheticTickGenerator {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MAX_LATENESS_MINUTES = 5;
+    private static final int MALFORMED_ROW_KINDS = 5;
+
+    private final int pairCount;
+    private final int ticksPerMinute;
+    private final long seed;
+    private double skew;
+    private double outOfOrderRate;
+    private double malformedRowRate;
+    private double splitVolumeRate = 1;
+
+    /**
+     * @param pairCount Number of distinct currency pairs.
+     * @param ticksPerMinute Number of ticks with the same timestamp.
+     * @param seed Seed of the random numbers.
+     */
+    public SyntheticTickGenerator(int pairCount, int ticksPerMinute, long seed) {
+        if (pairCount <= 0 || ticksPerMinute <= 0) {
+            throw new IllegalArgumentException("Pair count and tick rate must be positive");
+        }
+        this.pairCount = pairCount;
+        this.ticksPerMinute = ticksPerMinute;
+        this.seed = seed;
+    }
+
+    /**
+     * @param skew Exponent of the Zipf distribution of ticks over pairs, 0 for uniform. With 1, the most
+     * traded pair has twice as many ticks as the second and ten times as many as the tenth.
+     */
+    public void setSkew(double skew) {
+        if (skew < 0) {
+            throw new IllegalArgumentException("Skew must not be negative");
+        }
+        this.skew = skew;
+    }
+
+    /**
+     * @param outOfOrderRate Share of ticks whose timestamp is one to five minutes earlier than the previous one.
+     */
+    public void setOutOfOrderRate(double outOfOrderRate) {
+        this.outOfOrderRate = checkRate(outOfOrderRate);
+    }
+
+    /**
+     * @param malformedRowRate Share of rows that are malformed in a way the CSV readers tolerate.
+     */
+    public void setMalformedRowRate(double malformedRowRate) {
+        this.malformedRowRate = checkRate(malformedRowRate);
+    }
+
+    /**
+     * @param splitVolumeRate Share of volumes written with thousands separators, which split them over several fields.
+     */
+    public void setSplitVolumeRate(double splitVolumeRate) {
+        this.splitVolumeRate = checkRate(splitVolumeRate);
+    }
+
+    /**
+     * Writes ticks until the file reaches a target size.
+     * @param csvFilePath File to write.
+     * @param targetBytes Approximate size of the file in bytes.
+     * @return The number of ticks written.
+     * @throws IOException When the file cannot be written.
+     */
+    public long writeCsv(Path csvFilePath, long targetBytes) throws IOException {
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFilePath)) {
+            return write(writer, Long.MAX_VALUE, targetBytes);
+        }
+    }
+
+    /**
+     * Writes a fixed number of ticks.
+     * @param writer Destination of the CSV text. It is not closed.
+     * @param tickCount Number of ticks to write.
+     * @return The number of ticks written.
+     * @throws IOException When the ticks cannot be written.
+     */
+    public long write(Writer writer, long tickCount) throws IOException {
+        return write(writer, tickCount, Long.MAX_VALUE);
+    }
+
+    /**
+     * Writes a fixed number of ticks to a file.
+     * @param csvFilePath File to write.
+     * @param tickCount Number of ticks to write.
+     * @return The number of ticks written.
+     * @throws IOException When the file cannot be written.
+     */
+    public long writeTicks(Path csvFilePath, long tickCount) throws IOException {
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFilePath)) {
+            return write(writer, tickCount, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Returns the name of a generated currency pair, e.g. C0007/USD.
+     */
+    public static String getCurrencyPair(int pairIndex) {
+        return String.format("C%04d/USD", pairIndex);
+    }
+
+    private long write(Writer writer, long tickCount, long targetBytes) throws IOException {
+
+        Random random = new Random(seed);
+        String[] currencyPairs = new String[pairCount];
+        double[] prices = new double[pairCount];
+        for (int i = 0; i < pairCount; i++) {
+            currencyPairs[i] = getCurrencyPair(i);
+            prices[i] = 0.5 + random.nextDouble() * 200;
+        }
+        double[] cumulativeWeights = skew > 0 ? zipfCumulativeWeights(pairCount, skew) : null;
+        StringBuilder line = new StringBuilder(64);
+        String header = "TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n";
+        writer.write(header);
+        long bytes = header.length();
+        long ticks = 0;
+        while (ticks < tickCount && bytes < targetBytes) {
+            int minuteOfDay = (int) Math.min(MINUTES_PER_DAY - 1, ticks / ticksPerMinute);
+            if (outOfOrderRate > 0 && random.nextDouble() < outOfOrderRate) {
+                minuteOfDay = Math.max(0, minuteOfDay - 1 - random.nextInt(MAX_LATENESS_MINUTES));
+            }
+            int pair = cumulativeWeights == null ? random.nextInt(pairCount) : nextSkewedPair(random, cumulativeWeights);
+            prices[pair] = Math.max(0.0001, prices[pair] * (1 + (random.nextDouble() - 0.5) / 500));
+            long volume = 1000L * (1 + random.nextInt(100_000));
+            boolean splitVolume = splitVolumeRate >= 1 || (splitVolumeRate > 0 && random.nextDouble() < splitVolumeRate);
+            int malformation = malformedRowRate > 0 && random.nextDouble() < malformedRowRate ? random.nextInt(MALFORMED_ROW_KINDS) : -1;
+
+            line.setLength(0);
+            appendTick(line, minuteOfDay, currencyPairs[pair], Math.round(prices[pair] * 10000) / 10000.0, volume, splitVolume,
+                       malformation);
+            writer.append(line);
+            bytes += line.length();
+            ticks++;
+        }
+        return ticks;
+    }
+
+    private static void appendTick(StringBuilder line, int minuteOfDay, String currencyPair, double price, long volume,
+                                   boolean splitVolume, int malformation) {
+
+        String volumeText = splitVolume ? String.format(Locale.ENGLISH, "%,d", volume) : Long.toString(volume);
+        switch (malformation) {
+            case 0 -> {
+                // Blank line before the row
+                line.append('\n');
+                appendTick(line, minuteOfDay, currencyPair, price, volumeText);
+                line.append('\n');
+            }
+            case 1 -> {
+                appendTick(line, minuteOfDay, currencyPair, price, volumeText);
+                line.append("\r\n");
+            }
+            case 2 -> {
+                // A quoted volume would keep its thousands separators, so only the pair and price are quoted
+                appendTimestamp(line, minuteOfDay);
+                line.append(",\"").append(currencyPair).append("\",\"").append(price).append("\",").append(volumeText).append('\n');
+            }
+            case 3 -> {
+                line.append("  ");
+                appendTimestamp(line, minuteOfDay);
+                line.append(" ,").append(currencyPair).append(" ,\t").append(price).append(",  ").append(volumeText).append(" \n");
+            }
+            case 4 -> {
+                int start = line.length();
+                appendTick(line, minuteOfDay, currencyPair, price, volumeText);
+                line.replace(start, line.length(), line.substring(start).toLowerCase(Locale.ROOT));
+                line.append('\n');
+            }
+            default -> {
+                appendTick(line, minuteOfDay, currencyPair, price, volumeText);
+                line.append('\n');
+            }
+        }
+    }
+
+    private static void appendTick(StringBuilder line, int minuteOfDay, String currencyPair, double price, String volumeText) {
+        appendTimestamp(line, minuteOfDay);
+        line.append(", ").append(currencyPair).append(", ").append(price).append(", ").append(volumeText);
+    }
+
+    private static void appendTimestamp(StringBuilder line, int minuteOfDay) {
+        int hour = minuteOfDay / 60 % 12;
+        int minute = minuteOfDay % 60;
+        line.append(hour == 0 ? 12 : hour).append(':');
+        if (minute < 10) {
+            line.append('0');
+        }
+        line.append(minute).append(minuteOfDay < MINUTES_PER_DAY / 2 ? " AM" : " PM");
+    }
+
+    private static double checkRate(double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Rate must be between 0 and 1");
+        }
+        return rate;
+    }
+
+    private static double[] zipfCumulativeWeights(int pairCount, double skew) {
+
+        double[] cumulativeWeights = new double[pairCount];
+        double sum = 0;
+        for (int i = 0; i < pairCount; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cumulativeWeights[i] = sum;
+        }
+        for (int i = 0; i < pairCount; i++) {
+            cumulativeWeights[i] /= sum;
+        }
+        return cumulativeWeights;
+    }
+
+    private static int nextSkewedPair(Random random, double[] cumulativeWeights) {
+        int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cumulativeWeights.length - 1);
+    }
+
+    /**
+     * Usage: SyntheticTickGenerator output.csv size-in-mb [pair-count] [ticks-per-minute] [seed]
+     * [--skew=exponent] [--out-of-order=rate] [--malformed=rate] [--split-volume=rate]
+     */
+    public static void main(String[] args) throws IOException {
+
+        List<String> positional = new ArrayList<>();
+        double skew = 0;
+        double outOfOrderRate = 0;
+        double malformedRowRate = 0;
+        double splitVolumeRate = 1;
+        for (String arg : args) {
+            if (arg.startsWith("--skew=")) {
+                skew = Double.parseDouble(arg.substring("--skew=".length()));
+            } else if (arg.startsWith("--out-of-order=")) {
+                outOfOrderRate = Double.parseDouble(arg.substring("--out-of-order=".length()));
+            } else if (arg.startsWith("--malformed=")) {
+                malformedRowRate = Double.parseDouble(arg.substring("--malformed=".length()));
+            } else if (arg.startsWith("--split-volume=")) {
+                splitVolumeRate = Double.parseDouble(arg.substring("--split-volume=".length()));
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() < 2) {
+            System.out.println("Usage: SyntheticTickGenerator <output.csv> <size-in-mb> [pair-count] [ticks-per-minute] [seed] "
+                               + "[--skew=<exponent>] [--out-of-order=<rate>] [--malformed=<rate>] [--split-volume=<rate>]");
+            return;
+        }
+        int pairCount = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : 100;
+        int ticksPerMinute = positional.size() > 3 ? Integer.parseInt(positional.get(3)) : 10_000;
+        long seed = positional.size() > 4 ? Long.parseLong(positional.get(4)) : 1;
+        SyntheticTickGenerator generator = new SyntheticTickGenerator(pairCount, ticksPerMinute, seed);
+        generator.setSkew(skew);
+        generator.setOutOfOrderRate(outOfOrderRate);
+        generator.setMalformedRowRate(malformedRowRate);
+        generator.setSplitVolumeRate(splitVolumeRate);
+        long ticks = generator.writeCsv(Paths.get(positional.get(0)), Long.parseLong(positional.get(1)) * 1024 * 1024);
+        System.out.println("Wrote " + ticks + " ticks to " + positional.get(0));
+    }
+}
@@ -0,0 +1,68 @@
+package anz.vwap.tools;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.batch.DailyTickFile;
+import anz.vwap.service.binary.BinaryTickWriter;
+import anz.vwap.service.csv.TickParser;
+import anz.vwap.util.TimestampConverter;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+
+/**
+ * Converts CSV tick files to binary tick files, so that archived days can be replayed without parsing text.
+ * Timestamps are converted on the session date of the file, with the same midnight rollover as the batch
+ * mode, so a session that runs past midnight keeps increasing.
+ */
+public class TickFileConverter {
+
+    /**
+     * Converts a CSV tick file of today's session to a binary tick file.
+     * @param csvFilePath CSV file to read.
+     * @param binaryFilePath Binary file to write. An existing file is replaced.
+     * @return The number of ticks converted.
+     * @throws Exception When the CSV file has an invalid row or a file cannot be read or written.
+     */
+    public static long convert(Path csvFilePath, Path binaryFilePath) throws Exception {
+        return convert(csvFilePath, binaryFilePath, LocalDate.now());
+    }
+
+    /**
+     * Converts a CSV tick file to a binary tick file.
+     * @param csvFilePath CSV file to read.
+     * @param binaryFilePath Binary file to write. An existing file is replaced.
+     * @param sessionDate Date of the session that the file holds.
+     * @return The number of ticks converted.
+     * @throws Exception When the CSV file has an invalid row or a file cannot be read or written.
+     */
+    public static long convert(Path csvFilePath, Path binaryFilePath, LocalDate sessionDate) throws Exception {
+
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        try (TickParser tickParser = new TickParser(FileChannel.open(csvFilePath), currencyPairs, new TimestampConverter(sessionDate));
+             BinaryTickWriter writer = new BinaryTickWriter(binaryFilePath, currencyPairs)) {
+            tickParser.setMidnightRollover(true);
+            while (tickParser.next()) {
+                writer.write(tickParser.getTimestamp(), tickParser.getPairId(), tickParser.getPrice(), tickParser.getVolume());
+            }
+            return writer.getRecordCount();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 2) {
+            System.out.println("Usage: TickFileConverter <input.csv> <output.ticks> [yyyy-MM-dd]");
+            return;
+        }
+        // The session date defaults to the date in the file name, as in batch mode, and then to today
+        Path csvFilePath = Paths.get(args[0]);
+        LocalDate sessionDate = args.length > 2 ? LocalDate.parse(args[2]) : DailyTickFile.inferSessionDate(csvFilePath);
+        if (sessionDate == null) {
+            sessionDate = LocalDate.now();
+        }
+        long ticks = convert(csvFilePath, Paths.get(args[1]), sessionDate);
+        System.out.println("Converted " + ticks + " ticks of " + sessionDate + " to " + args[1]);
+    }
+}
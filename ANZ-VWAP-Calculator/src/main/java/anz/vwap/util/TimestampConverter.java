@@ -0,0 +1,186 @@
+package anz.vwap.util;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * Converts tick timestamps such as "9:05 am" to epoch milliseconds on a given session date.
+ * Timestamps have minute resolution, so the epoch time of every minute of the session date is
+ * computed once up front and conversion is a hand-written scan plus an array lookup.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class TimestampConverter {
+
+    /** Returned by the conversion methods when a timestamp is not valid. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final LocalDate sessionDate;
+    private final ZoneId zoneId;
+    private final long[] epochMillisByMinute = new long[MINUTES_PER_DAY];
+
+    public TimestampConverter(LocalDate sessionDate) {
+        this(sessionDate, ZoneId.systemDefault());
+    }
+
+    public TimestampConverter(LocalDate sessionDate, ZoneId zoneId) {
+        this.sessionDate = sessionDate;
+        this.zoneId = zoneId;
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            epochMillisByMinute[minute] = sessionDate.atTime(LocalTime.of(minute / 60, minute % 60))
+                                                     .atZone(zoneId)
+                                                     .toInstant()
+                                                     .toEpochMilli();
+        }
+    }
+
+    public LocalDate getSessionDate() {
+        return sessionDate;
+    }
+
+    /**
+     * @return A converter for the day after the session date, in the same time zone.
+     */
+    public TimestampConverter nextDay() {
+        return new TimestampConverter(sessionDate.plusDays(1), zoneId);
+    }
+
+    /**
+     * Converts a timestamp to epoch milliseconds.
+     * @param timestamp Timestamp in the format h:mm am/pm, e.g. 9:05 AM.
+     * @return Epoch milliseconds, or {@link #INVALID} if the timestamp is not valid.
+     */
+    public long toEpochMillis(CharSequence timestamp) {
+        int minuteOfDay = parseMinuteOfDay(timestamp);
+        return minuteOfDay < 0 ? INVALID : epochMillisByMinute[minuteOfDay];
+    }
+
+    /**
+     * Converts a timestamp given as ASCII bytes to epoch milliseconds.
+     * @param bytes Buffer holding the timestamp.
+     * @param start Offset of the timestamp in the buffer.
+     * @param end Offset after the timestamp.
+     * @return Epoch milliseconds, or {@link #INVALID} if the timestamp is not valid.
+     */
+    public long toEpochMillis(byte[] bytes, int start, int end) {
+        int minuteOfDay = parseMinuteOfDay(bytes, start, end);
+        return minuteOfDay < 0 ? INVALID : epochMillisByMinute[minuteOfDay];
+    }
+
+    /**
+     * Returns the epoch milliseconds of a minute of the session date.
+     * @param minuteOfDay Minutes since midnight, 0 to 1439.
+     * @return Epoch milliseconds.
+     */
+    public long toEpochMillis(int minuteOfDay) {
+        return epochMillisByMinute[minuteOfDay];
+    }
+
+    /**
+     * Parses a timestamp in the format h:mm am/pm. The hour has no leading zero, one optional
+     * whitespace may precede the case-insensitive am/pm marker, and 12 am is midnight.
+     * @param timestamp Timestamp to parse.
+     * @return Minutes since midnight, or -1 if the timestamp is not valid.
+     */
+    public static int parseMinuteOfDay(CharSequence timestamp) {
+
+        int length = timestamp.length();
+        if (length < 6 || length > 8) {
+            return -1;
+        }
+        int c0 = timestamp.charAt(0);
+        int c1 = timestamp.charAt(1);
+        int hour;
+        int i;
+        if (c1 == ':' && c0 >= '1' && c0 <= '9') {
+            hour = c0 - '0';
+            i = 2;
+        } else if (c0 == '1' && c1 >= '0' && c1 <= '2' && timestamp.charAt(2) == ':') {
+            hour = 10 + c1 - '0';
+            i = 3;
+        } else {
+            return -1;
+        }
+        if (i + 4 > length) {
+            return -1;
+        }
+        int m0 = timestamp.charAt(i) - '0';
+        int m1 = timestamp.charAt(i + 1) - '0';
+        if (m0 < 0 || m0 > 5 || m1 < 0 || m1 > 9) {
+            return -1;
+        }
+        i += 2;
+        if (length - i == 3) {
+            if (!isWhitespace(timestamp.charAt(i))) {
+                return -1;
+            }
+            i++;
+        } else if (length - i != 2) {
+            return -1;
+        }
+        return toMinuteOfDay(hour, m0 * 10 + m1, timestamp.charAt(i), timestamp.charAt(i + 1));
+    }
+
+    /**
+     * Same as {@link #parseMinuteOfDay(CharSequence)} for a timestamp given as ASCII bytes.
+     */
+    public static int parseMinuteOfDay(byte[] bytes, int start, int end) {
+
+        int length = end - start;
+        if (length < 6 || length > 8) {
+            return -1;
+        }
+        int c0 = bytes[start];
+        int c1 = bytes[start + 1];
+        int hour;
+        int i;
+        if (c1 == ':' && c0 >= '1' && c0 <= '9') {
+            hour = c0 - '0';
+            i = start + 2;
+        } else if (c0 == '1' && c1 >= '0' && c1 <= '2' && bytes[start + 2] == ':') {
+            hour = 10 + c1 - '0';
+            i = start + 3;
+        } else {
+            return -1;
+        }
+        if (i + 4 > end) {
+            return -1;
+        }
+        int m0 = bytes[i] - '0';
+        int m1 = bytes[i + 1] - '0';
+        if (m0 < 0 || m0 > 5 || m1 < 0 || m1 > 9) {
+            return -1;
+        }
+        i += 2;
+        if (end - i == 3) {
+            if (!isWhitespace((char) bytes[i])) {
+                return -1;
+            }
+            i++;
+        } else if (end - i != 2) {
+            return -1;
+        }
+        return toMinuteOfDay(hour, m0 * 10 + m1, (char) bytes[i], (char) bytes[i + 1]);
+    }
+
+    private static int toMinuteOfDay(int hour, int minute, char marker, char m) {
+
+        if (m != 'm' && m != 'M') {
+            return -1;
+        }
+        int hourOfDay = hour == 12 ? 0 : hour;
+        if (marker == 'p' || marker == 'P') {
+            hourOfDay += 12;
+        } else if (marker != 'a' && marker != 'A') {
+            return -1;
+        }
+        return hourOfDay * 60 + minute;
+    }
+
+    private static boolean isWhitespace(char c) {
+        // Same characters as \s in java.util.regex
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
@@ -1,31 +1,105 @@
 package anz.vwap.util;
 
-import org.springframework.util.StringUtils;
-
 import java.text.NumberFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Locale;
-import java.util.regex.Pattern;
 
 public final class Utils {
 
     public static String DATE_TIME_FORMAT = "dd/MM/yyyy h:mm a";
-    private static String today;
-    private static NumberFormat numberFormat;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("hh:mm a");
+    private static volatile TimestampConverter todayConverter;
+    private static final ThreadLocal<NumberFormat> numberFormat = ThreadLocal.withInitial(() -> {
+        NumberFormat numberFormat = NumberFormat.getNumberInstance(Locale.ENGLISH);
+        // for trailing zeros:
+        numberFormat.setMinimumFractionDigits(2);
+        // so that values of 1,000 and above can be parsed back
+        numberFormat.setGroupingUsed(false);
+        return numberFormat;
+    });
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+    // Scaled values this close to a rounding tie are rounded exactly
+    private static final double TIE_MARGIN = 1e-6;
+    // Above this the scaled value no longer has enough fraction bits to tell ties apart
+    private static final double MAX_SCALED_VALUE = 1e15;
 
     public static double roundToDecimalPlaces(double value, int maxDecimalPlaces) {
-        if (numberFormat == null) {
-            numberFormat = NumberFormat.getNumberInstance(Locale.ENGLISH);
-            // for trailing zeros:
-            numberFormat.setMinimumFractionDigits(2);
+
+        double scaled = roundScaled(value, maxDecimalPlaces);
+        if (!Double.isNaN(scaled)) {
+            // Both operands are exact, so the quotient is the double nearest to the decimal
+            return scaled / POWERS_OF_TEN[maxDecimalPlaces];
         }
+        NumberFormat numberFormat = Utils.numberFormat.get();
         numberFormat.setMaximumFractionDigits(maxDecimalPlaces);
         return Double.valueOf(numberFormat.format(value));
     }
 
+    /**
+     * Appends a value rounded to decimal places, as {@link Double#toString(double)} of
+     * {@link #roundToDecimalPlaces(double, int)} would, but without creating any objects for
+     * values from 0.001 up to 10 million.
+     * @param out Builder to append to.
+     * @param value Value to format.
+     * @param maxDecimalPlaces Maximum number of decimal places, up to 9.
+     * @return The builder.
+     */
+    public static StringBuilder appendDecimal(StringBuilder out, double value, int maxDecimalPlaces) {
+
+        double scaled = roundScaled(value, maxDecimalPlaces);
+        double power = Double.isNaN(scaled) ? 0 : POWERS_OF_TEN[maxDecimalPlaces];
+        double magnitude = Math.abs(scaled);
+        // Double.toString switches to computerized scientific notation outside this range
+        if (Double.isNaN(scaled) || magnitude < 1e-3 * power || magnitude >= 1e7 * power) {
+            return out.append(roundToDecimalPlaces(value, maxDecimalPlaces));
+        }
+        long units = (long) magnitude;
+        long unitsPerOne = (long) power;
+        if (scaled < 0) {
+            out.append('-');
+        }
+        out.append(units / unitsPerOne).append('.');
+        if (maxDecimalPlaces == 0) {
+            return out.append('0');
+        }
+        long fraction = units % unitsPerOne;
+        int digits = maxDecimalPlaces;
+        while (digits > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        for (long divisor = (long) POWERS_OF_TEN[digits - 1]; divisor > 1 && fraction < divisor; divisor /= 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+
+    /**
+     * Rounds a value scaled by 10 to the power of the decimal places half-even, as {@link NumberFormat} does.
+     * @return The rounded scaled value, or NaN when it is not finite, too large or too close to a tie to
+     * be rounded from the scaled double.
+     */
+    private static double roundScaled(double value, int maxDecimalPlaces) {
+
+        if (maxDecimalPlaces < 0 || maxDecimalPlaces >= POWERS_OF_TEN.length) {
+            return Double.NaN;
+        }
+        double scaled = value * POWERS_OF_TEN[maxDecimalPlaces];
+        if (!(Math.abs(scaled) < MAX_SCALED_VALUE)) {
+            return Double.NaN;
+        }
+        double rounded = Math.rint(scaled);
+        if (Math.abs(Math.abs(scaled - rounded) - 0.5) < TIE_MARGIN) {
+            return Double.NaN;
+        }
+        return rounded;
+    }
+
     /**
      * Converts timestamp which is represented by string to long value.
      * @param timestampAsString Timestamp as string.
@@ -34,37 +108,44 @@ public final class Utils {
      */
     public static long convertTimestampToLong(String timestampAsString) throws Exception {
 
-        if (!isValidate(timestampAsString)) {
+        long timestamp = getTimestampConverter().toEpochMillis(timestampAsString == null ? "" : timestampAsString);
+        if (timestamp == TimestampConverter.INVALID) {
             throw new Exception("Timestamp is not valid");
         }
-        if (!StringUtils.hasText(today)) {
-            today = getTodayAsString();
-        }
-        StringBuilder strBuilder = new StringBuilder(today);
-        String dateTime = strBuilder.append(" ").append(timestampAsString).toString();
-        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_TIME_FORMAT);
-        Date today = dateFormat.parse(dateTime);
-
-        return today.getTime();
+        return timestamp;
     }
 
-    private static boolean isValidate(String timestamp) {
+    /**
+     * Formats a time window for display, e.g. 09:00 AM - 10:00 AM.
+     * @param startTime Start of the window in milliseconds.
+     * @param endTime End of the window in milliseconds.
+     * @return The formatted time window.
+     */
+    public static String createTimeWindow(long startTime, long endTime) {
+        ZoneId zoneId = ZoneId.systemDefault();
+        StringBuilder timeWindow = new StringBuilder();
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(startTime).atZone(zoneId), timeWindow);
+        timeWindow.append(" - ");
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(endTime).atZone(zoneId), timeWindow);
+        return timeWindow.toString().toUpperCase();
+    }
 
-        if (!StringUtils.hasText(timestamp)) {
-            return false;
+    /**
+     * Returns the converter for timestamps on today's date, which is fixed on first use.
+     * It can be shared between threads.
+     * @return The timestamp converter.
+     */
+    public static TimestampConverter getTimestampConverter() {
+        TimestampConverter converter = todayConverter;
+        if (converter == null) {
+            synchronized (Utils.class) {
+                converter = todayConverter;
+                if (converter == null) {
+                    converter = new TimestampConverter(LocalDate.now());
+                    todayConverter = converter;
+                }
+            }
         }
-        String regexPattern = "(1[012]|[1-9]):[0-5][0-9](\\s)?(?i)(am|pm)";
-
-        // Compile the ReGex
-        Pattern compiledPattern = Pattern.compile(regexPattern);
-        return compiledPattern.matcher(timestamp).matches();
-    }
-    private static String getTodayAsString() {
-        Calendar calendar = Calendar.getInstance();
-        int day = calendar.get(Calendar.DAY_OF_MONTH);
-        int month = calendar.get(Calendar.MONTH) + 1; // Add 1 since January starts at 0
-        int year = calendar.get(Calendar.YEAR);
-        StringBuilder dateAsStr = new StringBuilder();
-        return dateAsStr.append(day).append("/").append(month).append("/").append(year).toString();
+        return converter;
     }
 }
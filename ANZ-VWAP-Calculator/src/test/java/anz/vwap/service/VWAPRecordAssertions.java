@@ -0,0 +1,49 @@
+package anz.vwap.service;
+
+import anz.vwap.service.csv.model.VWAPRecord;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the VWAP records that two ways of calculating the same input return.
+ */
+public final class VWAPRecordAssertions {
+
+    private VWAPRecordAssertions() {
+    }
+
+    /**
+     * Asserts that the records have the same windows, pairs and volumes, in the same order, and exactly the
+     * same cumulative price-volume, i.e. that the ticks were added in the same order.
+     */
+    public static void assertSameRecords(List<VWAPRecord> expected, List<VWAPRecord> actual) {
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameWindowAndVolume(expected.get(i), actual.get(i));
+            assertEquals(expected.get(i).getCumulativePriceVolume(), actual.get(i).getCumulativePriceVolume());
+        }
+    }
+
+    /**
+     * Asserts that the records have the same windows, pairs and volumes, in the same order, and VWAPs that
+     * differ by at most delta, e.g. when the sums were added in a different order or as fixed-point.
+     */
+    public static void assertSameVWAP(List<VWAPRecord> expected, List<VWAPRecord> actual, double delta) {
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameWindowAndVolume(expected.get(i), actual.get(i));
+            assertEquals(expected.get(i).getVwap(), actual.get(i).getVwap(), delta);
+        }
+    }
+
+    private static void assertSameWindowAndVolume(VWAPRecord expected, VWAPRecord actual) {
+        assertEquals(expected.getTimeWindow(), actual.getTimeWindow());
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getCurrencyPair(), actual.getCurrencyPair());
+        assertEquals(expected.getCumulativeVolume(), actual.getCumulativeVolume());
+    }
+}
@@ -0,0 +1,116 @@
+package anz.vwap.service.aggregate;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.csv.model.VWAPRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import static anz.vwap.service.VWAPRecordAssertions.assertSameVWAP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FixedPointTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void parsePriceUnits_WILL_convertExactly_WHEN_priceIsPlainDecimal() {
+        assertEquals(65_440_000L, parse("0.6544"));
+        assertEquals(16_423_400_000L, parse("164.234"));
+        assertEquals(-150_000_000L, parse("-1.5"));
+        assertEquals(12_345_678L, parse("0.123456785"));
+        assertEquals(12_345_678L, parse("0.123456775"));
+        assertEquals(12_345_679L, parse("0.1234567851"));
+        assertEquals(FixedPoint.INVALID, parse("1e5"));
+        assertEquals(FixedPoint.INVALID, parse("."));
+    }
+
+    @Test
+    public void addFixedPoint_WILL_matchBigIntegerSum_WHEN_sumsExceed64Bits() {
+
+        // Given
+        Random random = new Random(42);
+        WindowAggregator window = new WindowAggregator();
+        BigInteger expected = BigInteger.ZERO;
+        long volumes = 0;
+
+        // Run test
+        for (int i = 0; i < 100_000; i++) {
+            long priceUnits = random.nextLong(1, 50_000L * FixedPoint.UNITS_PER_PRICE);
+            long volume = random.nextLong(1, 1_000_000_000L);
+            window.addFixedPoint(0, priceUnits, volume);
+            expected = expected.add(BigInteger.valueOf(priceUnits).multiply(BigInteger.valueOf(volume)));
+            volumes += volume;
+        }
+
+        // Verify test result
+        double expectedVwap = new BigDecimal(expected).divide(BigDecimal.valueOf(volumes).scaleByPowerOfTen(8), 4, RoundingMode.HALF_EVEN)
+                                                      .doubleValue();
+        assertEquals(expectedVwap, window.getFixedPointVwap(0, 4));
+        assertEquals(expected.doubleValue() / FixedPoint.UNITS_PER_PRICE, window.getCumulativePriceVolume(0), 1e-6);
+    }
+
+    @Test
+    public void vwap_WILL_roundHalfEven_WHEN_quotientIsTie() {
+        assertEquals(0.1234, FixedPoint.vwap(0, 12_345_000L, 1, 4));
+        assertEquals(0.1236, FixedPoint.vwap(0, 12_355_000L, 1, 4));
+        assertEquals(0.1236, FixedPoint.vwap(0, 12_355_001L, 1, 4));
+        assertEquals(-0.1236, FixedPoint.vwap(-1, -12_355_000L, 1, 4));
+    }
+
+    @Test
+    public void calculateExactVWAP_WILL_matchCalculateVWAP_WHEN_pricesHaveFewDecimals() throws Exception {
+
+        // Given
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+
+        // Run test
+        List<VWAPRecord> actual = vwapService.calculateExactVWAP(HOUR, csvFile);
+
+        // Verify test result
+        List<VWAPRecord> expected = vwapService.calculateVWAP(HOUR, csvFile);
+        assertSameVWAP(expected, actual, 0);
+    }
+
+    @Test
+    public void calculateExactVWAP_WILL_returnSameVwap_WHEN_tickOrderChanges() throws Exception {
+
+        // Given
+        StringBuilder ascending = new StringBuilder("TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n");
+        StringBuilder descending = new StringBuilder("TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n");
+        for (int i = 0; i < 1000; i++) {
+            ascending.append("9:00 AM, USD/JPY, 1").append(String.format("%05d", i)).append(".12345678, 7").append(i).append("000000\n");
+            int j = 999 - i;
+            descending.append("9:00 AM, USD/JPY, 1").append(String.format("%05d", j)).append(".12345678, 7").append(j).append("000000\n");
+        }
+        Path ascendingFile = Files.writeString(tempDir.resolve("ascending.csv"), ascending);
+        Path descendingFile = Files.writeString(tempDir.resolve("descending.csv"), descending);
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+
+        // Run test
+        VWAPRecord first = vwapService.calculateExactVWAP(HOUR, ascendingFile.toString()).get(0);
+        VWAPRecord second = vwapService.calculateExactVWAP(HOUR, descendingFile.toString()).get(0);
+
+        // Verify test result
+        assertEquals(first.getVwap(), second.getVwap());
+        assertEquals(first.getCumulativePriceVolume(), second.getCumulativePriceVolume());
+    }
+
+    private static long parse(String price) {
+        byte[] bytes = price.getBytes(StandardCharsets.US_ASCII);
+        return FixedPoint.parsePriceUnits(bytes, 0, bytes.length);
+    }
+}
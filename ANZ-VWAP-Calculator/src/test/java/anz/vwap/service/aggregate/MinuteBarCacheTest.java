@@ -0,0 +1,103 @@
+package anz.vwap.service.aggregate;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.csv.model.VWAPRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static anz.vwap.service.VWAPRecordAssertions.assertSameVWAP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MinuteBarCacheTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void calculateCachedVWAP_WILL_matchCalculateVWAP_WHEN_windowLengthChanges() throws Exception {
+
+        // Given
+        MinuteBarCache cache = new MinuteBarCache();
+        VWAPServiceImpl vwapService = new VWAPServiceImpl(cache);
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+
+        for (long timeWindow : new long[] {60 * MINUTE, 15 * MINUTE, 5 * MINUTE, MINUTE}) {
+            // Run test
+            List<VWAPRecord> actual = vwapService.calculateCachedVWAP(timeWindow, csvFile);
+
+            // Verify test result
+            List<VWAPRecord> expected = vwapService.calculateVWAP(timeWindow, csvFile);
+            assertSameVWAP(expected, actual, 0);
+        }
+        assertEquals(1, cache.getMissCount());
+        assertEquals(3, cache.getHitCount());
+    }
+
+    @Test
+    public void get_WILL_reloadFile_WHEN_fileHasBeenModified() throws Exception {
+
+        // Given
+        MinuteBarCache cache = new MinuteBarCache();
+        Path csvFile = tempDir.resolve("ticks.csv");
+        Files.writeString(csvFile, "TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n9:00 AM, AUD/USD, 0.65, 100\n");
+        TickSegments first = cache.get(csvFile, path -> segments(1));
+        assertSame(first, cache.get(csvFile, path -> segments(1)));
+
+        // Run test
+        Files.writeString(csvFile, "TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n9:00 AM, AUD/USD, 0.66, 100\n");
+        Files.setLastModifiedTime(csvFile, FileTime.fromMillis(Files.getLastModifiedTime(csvFile).toMillis() + 1000));
+        TickSegments second = cache.get(csvFile, path -> segments(1));
+
+        // Verify test result
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+        assertSame(second, cache.get(csvFile, path -> segments(1)));
+    }
+
+    @Test
+    public void get_WILL_evictLeastRecentlyUsedFile_WHEN_memoryBudgetIsExceeded() throws Exception {
+
+        // Given
+        long segmentSize = segments(1000).getMemoryUsage();
+        MinuteBarCache cache = new MinuteBarCache(segmentSize * 2);
+        Path[] files = new Path[3];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = Files.writeString(tempDir.resolve("ticks" + i + ".csv"), "file " + i);
+        }
+        cache.get(files[0], path -> segments(1000));
+        cache.get(files[1], path -> segments(1000));
+        cache.get(files[0], path -> segments(1000));
+
+        // Run test
+        cache.get(files[2], path -> segments(1000));
+
+        // Verify test result
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(segmentSize * 2, cache.getMemoryUsage());
+        cache.get(files[0], path -> segments(1000));
+        assertEquals(2, cache.getHitCount());
+        cache.get(files[1], path -> segments(1000));
+        assertEquals(4, cache.getMissCount());
+    }
+
+    private static TickSegments segments(int tickCount) {
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        TickSegments segments = new TickSegments(currencyPairs);
+        for (int i = 0; i < tickCount; i++) {
+            segments.add(currencyPairs.intern("P" + i % 10), i / 10 * MINUTE, 1.5, 100);
+        }
+        segments.finish();
+        return segments;
+    }
+}
@@ -0,0 +1,122 @@
+package anz.vwap.service.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WindowAggregatorTest {
+
+    @Test
+    public void intern_WILL_returnSamePairId_WHEN_currencyPairDiffersInCase() {
+
+        // Given
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+
+        // Run test
+        int audUsd = currencyPairs.intern("AUD/USD");
+        int usdJpy = currencyPairs.intern("USD/JPY");
+        int audUsdLowerCase = currencyPairs.intern("aud/usd");
+
+        // Verify test result
+        assertEquals(audUsd, audUsdLowerCase);
+        assertNotEquals(audUsd, usdJpy);
+        assertEquals("AUD/USD", currencyPairs.getName(audUsdLowerCase));
+        assertEquals(2, currencyPairs.size());
+    }
+
+    @Test
+    public void intern_WILL_keepPairIds_WHEN_dictionaryGrows() {
+
+        // Given
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+
+        // Run test
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, currencyPairs.intern("P" + i + "/USD"));
+        }
+
+        // Verify test result
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, currencyPairs.intern("p" + i + "/usd"));
+        }
+        assertEquals(1000, currencyPairs.size());
+    }
+
+    @Test
+    public void add_WILL_sumTicksPerPairInFirstAppearanceOrder_WHEN_pairsAreInterleaved() {
+
+        // Given
+        WindowAggregator window = new WindowAggregator();
+
+        // Run test
+        window.add(7, 65.0, 100);
+        window.add(2, 15000.0, 100);
+        window.add(7, 66.0, 100);
+
+        // Verify test result
+        assertEquals(2, window.size());
+        assertEquals(7, window.getPairId(0));
+        assertEquals(131.0, window.getCumulativePriceVolume(0));
+        assertEquals(200, window.getCumulativeVolume(0));
+        assertEquals(2, window.getPairId(1));
+        assertEquals(100, window.getCumulativeVolume(1));
+    }
+
+    @Test
+    public void clear_WILL_resetSums_WHEN_nextWindowStarts() {
+
+        // Given
+        WindowAggregator window = new WindowAggregator();
+        window.add(0, 10.0, 10);
+        window.add(1, 20.0, 10);
+
+        // Run test
+        window.clear();
+        window.add(1, 5.0, 1);
+
+        // Verify test result
+        assertEquals(1, window.size());
+        assertEquals(1, window.getPairId(0));
+        assertEquals(5.0, window.getCumulativePriceVolume(0));
+        assertEquals(1, window.getCumulativeVolume(0));
+        window.clear();
+        assertTrue(window.isEmpty());
+    }
+
+    @Test
+    public void addTick_WILL_accumulateSelectedMetrics_WHEN_windowGrowsAndTicksAreOutOfOrder() {
+
+        // Given
+        WindowAggregator window = new WindowAggregator(WindowMetric.parse("tick-count, Volume-Range,twap"));
+
+        // Run test
+        for (int pairId = 0; pairId < 100; pairId++) {
+            window.addTick(pairId, 0, 1.0, 10 + pairId);
+        }
+        window.addTick(99, 1000, 3.0, 5);
+        window.addTick(99, 500, 2.0, 200);
+
+        // Verify test result
+        assertEquals(100, window.size());
+        assertEquals(EnumSet.of(WindowMetric.TWAP, WindowMetric.TICK_COUNT, WindowMetric.VOLUME_RANGE), window.getMetrics());
+        assertEquals(3, window.getTickCount(99));
+        assertEquals(1, window.getTickCount(0));
+        assertEquals(5, window.getMinVolume(99));
+        assertEquals(200, window.getMaxVolume(99));
+        assertEquals(10, window.getMaxVolume(0));
+        // The late tick counts from the time of the tick before it
+        assertEquals((1.0 * 1000 + 2.0 * 1000) / 2000, window.getTwap(99, 2000), 1e-12);
+        assertEquals(1.0, window.getTwap(0, 2000));
+        assertEquals(1.0, window.getTwap(99, 1000));
+        window.clear();
+        window.addTick(99, 3000, 4.0, 1);
+        assertEquals(1, window.getTickCount(0));
+        assertEquals(4.0, window.getTwap(0, 4000));
+        assertThrows(IllegalArgumentException.class, () -> WindowMetric.parse("twap,vwap"));
+    }
+}
@@ -0,0 +1,99 @@
+package anz.vwap.service.batch;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.csv.model.VWAPRecordTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchVWAPCalculatorTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final String HEADER = "TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void find_WILL_inferSessionDatesFromFileNames_WHEN_globMatchesFiles() throws Exception {
+
+        // Given
+        Files.writeString(tempDir.resolve("ticks-2024-03-15.csv"), HEADER);
+        Files.writeString(tempDir.resolve("ticks_20240314.csv"), HEADER);
+        Files.writeString(tempDir.resolve("notes.txt"), "");
+
+        // Run test
+        List<DailyTickFile> dailyTickFiles = DailyTickFile.find(tempDir.resolve("ticks*.csv").toString(), null);
+
+        // Verify test result
+        assertEquals(2, dailyTickFiles.size());
+        assertEquals(LocalDate.of(2024, 3, 14), dailyTickFiles.get(0).getSessionDate());
+        assertEquals(LocalDate.of(2024, 3, 15), dailyTickFiles.get(1).getSessionDate());
+        assertNull(DailyTickFile.inferSessionDate(Path.of("ticks-12345678.csv")));
+    }
+
+    @Test
+    public void find_WILL_throwException_WHEN_sessionDateCannotBeInferred() throws Exception {
+
+        // Given
+        Files.writeString(tempDir.resolve("ticks.csv"), HEADER);
+
+        // Run test
+        Exception exception = assertThrows(Exception.class, () -> DailyTickFile.find(tempDir.toString(), null));
+
+        // Verify test result
+        assertTrue(exception.getMessage().contains("Session date"));
+        assertEquals(LocalDate.of(2024, 1, 2), DailyTickFile.find(tempDir.toString(), LocalDate.of(2024, 1, 2)).get(0).getSessionDate());
+    }
+
+    @Test
+    public void calculate_WILL_mergeDailyResultsWithDates_WHEN_filesAreOnDifferentDays() throws Exception {
+
+        // Given
+        for (int day = 1; day <= 5; day++) {
+            Files.writeString(tempDir.resolve("ticks-2024-03-0" + day + ".csv"), HEADER
+                    + "9:00 AM, AUD/USD, 0.65, 100\n9:30 AM, AUD/USD, 0.6" + day + ", 300\n10:05 AM, USD/JPY, 150, 10\n");
+        }
+        BatchVWAPCalculator batchCalculator = new BatchVWAPCalculator(new VWAPServiceImpl(), 2);
+        Path output = tempDir.resolve("vwap.csv");
+
+        // Run test
+        List<BatchVWAPCalculator.DailyVWAP> dailyVWAPs = batchCalculator.calculate(HOUR, DailyTickFile.find(tempDir.toString(), null));
+        batchCalculator.writeVWAPRecords(output.toString(), dailyVWAPs);
+
+        // Verify test result
+        assertEquals(5, dailyVWAPs.size());
+        List<String> lines = Files.readAllLines(output);
+        assertEquals("DATE,TIME WINDOW,CURRENCY-PAIR,VWAP", lines.get(0));
+        assertEquals(11, lines.size());
+        assertEquals("2024-03-01,09:00 AM - 10:00 AM,AUD/USD,0.62", lines.get(1));
+        assertEquals("2024-03-01,10:05 AM - 11:05 AM,USD/JPY,150.0", lines.get(2));
+        assertEquals("2024-03-05,09:00 AM - 10:00 AM,AUD/USD,0.65", lines.get(9));
+    }
+
+    @Test
+    public void calculateVWAPTable_WILL_continueOnNextDay_WHEN_sessionRunsPastMidnight() throws Exception {
+
+        // Given
+        Path csvFile = Files.writeString(tempDir.resolve("ticks-2024-03-15.csv"), HEADER
+                + "11:30 PM, AUD/USD, 0.65, 100\n12:15 AM, AUD/USD, 0.66, 100\n12:45 AM, AUD/USD, 0.67, 100\n");
+
+        // Run test
+        VWAPRecordTable vwapRecordTable = new VWAPServiceImpl().calculateVWAPTable(HOUR, csvFile.toString(), LocalDate.of(2024, 3, 15));
+
+        // Verify test result
+        assertEquals(2, vwapRecordTable.size());
+        assertEquals("11:30 PM - 12:30 AM", vwapRecordTable.getTimeWindow(0));
+        assertEquals(200, vwapRecordTable.getCumulativeVolume(0));
+        assertEquals(vwapRecordTable.getEndTime(0), vwapRecordTable.getStartTime(1) - 15 * 60 * 1000);
+    }
+}
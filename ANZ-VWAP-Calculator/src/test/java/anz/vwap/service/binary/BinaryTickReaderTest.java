@@ -0,0 +1,127 @@
+package anz.vwap.service.binary;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.tools.TickFileConverter;
+import anz.vwap.util.TimestampConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static anz.vwap.service.VWAPRecordAssertions.assertSameRecords;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryTickReaderTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void next_WILL_returnWrittenTicks_WHEN_fileSpansManyBuffers() throws Exception {
+
+        // Given
+        Path binaryFile = tempDir.resolve("ticks.bin");
+        CurrencyPairDictionary writtenPairs = new CurrencyPairDictionary();
+        writtenPairs.intern("AUD/USD");
+        writtenPairs.intern("USD/JPY");
+        writtenPairs.intern("EUR/GBP");
+        try (BinaryTickWriter writer = new BinaryTickWriter(binaryFile, writtenPairs)) {
+            for (int i = 0; i < 10_000; i++) {
+                writer.write(i * 1000L, i % 3, i / 7.0, 100L + i);
+            }
+        }
+        CurrencyPairDictionary readPairs = new CurrencyPairDictionary();
+        readPairs.intern("EUR/GBP");
+
+        // Run test
+        try (BinaryTickReader reader = new BinaryTickReader(binaryFile, readPairs)) {
+
+            // Verify test result
+            assertEquals(10_000, reader.getRecordCount());
+            for (int i = 0; i < 10_000; i++) {
+                assertTrue(reader.next());
+                assertEquals(i * 1000L, reader.getTimestamp());
+                assertEquals(writtenPairs.getName(i % 3), readPairs.getName(reader.getPairId()));
+                assertEquals(i / 7.0, reader.getPrice());
+                assertEquals(100L + i, reader.getVolume());
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void calculateVWAP_WILL_matchCsvInput_WHEN_inputIsConvertedToBinary() throws Exception {
+
+        // Given
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+        Path csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI());
+        Path binaryFile = tempDir.resolve("currency_pairs.ticks");
+        long ticks = TickFileConverter.convert(csvFile, binaryFile);
+        List<VWAPRecord> expected = vwapService.calculateVWAP(HOUR / 4, csvFile.toString());
+
+        // Run test
+        List<VWAPRecord> actual = vwapService.calculateVWAP(HOUR / 4, binaryFile.toString());
+
+        // Verify test result
+        assertTrue(ticks > 0);
+        assertTrue(BinaryTickFormat.isBinaryTickFile(binaryFile));
+        assertFalse(BinaryTickFormat.isBinaryTickFile(csvFile));
+        assertSameRecords(expected, actual);
+    }
+
+    @Test
+    public void constructor_WILL_throwException_WHEN_fileIsTruncated() throws Exception {
+
+        // Given
+        Path binaryFile = tempDir.resolve("truncated.bin");
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        currencyPairs.intern("AUD/USD");
+        try (BinaryTickWriter writer = new BinaryTickWriter(binaryFile, currencyPairs)) {
+            writer.write(0, 0, 0.65, 100);
+        }
+        byte[] bytes = Files.readAllBytes(binaryFile);
+        Files.write(binaryFile, Arrays.copyOf(bytes, bytes.length - 4));
+
+        // Run test
+        Exception exception = assertThrows(IOException.class, () -> new BinaryTickReader(binaryFile, new CurrencyPairDictionary()));
+
+        // Verify test result
+        assertTrue(exception.getMessage().contains("Binary tick file"));
+    }
+
+    @Test
+    public void convert_WILL_dateTicksOnSessionDate_WHEN_sessionRunsPastMidnight() throws Exception {
+
+        // Given
+        Path csvFile = tempDir.resolve("ticks.csv");
+        Files.writeString(csvFile, "TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n11:58 PM, AUD/USD, 0.65, 100\n"
+                                   + "12:01 AM, AUD/USD, 0.66, 100\n");
+        Path binaryFile = tempDir.resolve("ticks.bin");
+        TimestampConverter sessionConverter = new TimestampConverter(LocalDate.of(2024, 3, 15));
+
+        // Run test
+        long ticks = TickFileConverter.convert(csvFile, binaryFile, LocalDate.of(2024, 3, 15));
+
+        // Verify test result
+        assertEquals(2, ticks);
+        try (BinaryTickReader reader = new BinaryTickReader(binaryFile, new CurrencyPairDictionary())) {
+            assertTrue(reader.next());
+            assertEquals(sessionConverter.toEpochMillis("11:58 PM"), reader.getTimestamp());
+            assertTrue(reader.next());
+            assertEquals(sessionConverter.nextDay().toEpochMillis("12:01 AM"), reader.getTimestamp());
+        }
+    }
+}
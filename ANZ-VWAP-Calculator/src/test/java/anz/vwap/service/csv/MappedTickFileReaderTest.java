@@ -0,0 +1,115 @@
+package anz.vwap.service.csv;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.engine.VWAPEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static anz.vwap.service.VWAPRecordAssertions.assertSameVWAP;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedTickFileReaderTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final double DELTA = 1e-9;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void read_WILL_matchSequentialVWAP_WHEN_fileIsSplitIntoSmallChunks() throws Exception {
+
+        // Given
+        Path csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI());
+        List<VWAPRecord> expected = new VWAPServiceImpl().calculateVWAP(HOUR, csvFile.toString());
+
+        for (long chunkSize : new long[] {1, 7, 64, 200, 1024 * 1024}) {
+            // Run test
+            List<VWAPRecord> actual = readInParallel(csvFile, chunkSize, HOUR);
+
+            // Verify test result
+            assertSameVWAP(expected, actual, DELTA);
+        }
+    }
+
+    @Test
+    public void read_WILL_matchSequentialVWAP_WHEN_ticksAreOutOfOrder() throws Exception {
+
+        // Given
+        Path csvFile = tempDir.resolve("ticks.csv");
+        Random random = new Random(7);
+        StringBuilder csv = new StringBuilder("TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n");
+        for (int i = 0; i < 5000; i++) {
+            int minute = Math.max(0, Math.min(1439, i / 4 - random.nextInt(10)));
+            csv.append(minute / 60 % 12 == 0 ? 12 : minute / 60 % 12).append(':')
+               .append(String.format("%02d", minute % 60)).append(minute < 720 ? " AM, " : " PM, ")
+               .append("P").append(random.nextInt(40)).append("/USD, ")
+               .append(random.nextInt(100_000) / 100.0).append(", ")
+               .append(String.format("%,d", 1 + random.nextInt(10_000_000))).append('\n');
+        }
+        Files.writeString(csvFile, csv);
+        List<VWAPRecord> expected = new VWAPServiceImpl().calculateVWAP(HOUR / 4, csvFile.toString());
+
+        // Run test
+        List<VWAPRecord> actual = readInParallel(csvFile, 4096, HOUR / 4);
+
+        // Verify test result
+        assertSameVWAP(expected, actual, DELTA);
+    }
+
+    @Test
+    public void read_WILL_matchSequentialVWAP_WHEN_manyTicksShareATimestamp() throws Exception {
+
+        // Given
+        Path csvFile = tempDir.resolve("ticks.csv");
+        Random random = new Random(4);
+        StringBuilder csv = new StringBuilder("TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n");
+        for (int i = 0; i < 20_000; i++) {
+            int minute = i / 2000;
+            csv.append("9:").append(String.format("%02d", minute)).append(" AM, ")
+               .append("P").append(random.nextInt(3)).append("/USD, ")
+               .append(random.nextInt(10_000_000) / 1_000_000.0).append(", ")
+               .append(1 + random.nextInt(1_000_000)).append('\n');
+        }
+        Files.writeString(csvFile, csv);
+        List<VWAPRecord> expected = new VWAPServiceImpl().calculateVWAP(HOUR / 12, csvFile.toString());
+
+        // Run test
+        List<VWAPRecord> actual = readInParallel(csvFile, 8192, HOUR / 12);
+
+        // Verify test result
+        assertSameVWAP(expected, actual, DELTA);
+    }
+
+    @Test
+    public void read_WILL_throwException_WHEN_rowIsNotValid() throws Exception {
+
+        // Given
+        Path csvFile = tempDir.resolve("invalid.csv");
+        Files.writeString(csvFile, "TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n9:00 AM, AUD/USD, 0.65, 100\n25:00 AM, AUD/USD, 0.65, 100\n");
+
+        // Run test
+        Exception exception = assertThrows(Exception.class, () -> readInParallel(csvFile, 16, HOUR));
+
+        // Verify test result
+        assertTrue(exception.getMessage().contains("Timestamp is not valid"));
+    }
+
+    private List<VWAPRecord> readInParallel(Path csvFile, long chunkSize, long timeWindow) throws Exception {
+        List<VWAPRecord> records = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(timeWindow, records::add);
+        new MappedTickFileReader(ForkJoinPool.commonPool(), chunkSize).read(csvFile, engine);
+        engine.flush();
+        return records;
+    }
+}
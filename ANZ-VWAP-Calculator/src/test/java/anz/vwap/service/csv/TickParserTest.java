@@ -0,0 +1,138 @@
+package anz.vwap.service.csv;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.util.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TickParserTest {
+
+    @Test
+    public void next_WILL_joinVolumeFields_WHEN_volumeIsSplitByThousandsSeparators() throws Exception {
+
+        // Given
+        TickParser tickParser = createParser("TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\r\n"
+                                             + "9:00 AM, AUD/USD, 0.6544, 100,000\r\n"
+                                             + "\r\n"
+                                             + "9:01 AM, USD/JPY, 164.234, 200,222,000\r\n"
+                                             + "9:02 AM, aud/usd, 0.95220, 77000");
+
+        // Run test and verify result
+        assertTrue(tickParser.next());
+        assertEquals(0.6544, tickParser.getPrice());
+        assertEquals(100_000, tickParser.getVolume());
+        int audUsd = tickParser.getPairId();
+        assertTrue(tickParser.next());
+        assertEquals(164.234, tickParser.getPrice());
+        assertEquals(200_222_000, tickParser.getVolume());
+        assertEquals("USD/JPY", tickParser.getCurrencyPairs().getName(tickParser.getPairId()));
+        assertTrue(tickParser.next());
+        assertEquals(audUsd, tickParser.getPairId());
+        assertEquals(77_000, tickParser.getVolume());
+        assertFalse(tickParser.next());
+    }
+
+    @Test
+    public void next_WILL_mapColumnsByHeader_WHEN_headerIsReorderedAndInLowerCase() throws Exception {
+
+        // Given
+        TickParser tickParser = createParser(" volume ,price, currency-pair ,timestamp\n"
+                                             + "\"1000\",1.5,\"NZD/GBP\",10:05 am\n");
+
+        // Run test
+        assertTrue(tickParser.next());
+
+        // Verify test result
+        assertEquals(1000, tickParser.getVolume());
+        assertEquals(1.5, tickParser.getPrice());
+        assertEquals("NZD/GBP", tickParser.getCurrencyPairs().getName(tickParser.getPairId()));
+    }
+
+    @Test
+    public void next_WILL_throwException_WHEN_headerHasNoPriceColumn() throws Exception {
+
+        // Given
+        TickParser tickParser = createParser("TIMESTAMP, CURRENCY-PAIR, VOLUME\n9:00 AM, AUD/USD, 100\n");
+
+        // Run test
+        Exception exception = assertThrows(IllegalArgumentException.class, tickParser::next);
+
+        // Verify test result
+        assertTrue(exception.getMessage().contains(TickParser.PRICE));
+    }
+
+    @Test
+    public void next_WILL_throwException_WHEN_timestampIsNotValid() throws Exception {
+
+        // Given
+        TickParser tickParser = createParser("TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n14:10 am, AUD/USD, 0.65, 100\n");
+
+        // Run test
+        Exception exception = assertThrows(Exception.class, tickParser::next);
+
+        // Verify test result
+        assertTrue(exception.getMessage().contains("Timestamp is not valid"));
+    }
+
+    @Test
+    public void parseDouble_WILL_matchDoubleParseDouble_WHEN_numbersAreRandom() {
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String number = switch (i % 4) {
+                case 0 -> Double.toString(random.nextDouble() * 1000);
+                case 1 -> String.format("%.5f", random.nextDouble() * 200);
+                case 2 -> Long.toString(random.nextLong() >>> random.nextInt(64));
+                default -> "-" + random.nextInt(100) + "." + random.nextInt(100_000) + (i % 8 == 3 ? "e3" : "");
+            };
+            byte[] bytes = number.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(number), TickParser.parseDouble(bytes, 0, bytes.length), number);
+        }
+    }
+
+    @Test
+    public void next_WILL_skipRowsWithoutInterningPairs_WHEN_rowsAreOutsideFilters() throws Exception {
+
+        // Given
+        TickParser tickParser = createParser("TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n"
+                                             + "9:00 AM, AUD/USD, 0.65, 100\n"
+                                             + "9:01 AM, USD/JPY, not a price, 200\n"
+                                             + "9:02 AM, aud/usd, 0.66, 300\n"
+                                             + "9:03 AM, AUD/USD, 0.x, 400\n");
+        CurrencyPairDictionary pairFilter = new CurrencyPairDictionary();
+        pairFilter.intern("aud/usd");
+        long nine = Utils.getTimestampConverter().toEpochMillis("9:00 AM");
+        tickParser.setPairFilter(pairFilter);
+        tickParser.setTimeRange(nine, nine + 3 * 60 * 1000);
+
+        // Run test and verify result
+        assertTrue(tickParser.next());
+        int audUsd = tickParser.getPairId();
+        assertEquals("AUD/USD", tickParser.getCurrencyPairs().getName(audUsd));
+        assertEquals(100, tickParser.getVolume());
+        assertTrue(tickParser.next());
+        assertEquals(TickParser.SKIPPED_PAIR, tickParser.getPairId());
+        assertEquals(nine + 60 * 1000, tickParser.getTimestamp());
+        assertTrue(tickParser.next());
+        assertEquals(audUsd, tickParser.getPairId());
+        assertEquals(0.66, tickParser.getPrice());
+        assertTrue(tickParser.next());
+        assertEquals(TickParser.SKIPPED_PAIR, tickParser.getPairId());
+        assertFalse(tickParser.next());
+        assertEquals(1, tickParser.getCurrencyPairs().size());
+    }
+
+    private TickParser createParser(String csv) throws Exception {
+        return new TickParser(Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))),
+                              new CurrencyPairDictionary());
+    }
+}
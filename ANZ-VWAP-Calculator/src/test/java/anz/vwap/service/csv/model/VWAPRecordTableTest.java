@@ -0,0 +1,69 @@
+package anz.vwap.service.csv.model;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.aggregate.WindowAggregator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static anz.vwap.service.VWAPRecordAssertions.assertSameVWAP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class VWAPRecordTableTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void addWindow_WILL_addOneRowPerPair_WHEN_windowCloses() {
+
+        // Given
+        VWAPRecordTable table = new VWAPRecordTable();
+        int audUsd = table.getCurrencyPairs().intern("AUD/USD");
+        int usdJpy = table.getCurrencyPairs().intern("USD/JPY");
+        WindowAggregator window = new WindowAggregator();
+        window.add(usdJpy, 155 * 1000.0, 1000);
+        window.add(audUsd, 0.65 * 100, 100);
+        window.add(audUsd, 0.66 * 100, 100);
+
+        // Run test
+        table.addWindow(0, HOUR, window);
+
+        // Verify test result
+        assertEquals(2, table.size());
+        assertEquals("USD/JPY", table.getCurrencyPair(0));
+        assertEquals(155, table.getVwap(0));
+        assertEquals("AUD/USD", table.getCurrencyPair(1));
+        assertEquals(200, table.getCumulativeVolume(1));
+        assertEquals(HOUR, table.getEndTime(1));
+        assertEquals(0.655, table.getVWAPRecord(1).getVwap());
+    }
+
+    @Test
+    public void calculateVWAPTable_WILL_matchVWAPRecords_WHEN_sameFileIsRead() throws Exception {
+
+        // Given
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+        List<VWAPRecord> expected = vwapService.calculateVWAP(HOUR / 4, csvFile);
+
+        // Run test
+        VWAPRecordTable table = vwapService.calculateVWAPTable(HOUR / 4, csvFile);
+
+        // Verify test result
+        List<VWAPRecord> actual = table.toVWAPRecords();
+        assertSameVWAP(expected, actual, 0);
+        Path expectedFile = tempDir.resolve("expected.csv");
+        Path actualFile = tempDir.resolve("actual.csv");
+        vwapService.writeVWAPRecords(expectedFile.toString(), expected);
+        vwapService.writeVWAPRecords(actualFile.toString(), table);
+        assertEquals(Files.readString(expectedFile), Files.readString(actualFile));
+    }
+}
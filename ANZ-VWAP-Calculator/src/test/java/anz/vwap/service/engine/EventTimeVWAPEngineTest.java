@@ -0,0 +1,108 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.csv.model.VWAPRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EventTimeVWAPEngineTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    public void onTick_WILL_addLateTickToItsOwnWindow_WHEN_withinAllowedLateness() {
+
+        // Given
+        List<VWAPRecord> records = new ArrayList<>();
+        EventTimeVWAPEngine engine = new EventTimeVWAPEngine(HOUR, 10 * MINUTE, records::add);
+        engine.onTick("AUD/USD", 0, 0.65, 100_000);
+        engine.onTick("AUD/USD", 65 * MINUTE, 0.70, 100_000);
+
+        // Run test
+        engine.onTick("AUD/USD", 59 * MINUTE, 0.66, 100_000);
+        engine.onTick("AUD/USD", 70 * MINUTE, 0.70, 100_000);
+
+        // Verify test result
+        assertEquals(1, records.size());
+        assertEquals(0.655, records.get(0).getVwap());
+        assertEquals(HOUR, records.get(0).getEndTime());
+        assertEquals(0, engine.getDroppedTicks());
+        assertEquals(1, engine.getOpenWindowCount());
+    }
+
+    @Test
+    public void onTick_WILL_dropTick_WHEN_itsWindowHasBeenEmitted() {
+
+        // Given
+        List<VWAPRecord> records = new ArrayList<>();
+        EventTimeVWAPEngine engine = new EventTimeVWAPEngine(HOUR, 5 * MINUTE, records::add);
+        engine.onTick("AUD/USD", 0, 0.65, 100_000);
+        engine.onTick("AUD/USD", 66 * MINUTE, 0.70, 100_000);
+
+        // Run test
+        engine.onTick("AUD/USD", 59 * MINUTE, 0.90, 100_000);
+        engine.flush();
+
+        // Verify test result
+        assertEquals(2, records.size());
+        assertEquals(0.65, records.get(0).getVwap());
+        assertEquals(0.70, records.get(1).getVwap());
+        assertEquals(1, engine.getDroppedTicks());
+    }
+
+    @Test
+    public void onTick_WILL_matchWindowsOfSortedTicks_WHEN_ticksAreShuffledWithinLateness() {
+
+        // Given
+        long lateness = 20 * MINUTE;
+        Random random = new Random(11);
+        List<long[]> ticks = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long timestamp = Math.max(0, i * 1000L - random.nextInt((int) lateness));
+            ticks.add(new long[] {timestamp, random.nextInt(20), 1 + random.nextInt(1000), 1 + random.nextInt(1_000_000)});
+        }
+        List<VWAPRecord> records = new ArrayList<>();
+        EventTimeVWAPEngine engine = new EventTimeVWAPEngine(15 * MINUTE, lateness, records::add);
+
+        // Run test
+        int maxOpenWindows = 0;
+        for (long[] tick : ticks) {
+            engine.onTick("P" + tick[1], tick[0], tick[2] / 100.0, tick[3]);
+            maxOpenWindows = Math.max(maxOpenWindows, engine.getOpenWindowCount());
+        }
+        engine.flush();
+
+        // Verify test result
+        Map<String, double[]> expected = new LinkedHashMap<>();
+        for (long[] tick : ticks) {
+            double[] sums = expected.computeIfAbsent(tick[0] / (15 * MINUTE) + " P" + tick[1], key -> new double[2]);
+            sums[0] += tick[2] / 100.0 * tick[3];
+            sums[1] += tick[3];
+        }
+        assertEquals(0, engine.getDroppedTicks());
+        assertEquals(expected.size(), records.size());
+        long previousStart = 0;
+        for (VWAPRecord record : records) {
+            assertTrue(record.getStartTime() >= previousStart);
+            previousStart = record.getStartTime();
+            double[] sums = expected.get(record.getStartTime() / (15 * MINUTE) + " " + record.getCurrencyPair());
+            assertEquals(sums[1], record.getCumulativeVolume());
+            assertEquals(sums[0], record.getCumulativePriceVolume(), sums[0] * 1e-12);
+        }
+        assertTrue(maxOpenWindows <= 3);
+    }
+
+    @Test
+    public void constructor_WILL_throwException_WHEN_latenessIsNegative() {
+        assertThrows(IllegalArgumentException.class, () -> new EventTimeVWAPEngine(HOUR, -1, record -> { }));
+    }
+}
@@ -0,0 +1,86 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.csv.model.VWAPRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RollingVWAPEngineTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    @Test
+    public void onTick_WILL_dropExpiredMinutes_WHEN_windowRollsForward() {
+
+        // Given
+        List<VWAPRecord> records = new ArrayList<>();
+        RollingVWAPEngine engine = new RollingVWAPEngine(2 * MINUTE, records::add);
+
+        // Run test
+        engine.onTick("AUD/USD", 0, 0.60, 100);
+        engine.onTick("AUD/USD", MINUTE, 0.70, 100);
+        engine.onTick("AUD/USD", 2 * MINUTE, 0.80, 200);
+
+        // Verify test result
+        assertEquals(3, records.size());
+        assertEquals(0.6, records.get(0).getVwap());
+        assertEquals(0.65, records.get(1).getVwap());
+        assertEquals(0.7667, records.get(2).getVwap());
+        assertEquals(300, records.get(2).getCumulativeVolume());
+    }
+
+    @Test
+    public void onTick_WILL_matchBruteForceVWAP_WHEN_ticksAreRandom() {
+
+        // Given
+        int windowMinutes = 15;
+        RollingVWAPEngine engine = new RollingVWAPEngine(windowMinutes * MINUTE, null);
+        Random random = new Random(3);
+        List<long[]> ticks = new ArrayList<>(); // minute, pair, volume, price in 1/10000
+        long[] newestMinutes = new long[5];
+        Arrays.fill(newestMinutes, Long.MIN_VALUE);
+        long minute = 0;
+
+        for (int i = 0; i < 20_000; i++) {
+            minute += random.nextInt(100) == 0 ? random.nextInt(40) : random.nextInt(2);
+            long tickMinute = random.nextInt(20) == 0 ? minute - random.nextInt(20) : minute;
+            int pairId = random.nextInt(5);
+            long volume = 1 + random.nextInt(1_000_000);
+            long price = 1 + random.nextInt(2_000_000);
+
+            // Run test
+            engine.onTick(pairId, tickMinute * MINUTE, price / 10000.0, volume);
+
+            // Verify test result
+            long newest = newestMinutes[pairId];
+            if (newest == Long.MIN_VALUE || tickMinute > newest - windowMinutes) {
+                ticks.add(new long[] {tickMinute, pairId, volume, price});
+                newest = Math.max(newest, tickMinute);
+                newestMinutes[pairId] = newest;
+            }
+            double priceVolume = 0;
+            long totalVolume = 0;
+            for (long[] tick : ticks) {
+                if (tick[1] == pairId && tick[0] > newest - windowMinutes) {
+                    priceVolume += tick[3] / 10000.0 * tick[2];
+                    totalVolume += tick[2];
+                }
+            }
+            assertEquals(priceVolume / totalVolume, engine.getVwap(pairId), 1e-9);
+            ticks.removeIf(tick -> tick[0] <= newestMinutes[(int) tick[1]] - windowMinutes);
+        }
+        assertTrue(engine.getDroppedTicks() > 0);
+    }
+
+    @Test
+    public void constructor_WILL_throwException_WHEN_windowIsNotWholeMinutes() {
+        assertThrows(IllegalArgumentException.class, () -> new RollingVWAPEngine(90 * 1000, null));
+    }
+}
@@ -0,0 +1,58 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.csv.model.VWAPRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static anz.vwap.service.VWAPRecordAssertions.assertSameRecords;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ShardedVWAPEngineTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    @Test
+    public void flush_WILL_matchVWAPEngine_WHEN_pairsAreSpreadOverShards() throws Exception {
+
+        // Given
+        Random random = new Random(5);
+        List<long[]> ticks = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            long timestamp = Math.max(0, i * 100L - random.nextInt(60_000));
+            ticks.add(new long[] {timestamp, random.nextInt(37), 1 + random.nextInt(100_000), 1 + random.nextInt(1_000_000)});
+        }
+        List<VWAPRecord> expected = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(7 * MINUTE, expected::add);
+        ticks.forEach(tick -> engine.onTick("P" + tick[1], tick[0], tick[2] / 1000.0, tick[3]));
+        engine.flush();
+
+        for (int shardCount : new int[] {1, 3, 8}) {
+            // Run test
+            List<VWAPRecord> actual = new ArrayList<>();
+            long processedTicks = 0;
+            try (ShardedVWAPEngine shardedEngine = new ShardedVWAPEngine(7 * MINUTE, shardCount, 64, new CurrencyPairDictionary(),
+                                                                         actual::add)) {
+                ticks.forEach(tick -> shardedEngine.onTick("P" + tick[1], tick[0], tick[2] / 1000.0, tick[3]));
+                shardedEngine.flush();
+                for (int shard = 0; shard < shardCount; shard++) {
+                    processedTicks += shardedEngine.getProcessedTicks(shard);
+                    assertEquals(0, shardedEngine.getQueueDepth(shard));
+                }
+            }
+
+            // Verify test result
+            assertEquals(ticks.size(), processedTicks);
+            assertSameRecords(expected, actual);
+        }
+    }
+
+    @Test
+    public void constructor_WILL_throwException_WHEN_shardCountIsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedVWAPEngine(MINUTE, 0, record -> { }));
+    }
+}
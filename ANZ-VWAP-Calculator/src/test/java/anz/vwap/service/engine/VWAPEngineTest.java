@@ -0,0 +1,117 @@
+package anz.vwap.service.engine;
+
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.aggregate.WindowMetric;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.csv.model.WindowAnalytics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VWAPEngineTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    public void onTick_WILL_emitVWAPRecords_WHEN_tickClosesTheWindow() {
+
+        // Given
+        List<VWAPRecord> records = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(HOUR, records::add);
+        engine.onTick("AUD/USD", 0, 0.65, 100_000);
+        engine.onTick("USD/JPY", MINUTE, 150, 100_000_000);
+        engine.onTick("AUD/USD", 20 * MINUTE, 0.66, 100_000);
+        engine.onTick("USD/JPY", 45 * MINUTE, 160, 100_000_000);
+        assertTrue(records.isEmpty());
+
+        // Run test
+        engine.onTick("AUD/USD", 65 * MINUTE, 0.70, 50_000);
+
+        // Verify test result
+        assertEquals(2, records.size());
+        assertEquals("AUD/USD", records.get(0).getCurrencyPair());
+        assertEquals(0.655, records.get(0).getVwap());
+        assertEquals("USD/JPY", records.get(1).getCurrencyPair());
+        assertEquals(155, records.get(1).getVwap());
+    }
+
+    @Test
+    public void flush_WILL_emitOpenWindow_WHEN_streamEnds() {
+
+        // Given
+        List<VWAPRecord> records = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(HOUR, records::add);
+        engine.onTick("AUD/USD", 0, 0.70, 50_000);
+        engine.onTick("aud/usd", 15 * MINUTE, 0.80, 200_000);
+
+        // Run test
+        engine.flush();
+        engine.flush();
+
+        // Verify test result
+        assertEquals(1, records.size());
+        assertEquals(0.78, records.get(0).getVwap());
+        assertEquals(250_000, records.get(0).getCumulativeVolume());
+    }
+
+    @Test
+    public void advanceTime_WILL_closeWindow_WHEN_timeReachesWindowEnd() {
+
+        // Given
+        List<VWAPRecord> records = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(HOUR, records::add);
+        engine.onTick("AUD/USD", 0, 0.70, 50_000);
+
+        // Run test
+        engine.advanceTime(HOUR - 1);
+        assertTrue(records.isEmpty());
+        engine.advanceTime(HOUR);
+
+        // Verify test result
+        assertEquals(1, records.size());
+    }
+
+    @Test
+    public void onTick_WILL_attachSelectedAnalytics_WHEN_metricsAreSelected() {
+
+        // Given
+        List<VWAPRecord> records = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(HOUR, new CurrencyPairDictionary(), EnumSet.of(WindowMetric.TWAP, WindowMetric.OHLC),
+                                           records::add);
+        engine.onTick("AUD/USD", 0, 0.65, 100_000);
+        engine.onTick("USD/JPY", 0, 150, 100);
+        engine.onTick("AUD/USD", 15 * MINUTE, 0.70, 50_000);
+        engine.onTick("AUD/USD", 30 * MINUTE, 0.62, 200_000);
+
+        // Run test
+        engine.onTick("AUD/USD", HOUR, 0.60, 10_000);
+        engine.flush();
+
+        // Verify test result
+        assertEquals(3, records.size());
+        WindowAnalytics audUsd = records.get(0).getAnalytics();
+        assertEquals(0.64, records.get(0).getVwap());
+        assertEquals((0.65 * 15 + 0.70 * 15 + 0.62 * 30) / 60, audUsd.getTwap(), 1e-12);
+        assertEquals(0.65, audUsd.getOpen());
+        assertEquals(0.70, audUsd.getHigh());
+        assertEquals(0.62, audUsd.getLow());
+        assertEquals(0.62, audUsd.getClose());
+        assertEquals(0, audUsd.getTickCount());
+        assertEquals(150, records.get(1).getAnalytics().getTwap());
+        assertEquals(0.60, records.get(2).getAnalytics().getTwap());
+        assertNull(new VWAPRecord(0, HOUR, "AUD/USD", 65.0, 100).getAnalytics());
+    }
+
+    @Test
+    public void constructor_WILL_throwException_WHEN_timeWindowIsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new VWAPEngine(0, vwapRecord -> { }));
+    }
+}
@@ -0,0 +1,204 @@
+package anz.vwap.service.follow;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.engine.VWAPEngine;
+import anz.vwap.util.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static anz.vwap.service.VWAPRecordAssertions.assertSameVWAP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TickFileFollowerTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final String HEADER = "TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void poll_WILL_readOnlyCompleteAppendedLines_WHEN_lastLineIsIncomplete() throws Exception {
+
+        // Given
+        Path csvFile = tempDir.resolve("ticks.csv");
+        List<VWAPRecord> vwapRecords = new ArrayList<>();
+        VWAPEngine engine = new VWAPEngine(HOUR, vwapRecords::add);
+
+        try (TickFileFollower follower = new TickFileFollower(csvFile, engine, Utils.getTimestampConverter(), null)) {
+
+            // Run test
+            long beforeFile = follower.poll();
+            Files.writeString(csvFile, "TIMESTAMP, CURRENCY-PAIR");
+            long beforeHeader = follower.poll();
+            append(csvFile, ", PRICE, VOLUME\n9:00 AM, AUD/USD, 0.65, 100\n9:10 AM, AUD/USD, 0.6");
+            long firstRead = follower.poll();
+            long offset = follower.getOffset();
+            append(csvFile, "6, 300\n10:05 AM, AUD/USD, 0.70, 50\n");
+            long secondRead = follower.poll();
+
+            // Verify test result
+            assertEquals(0, beforeFile);
+            assertEquals(0, beforeHeader);
+            assertEquals(1, firstRead);
+            assertEquals(HEADER.length() + "9:00 AM, AUD/USD, 0.65, 100\n".length(), offset);
+            assertEquals(2, secondRead);
+            assertEquals(Files.size(csvFile), follower.getOffset());
+            assertEquals(1, vwapRecords.size());
+            assertEquals(400, vwapRecords.get(0).getCumulativeVolume());
+            assertEquals(0.6575, vwapRecords.get(0).getVwap(), 1e-12);
+        }
+    }
+
+    @Test
+    public void poll_WILL_resumeFromCheckpoint_WHEN_followerIsRestarted() throws Exception {
+
+        // Given
+        Path csvFile = tempDir.resolve("ticks.csv");
+        Path checkpointFile = tempDir.resolve("ticks.checkpoint");
+        List<String> lines = new ArrayList<>();
+        for (int minute = 0; minute < 180; minute++) {
+            lines.add(String.format("%d:%02d AM, %s, 0.6%d, %d\n", 9 + minute / 60, minute % 60, minute % 3 == 0 ? "AUD/USD" : "USD/JPY",
+                                    minute % 10, 100 + minute));
+        }
+        Files.writeString(csvFile, HEADER + String.join("", lines.subList(0, 80)));
+        List<VWAPRecord> vwapRecords = new ArrayList<>();
+
+        // Run test
+        try (TickFileFollower follower = new TickFileFollower(csvFile, new VWAPEngine(HOUR, vwapRecords::add),
+                                                              Utils.getTimestampConverter(), checkpointFile)) {
+            follower.poll();
+        }
+        append(csvFile, String.join("", lines.subList(80, 180)));
+        VWAPEngine restoredEngine = new VWAPEngine(HOUR, vwapRecords::add);
+        long restoredTicks;
+        try (TickFileFollower follower = new TickFileFollower(csvFile, restoredEngine, Utils.getTimestampConverter(), checkpointFile)) {
+            follower.poll();
+            restoredTicks = follower.getTickCount();
+        }
+        restoredEngine.flush();
+
+        // Verify test result
+        assertEquals(100, restoredTicks);
+        List<VWAPRecord> expected = new VWAPServiceImpl().calculateVWAP(HOUR, csvFile.toString());
+        assertSameVWAP(expected, vwapRecords, 1e-12);
+    }
+
+    @Test
+    public void follow_WILL_emitClosedWindows_WHEN_linesAreAppendedWhileFollowing() throws Exception {
+
+        // Given
+        Path csvFile = Files.writeString(tempDir.resolve("ticks.csv"), HEADER + "9:00 AM, AUD/USD, 0.65, 100\n");
+        List<VWAPRecord> vwapRecords = Collections.synchronizedList(new ArrayList<>());
+        VWAPEngine engine = new VWAPEngine(HOUR, vwapRecords::add);
+        Exception[] failure = new Exception[1];
+
+        try (TickFileFollower follower = new TickFileFollower(csvFile, engine, Utils.getTimestampConverter(), null)) {
+            follower.setPollInterval(20);
+            Thread followThread = new Thread(() -> {
+                try {
+                    follower.follow();
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+            });
+            followThread.start();
+
+            // Run test
+            append(csvFile, "10:30 AM, AUD/USD, 0.66, 100\n");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (vwapRecords.isEmpty() && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            followThread.interrupt();
+            followThread.join();
+
+            // Verify test result
+            assertEquals(null, failure[0]);
+            assertEquals(1, vwapRecords.size());
+            assertEquals(0.65, vwapRecords.get(0).getVwap(), 1e-12);
+            assertTrue(engine.isWindowOpen());
+        }
+    }
+
+    @Test
+    public void poll_WILL_checkpointWhileReadingBacklog_WHEN_readStopsBeforeEnd() throws Exception {
+
+        // Given
+        Path csvFile = tempDir.resolve("ticks.csv");
+        Path checkpointFile = tempDir.resolve("ticks.checkpoint");
+        StringBuilder ticks = new StringBuilder(HEADER);
+        long offsetAfterFirstCheck = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String pair = i % 7 == 0 ? "AUD/USD" : "EUR/USD";
+            ticks.append(9 + i / 3334).append(":").append(String.format("%02d", i % 3334 * 60 / 3334)).append(" AM, ").append(pair)
+                 .append(", 0.6").append(i % 10).append(", ").append(100 + i % 900).append('\n');
+            if (i == 4095) {
+                offsetAfterFirstCheck = ticks.length();
+            }
+        }
+        String valid = ticks.toString();
+        int invalidRow = valid.indexOf("0.6", (int) offsetAfterFirstCheck + 1000);
+        Files.writeString(csvFile, valid.substring(0, invalidRow) + "0.x" + valid.substring(invalidRow + 3));
+
+        // Run test
+        try (TickFileFollower follower = new TickFileFollower(csvFile, new VWAPEngine(HOUR, vwapRecord -> { }),
+                                                              Utils.getTimestampConverter(), checkpointFile)) {
+            follower.setCheckpointInterval(0);
+            assertThrows(Exception.class, follower::poll);
+        }
+        long checkpointOffset = FollowCheckpoint.read(checkpointFile).getOffset();
+        Files.writeString(csvFile, valid);
+        List<VWAPRecord> vwapRecords = new ArrayList<>();
+        VWAPEngine restoredEngine = new VWAPEngine(HOUR, vwapRecords::add);
+        try (TickFileFollower follower = new TickFileFollower(csvFile, restoredEngine, Utils.getTimestampConverter(), checkpointFile)) {
+            follower.poll();
+        }
+        restoredEngine.flush();
+
+        // Verify test result
+        assertEquals(offsetAfterFirstCheck, checkpointOffset);
+        List<VWAPRecord> allRecords = new VWAPServiceImpl().calculateVWAP(HOUR, csvFile.toString());
+        List<VWAPRecord> expected = allRecords.subList(allRecords.size() - vwapRecords.size(), allRecords.size());
+        assertTrue(vwapRecords.size() < allRecords.size());
+        assertSameVWAP(expected, vwapRecords, 1e-12);
+    }
+
+    @Test
+    public void read_WILL_throwIOException_WHEN_checkpointIsCorrupt() throws Exception {
+
+        // Given
+        Path checkpointFile = tempDir.resolve("ticks.checkpoint");
+        VWAPEngine engine = new VWAPEngine(HOUR, vwapRecord -> { });
+        engine.onTick("AUD/USD", 0, 0.65, 100);
+        FollowCheckpoint.of(1234, engine).write(checkpointFile);
+        byte[] bytes = Files.readAllBytes(checkpointFile);
+        bytes[bytes.length / 2] ^= 1;
+
+        // Run test
+        FollowCheckpoint checkpoint = FollowCheckpoint.read(checkpointFile);
+        Files.write(checkpointFile, bytes);
+        IOException exception = assertThrows(IOException.class, () -> FollowCheckpoint.read(checkpointFile));
+
+        // Verify test result
+        assertTrue(exception.getMessage().contains("corrupt"));
+        assertEquals(1234, checkpoint.getOffset());
+        assertThrows(IllegalArgumentException.class, () -> checkpoint.restore(new VWAPEngine(2 * HOUR, vwapRecord -> { })));
+    }
+
+    private static void append(Path file, String text) throws Exception {
+        Files.writeString(file, text, StandardOpenOption.APPEND);
+    }
+}
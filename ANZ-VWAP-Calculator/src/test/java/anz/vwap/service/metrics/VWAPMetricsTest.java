@@ -0,0 +1,174 @@
+package anz.vwap.service.metrics;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.aggregate.MinuteBarCache;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.csv.model.VWAPRecordTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VWAPMetricsTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void calculateVWAP_WILL_countTicksWindowsAndRecords_WHEN_fileIsRead() throws Exception {
+
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VWAPServiceImpl vwapService = new VWAPServiceImpl(new MinuteBarCache(), new VWAPMetrics(registry));
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+
+        // Run test
+        List<VWAPRecord> vwapRecords = vwapService.calculateVWAP(HOUR, csvFile);
+
+        // Verify test result
+        long windows = vwapRecords.stream().map(VWAPRecord::getStartTime).distinct().count();
+        assertEquals(24, registry.counter("vwap.ticks.parsed").count());
+        assertEquals(windows, registry.counter("vwap.windows.emitted").count());
+        assertEquals(vwapRecords.size(), registry.counter("vwap.records.emitted").count());
+        assertEquals(0, registry.counter("vwap.rows.rejected").count());
+        assertEquals(0, registry.find("vwap.ticks.pair").counters().size());
+    }
+
+    @Test
+    public void calculateVWAPInParallel_WILL_countTicksWindowsAndRecords_WHEN_fileIsReadInChunks() throws Exception {
+
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VWAPServiceImpl vwapService = new VWAPServiceImpl(new MinuteBarCache(), new VWAPMetrics(registry));
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+
+        // Run test
+        List<VWAPRecord> vwapRecords = vwapService.calculateVWAPInParallel(HOUR, csvFile);
+
+        // Verify test result
+        assertCounted(registry, vwapRecords);
+    }
+
+    @Test
+    public void calculateExactVWAP_WILL_countTicksWindowsAndRecords_WHEN_fileIsRead() throws Exception {
+
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VWAPServiceImpl vwapService = new VWAPServiceImpl(new MinuteBarCache(), new VWAPMetrics(registry));
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+
+        // Run test
+        List<VWAPRecord> vwapRecords = vwapService.calculateExactVWAP(HOUR, csvFile);
+
+        // Verify test result
+        assertCounted(registry, vwapRecords);
+    }
+
+    @Test
+    public void calculateVWAPOnShards_WILL_countTicksWindowsAndRecords_WHEN_fileIsRead() throws Exception {
+
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VWAPServiceImpl vwapService = new VWAPServiceImpl(new MinuteBarCache(), new VWAPMetrics(registry));
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+
+        // Run test
+        List<VWAPRecord> vwapRecords = vwapService.calculateVWAPOnShards(HOUR, csvFile, 2);
+
+        // Verify test result
+        assertCounted(registry, vwapRecords);
+    }
+
+    @Test
+    public void calculateVWAP_WILL_countTicksOfPairsBeyondLimitAsOther_WHEN_pairTagsAreCapped() throws Exception {
+
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VWAPMetrics metrics = new VWAPMetrics(registry);
+        metrics.setMaxTaggedPairs(2);
+        VWAPServiceImpl vwapService = new VWAPServiceImpl(new MinuteBarCache(), metrics);
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+
+        // Run test
+        vwapService.calculateVWAP(HOUR, csvFile);
+        vwapService.calculateVWAP(HOUR, csvFile);
+
+        // Verify test result
+        double pairTicks = registry.find("vwap.ticks.pair").counters().stream().mapToDouble(counter -> counter.count()).sum();
+        assertEquals(48, pairTicks);
+        assertEquals(3, registry.find("vwap.ticks.pair").counters().size());
+        assertEquals(12, registry.counter("vwap.ticks.pair", "pair", "AUD/USD").count());
+        assertTrue(registry.counter("vwap.ticks.pair", "pair", VWAPMetrics.OTHER_PAIRS_TAG).count() > 0);
+    }
+
+    @Test
+    public void calculateVWAPTable_WILL_countWindowsAndRecords_WHEN_tableIsBuilt() throws Exception {
+
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VWAPServiceImpl vwapService = new VWAPServiceImpl(new MinuteBarCache(), new VWAPMetrics(registry));
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+
+        // Run test
+        VWAPRecordTable vwapRecordTable = vwapService.calculateVWAPTable(HOUR, csvFile);
+        vwapService.writeVWAPRecords(tempDir.resolve("output.csv").toString(), vwapRecordTable);
+
+        // Verify test result
+        assertEquals(24, registry.counter("vwap.ticks.parsed").count());
+        assertEquals(vwapRecordTable.size(), registry.counter("vwap.records.emitted").count());
+        assertEquals(1, registry.timer("vwap.output.write").count());
+    }
+
+    @Test
+    public void calculateVWAP_WILL_countRejectedRow_WHEN_timestampIsInvalid() throws Exception {
+
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VWAPServiceImpl vwapService = new VWAPServiceImpl(new MinuteBarCache(), new VWAPMetrics(registry));
+        Path csvFile = tempDir.resolve("ticks.csv");
+        Files.writeString(csvFile, "TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n9:00 AM, AUD/USD, 0.65, 100\n25:00 AM, AUD/USD, 0.66, 100\n");
+
+        // Run test
+        assertThrows(Exception.class, () -> vwapService.calculateVWAP(HOUR, csvFile.toString()));
+
+        // Verify test result
+        assertEquals(1, registry.counter("vwap.rows.rejected").count());
+        assertEquals(1, registry.counter("vwap.ticks.parsed").count());
+    }
+
+    @Test
+    public void recorder_WILL_timeOneRowInSampleInterval_WHEN_rowsAreSampled() {
+
+        // Given
+        VWAPMetrics metrics = new VWAPMetrics(new SimpleMeterRegistry());
+        VWAPMetrics.Recorder recorder = metrics.newRecorder(null);
+
+        // Run test
+        int sampled = 0;
+        for (int row = 0; row < VWAPMetrics.SAMPLE_INTERVAL * 3; row++) {
+            if (recorder.sample()) {
+                sampled++;
+            }
+        }
+
+        // Verify test result
+        assertEquals(3, sampled);
+    }
+
+    private static void assertCounted(SimpleMeterRegistry registry, List<VWAPRecord> vwapRecords) {
+        long windows = vwapRecords.stream().map(VWAPRecord::getStartTime).distinct().count();
+        assertEquals(24, registry.counter("vwap.ticks.parsed").count());
+        assertEquals(windows, registry.counter("vwap.windows.emitted").count());
+        assertEquals(vwapRecords.size(), registry.counter("vwap.records.emitted").count());
+    }
+}
@@ -0,0 +1,157 @@
+package anz.vwap.service.output;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.csv.model.VWAPRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static anz.vwap.service.VWAPRecordAssertions.assertSameRecords;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncVWAPRecordWriterTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void streamVWAP_WILL_writeSameFileAsWriteVWAPRecords_WHEN_sinkIsCsv() throws Exception {
+
+        // Given
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+        Path expected = tempDir.resolve("expected.csv");
+        Path actual = tempDir.resolve("actual.csv");
+        vwapService.writeVWAPRecords(expected.toString(), vwapService.calculateVWAP(HOUR, csvFile));
+
+        // Run test
+        vwapService.streamVWAP(HOUR, csvFile, new CsvVWAPRecordSink(actual));
+
+        // Verify test result
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual));
+    }
+
+    @Test
+    public void read_WILL_returnWrittenRecords_WHEN_sinkIsBinary() throws Exception {
+
+        // Given
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+        Path binaryFile = tempDir.resolve("vwap.bin");
+
+        // Run test
+        vwapService.streamVWAP(HOUR, csvFile, new BinaryVWAPRecordSink(binaryFile));
+
+        // Verify test result
+        List<VWAPRecord> expected = vwapService.calculateVWAP(HOUR, csvFile);
+        List<VWAPRecord> actual = BinaryVWAPRecordSink.read(binaryFile);
+        assertSameRecords(expected, actual);
+    }
+
+    @Test
+    public void write_WILL_keepExactVwap_WHEN_recordHasOne() throws Exception {
+
+        // Given
+        VWAPRecord vwapRecord = new VWAPRecord(0, HOUR, "AUD/USD", 1.0, 3);
+        vwapRecord.setExactVwap(0.3334);
+        StringWriter csv = new StringWriter();
+        Path binaryFile = tempDir.resolve("vwap.bin");
+
+        // Run test
+        try (AsyncVWAPRecordWriter csvWriter = new AsyncVWAPRecordWriter(new CsvVWAPRecordSink(csv, true));
+             AsyncVWAPRecordWriter binaryWriter = new AsyncVWAPRecordWriter(new BinaryVWAPRecordSink(binaryFile))) {
+            csvWriter.onVWAPRecord(vwapRecord);
+            binaryWriter.onVWAPRecord(vwapRecord);
+            binaryWriter.onVWAPRecord(new VWAPRecord(0, HOUR, "USD/JPY", 1.0, 3));
+        }
+
+        // Verify test result
+        assertTrue(csv.toString().contains(",AUD/USD,0.3334"));
+        List<VWAPRecord> actual = BinaryVWAPRecordSink.read(binaryFile);
+        assertEquals(0.3334, actual.get(0).getVwap());
+        assertTrue(actual.get(0).hasExactVwap());
+        assertEquals(0.3333, actual.get(1).getVwap());
+        assertFalse(actual.get(1).hasExactVwap());
+    }
+
+    @Test
+    public void onVWAPRecord_WILL_block_WHEN_sinkFallsBehind() throws Exception {
+
+        // Given
+        SlowSink sink = new SlowSink();
+        AsyncVWAPRecordWriter writer = new AsyncVWAPRecordWriter(sink, 2, 1, 1000);
+
+        // Run test
+        for (int i = 0; i < 20; i++) {
+            writer.onVWAPRecord(new VWAPRecord(i * HOUR, (i + 1) * HOUR, "AUD/USD", 0.65 * i, i));
+        }
+        writer.close();
+
+        // Verify test result
+        assertTrue(writer.getBlockedNanos() > 0);
+        assertEquals(20, writer.getWrittenRecords());
+        assertEquals(20, sink.written.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, sink.written.get(i).getCumulativeVolume());
+        }
+        assertTrue(sink.closed);
+    }
+
+    @Test
+    public void close_WILL_throwIOException_WHEN_sinkFails() {
+
+        // Given
+        VWAPRecordSink sink = new SlowSink() {
+            @Override
+            public void write(List<VWAPRecord> vwapRecords) throws IOException {
+                throw new IOException("Disk full");
+            }
+        };
+        AsyncVWAPRecordWriter writer = new AsyncVWAPRecordWriter(sink, 4, 1, 1000);
+
+        // Run test
+        writer.onVWAPRecord(new VWAPRecord(0, HOUR, "AUD/USD", 0.65, 1));
+
+        // Verify test result
+        IOException exception = assertThrows(IOException.class, writer::close);
+        assertEquals("Disk full", exception.getMessage());
+    }
+
+    private static class SlowSink implements VWAPRecordSink {
+
+        final List<VWAPRecord> written = new ArrayList<>();
+        boolean closed;
+
+        @Override
+        public void write(List<VWAPRecord> vwapRecords) throws IOException {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            written.addAll(vwapRecords);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
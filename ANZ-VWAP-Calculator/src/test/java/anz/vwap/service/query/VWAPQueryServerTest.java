@@ -0,0 +1,142 @@
+package anz.vwap.service.query;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.service.engine.VWAPEngine;
+import anz.vwap.util.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VWAPQueryServerTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    public void onWindowClosed_WILL_keepLatestWindowsAndOldSnapshots_WHEN_historyIsFull() {
+
+        // Given
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPSnapshotIndex index = new VWAPSnapshotIndex(currencyPairs, 3);
+        VWAPEngine engine = new VWAPEngine(MINUTE, currencyPairs, index);
+        VWAPSnapshotIndex.Snapshot empty = index.getSnapshot();
+
+        // Run test
+        for (int minute = 0; minute < 5; minute++) {
+            engine.onTick("AUD/USD", minute * MINUTE, 0.60 + minute / 100.0, 100);
+        }
+        VWAPSnapshotIndex.Snapshot beforeFlush = index.getSnapshot();
+        engine.onTick("USD/JPY", 5 * MINUTE, 150, 10);
+        engine.flush();
+
+        // Verify test result
+        VWAPSnapshotIndex.PairHistory history = index.getSnapshot().get("AUD/USD");
+        assertEquals(3, history.size());
+        assertEquals(0.64, history.getVwap(history.latest()), 1e-12);
+        assertEquals(2 * MINUTE, history.getStartTime(0));
+        assertEquals(6, index.getSnapshot().getVersion());
+        assertEquals(List.of("AUD/USD", "USD/JPY"), List.copyOf(index.getSnapshot().getCurrencyPairs()));
+        assertEquals(0.63, beforeFlush.get("AUD/USD").getVwap(beforeFlush.get("AUD/USD").latest()), 1e-12);
+        assertNull(beforeFlush.get("USD/JPY"));
+        assertNull(empty.get("AUD/USD"));
+        assertSame(history, index.getSnapshot().get("aud/usd"));
+    }
+
+    @Test
+    public void handle_WILL_returnLastClosedAndRecentVwap_WHEN_pairIsQueried() throws Exception {
+
+        // Given
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+        String csvFile = Paths.get(getClass().getClassLoader().getResource("currency_pairs.csv").toURI()).toString();
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPSnapshotIndex index = new VWAPSnapshotIndex(currencyPairs);
+        vwapService.calculateVWAP(HOUR, csvFile, currencyPairs, index);
+        List<VWAPRecord> expected = vwapService.calculateVWAP(HOUR, csvFile).stream()
+                                               .filter(vwapRecord -> vwapRecord.getCurrencyPair().equals("AUD/USD"))
+                                               .toList();
+        VWAPRecord lastClosed = expected.get(expected.size() - 1);
+        HttpClient client = HttpClient.newHttpClient();
+
+        try (VWAPQueryServer server = new VWAPQueryServer(index, 0)) {
+            String baseUri = "http://localhost:" + server.getPort() + "/vwap";
+
+            // Run test
+            HttpResponse<String> pair = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/AUD/USD?recent=1")).build(),
+                                                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> lowerCase = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/aud%2Fusd?recent=1")).build(),
+                                                         HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> all = client.send(HttpRequest.newBuilder(URI.create(baseUri)).build(),
+                                                   HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> unknown = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/XXX/YYY")).build(),
+                                                       HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> invalid = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/AUD/USD?recent=x")).build(),
+                                                       HttpResponse.BodyHandlers.ofString());
+
+            // Verify test result
+            assertEquals(200, pair.statusCode());
+            assertEquals("application/json", pair.headers().firstValue("Content-Type").orElse(null));
+            assertTrue(pair.body().contains("\"currencyPair\":\"AUD/USD\",\"lastClosed\":{\"timeWindow\":\"" + lastClosed.getTimeWindow()
+                                            + "\",\"startTime\":" + lastClosed.getStartTime() + ",\"endTime\":" + lastClosed.getEndTime()
+                                            + ",\"vwap\":" + Utils.roundToDecimalPlaces(lastClosed.getVwap(), 4)
+                                            + ",\"volume\":" + lastClosed.getCumulativeVolume() + "}"), pair.body());
+            assertEquals(pair.body(), lowerCase.body());
+            assertEquals(expected.size() > 1 ? 1 : 0, pair.body().split("\"timeWindow\"").length - 2);
+            assertEquals(200, all.statusCode());
+            assertEquals(index.getSnapshot().getCurrencyPairs().size(), all.body().split("\"currencyPair\"").length - 1);
+            assertEquals(404, unknown.statusCode());
+            assertEquals("{\"error\":\"No VWAP for currency pair XXX/YYY\"}", unknown.body());
+            assertEquals(400, invalid.statusCode());
+        }
+    }
+
+    @Test
+    public void getSnapshot_WILL_returnWholeWindows_WHEN_readWhileWindowsClose() throws Exception {
+
+        // Given
+        CurrencyPairDictionary currencyPairs = new CurrencyPairDictionary();
+        VWAPSnapshotIndex index = new VWAPSnapshotIndex(currencyPairs, 10);
+        VWAPEngine engine = new VWAPEngine(MINUTE, currencyPairs, index);
+        String[] pairs = {"AUD/USD", "EUR/USD", "USD/JPY"};
+        int windows = 20_000;
+        boolean[] consistent = {true};
+        Thread reader = new Thread(() -> {
+            long version = 0;
+            while (version < windows) {
+                VWAPSnapshotIndex.Snapshot snapshot = index.getSnapshot();
+                version = snapshot.getVersion();
+                for (String pair : pairs) {
+                    VWAPSnapshotIndex.PairHistory history = snapshot.get(pair);
+                    if (version > 0 && (history == null || history.getStartTime(history.latest()) != (version - 1) * MINUTE)) {
+                        consistent[0] = false;
+                    }
+                }
+            }
+        });
+
+        // Run test
+        reader.start();
+        for (int minute = 0; minute < windows; minute++) {
+            for (String pair : pairs) {
+                engine.onTick(pair, minute * MINUTE, 1, 1);
+            }
+        }
+        engine.flush();
+        reader.join();
+
+        // Verify test result
+        assertTrue(consistent[0]);
+        assertEquals(10, index.getSnapshot().get("EUR/USD").size());
+    }
+}
@@ -0,0 +1,96 @@
+package anz.vwap.service.query;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.csv.model.VWAPRecord;
+import anz.vwap.util.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static anz.vwap.service.VWAPRecordAssertions.assertSameRecords;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class VWAPQueryTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final String[] PAIRS = {"AUD/USD", "USD/JPY", "EUR/USD", "GBP/USD", "NZD/USD", "USD/CAD", "USD/CHF", "EUR/JPY"};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void calculateVWAP_WILL_returnFilteredRecords_WHEN_queryHasPairsAndTimeRange() throws Exception {
+
+        // Given
+        String csvFile = writeTicks();
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+        List<VWAPRecord> allRecords = vwapService.calculateVWAP(HOUR, csvFile);
+        long fromTime = Utils.getTimestampConverter().toEpochMillis("10:00 AM");
+        long toTime = fromTime + 2 * HOUR;
+
+        // Run test
+        List<VWAPRecord> pairRecords = vwapService.calculateVWAP(HOUR, csvFile, VWAPQuery.all().withCurrencyPairs("usd/cad", "EUR/JPY"));
+        List<VWAPRecord> rangeRecords = vwapService.calculateVWAP(HOUR, csvFile, VWAPQuery.all().withTimeRange(fromTime, toTime));
+
+        // Verify test result
+        assertSameRecords(allRecords.stream().filter(vwapRecord -> vwapRecord.getCurrencyPair().equals("USD/CAD")
+                                                                   || vwapRecord.getCurrencyPair().equals("EUR/JPY"))
+                                    .collect(Collectors.toList()),
+                          pairRecords);
+        assertSameRecords(allRecords.stream().filter(vwapRecord -> vwapRecord.getStartTime() >= fromTime
+                                                                   && vwapRecord.getStartTime() < toTime)
+                                    .collect(Collectors.toList()),
+                          rangeRecords);
+        assertEquals(0, vwapService.calculateVWAP(HOUR, csvFile, VWAPQuery.all().withCurrencyPairs("AUD/NZD")).size());
+    }
+
+    @Test
+    public void calculateVWAP_WILL_returnLargestVolumesFirst_WHEN_queryHasTopByVolume() throws Exception {
+
+        // Given
+        String csvFile = writeTicks();
+        VWAPServiceImpl vwapService = new VWAPServiceImpl();
+        List<VWAPRecord> allRecords = vwapService.calculateVWAP(HOUR, csvFile);
+        List<VWAPRecord> expected = new ArrayList<>();
+        for (long startTime : allRecords.stream().map(VWAPRecord::getStartTime).distinct().collect(Collectors.toList())) {
+            allRecords.stream().filter(vwapRecord -> vwapRecord.getStartTime() == startTime)
+                      .sorted(Comparator.comparingLong(VWAPRecord::getCumulativeVolume).reversed())
+                      .limit(3)
+                      .forEach(expected::add);
+        }
+
+        // Run test
+        List<VWAPRecord> records = vwapService.calculateVWAP(HOUR, csvFile, VWAPQuery.all().withTopByVolume(3));
+
+        // Verify test result
+        assertSameRecords(expected, records);
+        assertThrows(IllegalArgumentException.class, () -> VWAPQuery.all().withTopByVolume(0));
+    }
+
+    /**
+     * Writes ticks of all pairs from 9 AM to 1 PM, where USD/CAD and EUR/JPY only trade from half past each hour,
+     * so that their windows start with the ticks of the other pairs.
+     */
+    private String writeTicks() throws Exception {
+
+        Random random = new Random(22);
+        StringBuilder csv = new StringBuilder("TIMESTAMP, CURRENCY-PAIR, PRICE, VOLUME\n");
+        for (int minute = 0; minute < 4 * 60; minute++) {
+            String time = String.format("%d:%02d %s", (8 + minute / 60) % 12 + 1, minute % 60, minute < 3 * 60 ? "AM" : "PM");
+            for (int tick = 0; tick < 4; tick++) {
+                String pair = PAIRS[random.nextInt(minute % 60 < 30 ? PAIRS.length - 3 : PAIRS.length)];
+                csv.append(time).append(", ").append(pair).append(", ").append(1 + random.nextInt(10_000) / 10_000.0)
+                   .append(", ").append(1 + random.nextInt(1000) * 1000L).append('\n');
+            }
+        }
+        return Files.writeString(tempDir.resolve("ticks.csv"), csv).toString();
+    }
+}
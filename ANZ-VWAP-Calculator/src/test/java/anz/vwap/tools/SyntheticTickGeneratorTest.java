@@ -0,0 +1,106 @@
+package anz.vwap.tools;
+
+import anz.vwap.service.VWAPServiceImpl;
+import anz.vwap.service.aggregate.CurrencyPairDictionary;
+import anz.vwap.service.csv.TickParser;
+import anz.vwap.service.csv.model.VWAPRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SyntheticTickGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void writeCsv_WILL_writeParseableTicks_WHEN_targetSizeIsGiven() throws Exception {
+
+        // Given
+        Path csvFile = tempDir.resolve("ticks.csv");
+        SyntheticTickGenerator generator = new SyntheticTickGenerator(5, 100, 1);
+
+        // Run test
+        long ticks = generator.writeCsv(csvFile, 64 * 1024);
+
+        // Verify test result
+        assertTrue(Files.size(csvFile) >= 64 * 1024);
+        long parsedTicks = 0;
+        try (TickParser tickParser = new TickParser(FileChannel.open(csvFile), new CurrencyPairDictionary())) {
+            while (tickParser.next()) {
+                assertTrue(tickParser.getVolume() >= 1000);
+                parsedTicks++;
+            }
+            assertEquals(5, tickParser.getCurrencyPairs().size());
+        }
+        assertEquals(ticks, parsedTicks);
+        List<VWAPRecord> records = new VWAPServiceImpl().calculateVWAP(60 * 60 * 1000, csvFile.toString());
+        assertTrue(records.stream().allMatch(record -> record.getCurrencyPair().matches("C000[0-4]/USD")));
+    }
+
+    @Test
+    public void write_WILL_produceSameTicks_WHEN_seedIsTheSame() throws Exception {
+
+        // Given
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+
+        // Run test
+        new SyntheticTickGenerator(10, 7, 99).write(first, 1000);
+        new SyntheticTickGenerator(10, 7, 99).write(second, 1000);
+
+        // Verify test result
+        assertEquals(first.toString(), second.toString());
+        assertEquals(1001, first.toString().lines().count());
+    }
+
+    @Test
+    public void writeTicks_WILL_writeParseableTicks_WHEN_ticksAreSkewedLateMalformedAndSplit() throws Exception {
+
+        // Given
+        Path csvFile = tempDir.resolve("ticks.csv");
+        SyntheticTickGenerator generator = new SyntheticTickGenerator(50, 20, 7);
+        generator.setSkew(1.2);
+        generator.setOutOfOrderRate(0.05);
+        generator.setMalformedRowRate(0.05);
+        generator.setSplitVolumeRate(0.5);
+
+        // Run test
+        long ticks = generator.writeTicks(csvFile, 5000);
+
+        // Verify test result
+        assertEquals(5000, ticks);
+        long parsedTicks = 0;
+        long firstPairTicks = 0;
+        long lateTicks = 0;
+        long lastTimestamp = Long.MIN_VALUE;
+        try (TickParser tickParser = new TickParser(FileChannel.open(csvFile), new CurrencyPairDictionary())) {
+            int firstPairId = -1;
+            while (tickParser.next()) {
+                if (firstPairId < 0) {
+                    firstPairId = tickParser.getCurrencyPairs().find("C0000/USD");
+                }
+                if (tickParser.getPairId() == firstPairId) {
+                    firstPairTicks++;
+                }
+                if (tickParser.getTimestamp() < lastTimestamp) {
+                    lateTicks++;
+                }
+                lastTimestamp = Math.max(lastTimestamp, tickParser.getTimestamp());
+                parsedTicks++;
+            }
+        }
+        assertEquals(ticks, parsedTicks);
+        assertTrue(firstPairTicks > ticks / 10);
+        assertTrue(lateTicks > 0);
+        assertTrue(new VWAPServiceImpl().calculateVWAP(60 * 60 * 1000, csvFile.toString()).size() > 0);
+    }
+}
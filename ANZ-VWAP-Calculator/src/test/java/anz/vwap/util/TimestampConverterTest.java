@@ -0,0 +1,57 @@
+package anz.vwap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TimestampConverterTest {
+
+    @Test
+    public void toEpochMillis_WILL_matchSimpleDateFormat_WHEN_timeIsAnyMinuteOfTheDay() throws Exception {
+
+        // Given
+        LocalDate sessionDate = LocalDate.of(2024, 9, 2);
+        TimestampConverter converter = new TimestampConverter(sessionDate);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy h:mm a", Locale.ENGLISH);
+
+        for (int minuteOfDay = 0; minuteOfDay < 24 * 60; minuteOfDay++) {
+            int hour = minuteOfDay / 60 % 12 == 0 ? 12 : minuteOfDay / 60 % 12;
+            String time = hour + ":" + String.format("%02d", minuteOfDay % 60) + (minuteOfDay < 720 ? " AM" : " PM");
+
+            // Run test
+            long timestamp = converter.toEpochMillis(time);
+
+            // Verify test result
+            assertEquals(dateFormat.parse("02/09/2024 " + time).getTime(), timestamp, time);
+            byte[] bytes = time.toLowerCase().getBytes(StandardCharsets.US_ASCII);
+            assertEquals(timestamp, converter.toEpochMillis(bytes, 0, bytes.length), time);
+        }
+    }
+
+    @Test
+    public void parseMinuteOfDay_WILL_acceptSameTimestampsAsRegex_WHEN_timestampsAreEdgeCases() {
+
+        // Given
+        Pattern pattern = Pattern.compile("(1[012]|[1-9]):[0-5][0-9](\\s)?(?i)(am|pm)");
+        String[] timestamps = {"9:10 am", "9:10am", "9:10\tPM", "12:00 am", "12:59 Pm", "10:10", "14:10 am", "09:10 am",
+                               "0:10 am", "1:60 am", "1:5 am", "10:10  am", " 9:10 am", "9:10 amx", "13:00 pm", "1:00 xm",
+                               "11:11 AM", "1:0a am", "", "9-10 am"};
+
+        for (String timestamp : timestamps) {
+            // Run test
+            int minuteOfDay = TimestampConverter.parseMinuteOfDay(timestamp);
+
+            // Verify test result
+            assertEquals(pattern.matcher(timestamp).matches(), minuteOfDay >= 0, timestamp);
+        }
+        assertEquals(0, TimestampConverter.parseMinuteOfDay("12:00 am"));
+        assertEquals(12 * 60 + 59, TimestampConverter.parseMinuteOfDay("12:59 pm"));
+        assertEquals(23 * 60 + 1, TimestampConverter.parseMinuteOfDay("11:01PM"));
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Date;
 
 import static anz.vwap.util.Utils.DATE_TIME_FORMAT;
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class UtilsTest {
@@ -75,4 +76,65 @@ public class UtilsTest {
         double actual = Utils.roundToDecimalPlaces(testValue, 4);
         assertTrue(expected == actual);
     }
+
+    @Test
+    public void roundToDecimalPlaces_WILL_roundHalfEven_WHEN_valueIsTie() {
+        assertEquals(0.12, Utils.roundToDecimalPlaces(0.125, 2));
+        assertEquals(0.38, Utils.roundToDecimalPlaces(0.375, 2));
+        assertEquals(-0.12, Utils.roundToDecimalPlaces(-0.125, 2));
+    }
+
+    @Test
+    public void appendDecimal_WILL_formatLikeRoundedDouble_WHEN_anyValue() {
+
+        // Given
+        double[] values = {0.75528, 0.80044, 164.234, 0.6444, 1.5, 100, 0.00049, 0.0005, -0.65445, 0.0, 12345678.9, Double.NaN};
+        StringBuilder out = new StringBuilder();
+
+        for (double value : values) {
+            // Run test
+            out.setLength(0);
+            Utils.appendDecimal(out, value, 4);
+
+            // Verify test result
+            assertEquals(Double.toString(Utils.roundToDecimalPlaces(value, 4)), out.toString());
+        }
+    }
+
+    @Test
+    public void appendDecimal_WILL_formatLikeRoundedDouble_WHEN_noDecimalPlaces() {
+
+        // Given
+        double[] values = {12.0, 12.4, 12.6, 2.5, -3.7, 0.0, 1234567.0};
+        StringBuilder out = new StringBuilder();
+
+        for (double value : values) {
+            // Run test
+            out.setLength(0);
+            Utils.appendDecimal(out, value, 0);
+
+            // Verify test result
+            assertEquals(Double.toString(Utils.roundToDecimalPlaces(value, 0)), out.toString());
+        }
+    }
+
+    @Test
+    public void createTimeWindow_WILL_formatLikeSimpleDateFormat_WHEN_anyMinuteOfTheDay() throws Exception {
+
+        // Given
+        SimpleDateFormat dateFormat = new SimpleDateFormat("hh:mm aa");
+        long start = Utils.convertTimestampToLong("12:00 am");
+
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            long startTime = start + minute * 60_000L;
+            long endTime = startTime + 15 * 60_000L;
+
+            // Run test
+            String timeWindow = Utils.createTimeWindow(startTime, endTime);
+
+            // Verify test result
+            String expected = (dateFormat.format(new Date(startTime)) + " - " + dateFormat.format(new Date(endTime))).toUpperCase();
+            assertEquals(expected, timeWindow);
+        }
+    }
 }